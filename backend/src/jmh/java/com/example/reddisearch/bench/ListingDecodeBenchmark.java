@@ -0,0 +1,133 @@
+package com.example.reddisearch.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.scrape.RedditListingDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one Reddit listing page: the body as a String parsed into a JsonNode tree (what
+ * RedditScraperService used to do) against RedditListingDecoder streaming the bytes.
+ * The gc profiler the benchmark profile runs with shows allocation per page.
+ *
+ * The page is a generated 100-post listing ("generated:<selftext chars per post>"), a
+ * fixture on the test classpath ("classpath:reddit/listing-new.json"), or a recorded
+ * listing on disk: -Djmh.benchmarks=ListingDecodeBenchmark -Djmh.args="-prof gc -p listing=file:new.json".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListingDecodeBenchmark {
+
+    /** Which page to decode; generated link posts have no selftext, discussion posts a few KB */
+    @Param({"generated:0", "generated:2000", "classpath:reddit/listing-new.json"})
+    public String listing;
+
+    private static final int POSTS = 100;
+    private static final String BASE_URL = "https://www.reddit.com";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] page;
+
+    @Setup
+    public void setup() throws IOException {
+        String source = listing.substring(listing.indexOf(':') + 1);
+        if (listing.startsWith("classpath:")) {
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream(source)) {
+                if (in == null) throw new IOException("No listing fixture " + source + " on the classpath");
+                page = in.readAllBytes();
+            }
+        } else if (listing.startsWith("file:")) {
+            page = Files.readAllBytes(Path.of(source));
+        } else {
+            page = generatedPage(Integer.parseInt(source));
+        }
+    }
+
+    private byte[] generatedPage(int selftextLength) throws IOException {
+        Random random = new Random(42);
+        List<Object> children = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            children.add(Map.of("kind", "t3", "data", post(random, i, selftextLength)));
+        }
+        return objectMapper.writeValueAsBytes(Map.of(
+            "kind", "Listing",
+            "data", Map.of("after", "t3_" + (POSTS - 1), "dist", POSTS, "children", children)));
+    }
+
+    private Map<String, Object> post(Random random, int i, int selftextLength) {
+        StringBuilder selftext = new StringBuilder();
+        while (selftext.length() < selftextLength) {
+            selftext.append("word").append(random.nextInt(5000)).append(' ');
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("subreddit", "java");
+        data.put("selftext", selftext.toString());
+        data.put("title", "Post number " + i + " about virtual threads");
+        data.put("score", random.nextInt(500));
+        data.put("num_comments", random.nextInt(100));
+        data.put("name", "t3_" + i);
+        data.put("permalink", "/r/java/comments/" + i + "/post_number_" + i + "/");
+        data.put("created_utc", 1712345678.0 - i * 60);
+        // The bulk of a real listing: fields neither decoder keeps
+        data.put("preview", Map.of("images", List.of(Map.of(
+            "source", Map.of("url", "https://i.redd.it/" + i + ".png", "width", 640, "height", 480),
+            "resolutions", List.of(
+                Map.of("url", "https://i.redd.it/" + i + "-108.png", "width", 108, "height", 81),
+                Map.of("url", "https://i.redd.it/" + i + "-216.png", "width", 216, "height", 162),
+                Map.of("url", "https://i.redd.it/" + i + "-320.png", "width", 320, "height", 240))))));
+        data.put("all_awardings", List.of(Map.of("id", "award_" + i, "name", "Helpful", "count", 1,
+            "description", "Thank you stranger. Shows the award.")));
+        data.put("author_flair_richtext", List.of(Map.of("e", "text", "t", "Senior Dev")));
+        data.put("media", null);
+        data.put("thumbnail", "https://b.thumbs.redditmedia.com/" + i + ".jpg");
+        data.put("url_overridden_by_dest", "https://example.com/articles/" + i);
+        return data;
+    }
+
+    @Benchmark
+    public void treeModel(Blackhole bh) throws IOException {
+        JsonNode root = objectMapper.readTree(new String(page, StandardCharsets.UTF_8));
+        List<RedditPost> posts = new ArrayList<>();
+        for (JsonNode post : root.path("data").path("children")) {
+            JsonNode data = post.path("data");
+            String title = data.path("title").asText("");
+            String content = data.path("selftext").asText("");
+            if (title.equals("[deleted]") || title.equals("[removed]") ||
+                content.equals("[deleted]") || content.equals("[removed]")) {
+                continue;
+            }
+            int score = data.path("score").asInt(0);
+            int comments = data.path("num_comments").asInt(0);
+            if (!title.trim().isEmpty() && (score > 0 || comments > 0 || !content.trim().isEmpty())) {
+                posts.add(new RedditPost(title, content, BASE_URL + data.path("permalink").asText(""),
+                    data.path("subreddit").asText("java"), score, comments,
+                    data.path("name").asText(null), data.path("created_utc").asLong(0)));
+            }
+        }
+        bh.consume(posts);
+    }
+
+    @Benchmark
+    public void streaming(Blackhole bh) throws IOException {
+        bh.consume(RedditListingDecoder.decode(new ByteArrayInputStream(page), "java", BASE_URL));
+    }
+}
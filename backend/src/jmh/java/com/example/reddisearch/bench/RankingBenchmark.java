@@ -0,0 +1,110 @@
+package com.example.reddisearch.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ranking.Bm25Scorer;
+import com.example.reddisearch.ranking.CorpusStatistics;
+import com.example.reddisearch.ranking.RelevanceScorer;
+import com.example.reddisearch.vector.SparseVector;
+import com.example.reddisearch.vector.TopK;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Top-3 relevance ranking: the comparator-driven full sort that VectorSearchService used
+ * (two cosine calls per comparison) against scoring once into a bounded TopK heap, and
+ * the same heap fed by BM25 with corpus statistics, as the search path ranks today.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RankingBenchmark {
+
+    @Param({"15", "1000", "10000"})
+    public int documents;
+
+    private static final int K = 3;
+    private static final int VOCABULARY = 20_000;
+    private static final int TERMS_PER_DOC = 40;
+
+    private SparseVector query;
+    private List<SparseVector> docs;
+    private RelevanceScorer bm25;
+    private CorpusStatistics stats;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        query = randomVector(random, 6);
+        docs = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            docs.add(randomVector(random, TERMS_PER_DOC));
+        }
+
+        bm25 = new Bm25Scorer();
+        ReflectionTestUtils.setField(bm25, "appConfig", new AppConfig());
+        int[] documentFrequencies = new int[VOCABULARY];
+        double totalLength = 0;
+        for (SparseVector doc : docs) {
+            for (int i = 0; i < doc.size(); i++) documentFrequencies[doc.termId(i)]++;
+            totalLength += doc.weightSum();
+        }
+        double averageLength = totalLength / documents;
+        stats = new CorpusStatistics() {
+            @Override public int documentCount() { return documents; }
+            @Override public int documentFrequency(int termId) { return documentFrequencies[termId]; }
+            @Override public double averageDocumentLength() { return averageLength; }
+        };
+    }
+
+    @Benchmark
+    public void comparatorSort(Blackhole bh) {
+        List<SparseVector> top = docs.stream()
+            .filter(doc -> doc.norm() > 0)
+            .sorted((a, b) -> Double.compare(query.cosine(b), query.cosine(a)))
+            .limit(K)
+            .collect(Collectors.toList());
+        bh.consume(top);
+    }
+
+    @Benchmark
+    public void boundedHeap(Blackhole bh) {
+        TopK<SparseVector> topK = new TopK<>(K);
+        for (SparseVector doc : docs) {
+            if (doc.norm() > 0) {
+                topK.offer(doc, query.cosine(doc));
+            }
+        }
+        bh.consume(topK.toSortedList());
+    }
+
+    @Benchmark
+    public void bm25Heap(Blackhole bh) {
+        RelevanceScorer.PreparedQuery prepared = bm25.prepare(query, stats);
+        TopK<SparseVector> topK = new TopK<>(K);
+        for (SparseVector doc : docs) {
+            if (doc.norm() > 0) {
+                topK.offer(doc, prepared.score(doc));
+            }
+        }
+        bh.consume(topK.toSortedList());
+    }
+
+    private static SparseVector randomVector(Random random, int terms) {
+        int[] ids = new int[terms];
+        float[] weights = new float[terms];
+        for (int i = 0; i < terms; i++) {
+            // Skew towards low ids so queries actually overlap documents
+            ids[i] = (int) (VOCABULARY * Math.pow(random.nextDouble(), 3));
+            weights[i] = 1.0f / terms;
+        }
+        return SparseVector.of(ids, weights, terms);
+    }
+}
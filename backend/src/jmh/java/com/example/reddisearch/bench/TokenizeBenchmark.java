@@ -0,0 +1,99 @@
+package com.example.reddisearch.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.index.TermDictionary;
+import com.example.reddisearch.index.Tokenizer;
+import com.example.reddisearch.vector.SparseVector;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Turning one post into term ids: the regex pipeline VectorSearchService used
+ * (toLowerCase, replaceAll, split, stream collect, then a filter and a dictionary lookup
+ * per word) against Tokenizer scanning characters into its reusable id buffer, and the
+ * full vectorizeText path that also builds the post's SparseVector.
+ * The gc profiler output shows the allocation difference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizeBenchmark {
+
+    @Param({"200", "5000"})
+    public int textLength;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(new AppConfig().getTokenizer().getStopWords());
+
+    private TermDictionary dictionary;
+    private Tokenizer tokenizer;
+    private String text;
+
+    @Setup
+    public void setup() {
+        AppConfig config = new AppConfig();
+        config.getIndex().setEnabled(false);
+        dictionary = new TermDictionary();
+        ReflectionTestUtils.setField(dictionary, "appConfig", config);
+        tokenizer = new Tokenizer();
+        ReflectionTestUtils.setField(tokenizer, "appConfig", config);
+        tokenizer.init();
+
+        Random random = new Random(42);
+        String[] vocabulary = new String[2000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "term" + i;
+        }
+        String[] punctuation = {" ", " ", " ", ", ", ". ", "! ", " (", ") ", " - ", "\n\n"};
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < textLength) {
+            // Zipf-ish: common words dominate, like real posts
+            String word = random.nextInt(4) == 0 ? "the" : vocabulary[(int) Math.pow(random.nextInt(2000), 2) / 2000];
+            sb.append(random.nextInt(8) == 0 ? word.toUpperCase() : word)
+                .append(punctuation[random.nextInt(punctuation.length)]);
+        }
+        text = sb.toString();
+        tokenizer.termIds(text, dictionary, true);
+    }
+
+    @Benchmark
+    public void regexSplit(Blackhole bh) {
+        List<String> words = Arrays.stream(text.toLowerCase()
+                .replaceAll("[^a-zA-Z0-9\\s]", " ")
+                .split("\\s+"))
+            .filter(word -> !word.isEmpty())
+            .collect(Collectors.toList());
+        int[] termIds = new int[words.size()];
+        int count = 0;
+        for (String word : words) {
+            if (word.length() <= 2 || STOP_WORDS.contains(word)) continue;
+            int termId = dictionary.lookup(word);
+            if (termId != TermDictionary.UNKNOWN) termIds[count++] = termId;
+        }
+        bh.consume(termIds);
+        bh.consume(count);
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole bh) {
+        Tokenizer.TermIds termIds = tokenizer.termIds(text, dictionary, false);
+        bh.consume(termIds.ids());
+        bh.consume(termIds.size());
+    }
+
+    /** What VectorSearchService.vectorizeText does with the ids */
+    @Benchmark
+    public SparseVector vectorize() {
+        Tokenizer.TermIds termIds = tokenizer.termIds(text, dictionary, true);
+        float[] weights = new float[termIds.size()];
+        Arrays.fill(weights, 1.0f);
+        return SparseVector.of(termIds.ids(), weights, termIds.size());
+    }
+}
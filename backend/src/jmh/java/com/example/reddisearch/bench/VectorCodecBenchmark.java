@@ -0,0 +1,83 @@
+package com.example.reddisearch.bench;
+
+import org.openjdk.jmh.annotations.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.reddisearch.vector.SparseVector;
+import com.example.reddisearch.vector.SparseVectorCodec;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One post vector on its way into and out of PostVectorCache: the Jackson JSON value
+ * (parallel id and weight arrays) older versions stored, against SparseVectorCodec.
+ * Weights are raw term counts, as cached; the gc profiler output compares bytes allocated per value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorCodecBenchmark {
+
+    /** Distinct terms per post: a short link post, a typical discussion, a long self post */
+    @Param({"10", "80", "600"})
+    public int terms;
+
+    private static final int VOCABULARY = 50_000;
+
+    /** Same shape as PostVectorCache.CachedVector */
+    public static class CachedVector {
+        public int[] ids;
+        public float[] weights;
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SparseVector vector;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        int[] ids = new int[terms];
+        float[] weights = new float[terms];
+        for (int i = 0; i < terms; i++) {
+            ids[i] = (int) (VOCABULARY * Math.pow(random.nextDouble(), 2));
+            weights[i] = 1 + (random.nextInt(10) == 0 ? random.nextInt(8) : 0);
+        }
+        vector = SparseVector.of(ids, weights, terms);
+        json = encodeJson();
+        binary = SparseVectorCodec.encode(vector);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        CachedVector cached = new CachedVector();
+        cached.ids = new int[vector.size()];
+        cached.weights = new float[vector.size()];
+        for (int i = 0; i < vector.size(); i++) {
+            cached.ids[i] = vector.termId(i);
+            cached.weights[i] = vector.weight(i);
+        }
+        return objectMapper.writeValueAsBytes(cached);
+    }
+
+    @Benchmark
+    public SparseVector decodeJson() throws IOException {
+        CachedVector cached = objectMapper.readValue(json, CachedVector.class);
+        return SparseVector.ofSorted(cached.ids, cached.weights);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return SparseVectorCodec.encode(vector);
+    }
+
+    @Benchmark
+    public SparseVector decodeBinary() {
+        return SparseVectorCodec.decode(binary);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.reddisearch.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load against /api/search: `concurrency` clients each take the next query and
+ * wait for its answer before taking another. Every request's latency is kept, so the
+ * percentiles are exact rather than bucketed.
+ */
+final class LoadDriver {
+
+    /**
+     * Outcome of one scenario
+     */
+    static final class Result {
+        final String scenario;
+        final int requests;
+        final int errors;
+        final long wallNanos;
+        private final long[] sortedLatencies;
+
+        Result(String scenario, int errors, long wallNanos, long[] latencies) {
+            this.scenario = scenario;
+            this.requests = latencies.length;
+            this.errors = errors;
+            this.wallNanos = wallNanos;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+        }
+
+        double throughput() {
+            return requests / (wallNanos / 1e9);
+        }
+
+        /** Latency at quantile q (0..1) in milliseconds, nearest-rank */
+        double percentileMs(double q) {
+            if (sortedLatencies.length == 0) return 0;
+            int rank = (int) Math.ceil(q * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+
+    private final String appBaseUrl;
+    private final boolean streaming;
+    private final HttpClient client;
+
+    /**
+     * @param streaming use /api/search/stream and read each event stream to its end
+     */
+    LoadDriver(String appBaseUrl, boolean streaming) {
+        this.appBaseUrl = appBaseUrl;
+        this.streaming = streaming;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    Result run(String scenario, List<String> queries, int concurrency) throws InterruptedException {
+        long[] latencies = new long[queries.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        int clients = Math.min(concurrency, queries.size());
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            executor.execute(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                int i;
+                while ((i = next.getAndIncrement()) < queries.size()) {
+                    long requestStart = System.nanoTime();
+                    if (!search(queries.get(i))) errors.incrementAndGet();
+                    latencies[i] = System.nanoTime() - requestStart;
+                }
+            });
+        }
+
+        // Release every client at once, so a burst scenario really arrives as a burst
+        ready.await();
+        long wallStart = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        return new Result(scenario, errors.get(), System.nanoTime() - wallStart, latencies);
+    }
+
+    /**
+     * One search; false on a non-2xx status, a transport error or an error event
+     */
+    private boolean search(String query) {
+        String url = appBaseUrl + (streaming ? "/api/search/stream" : "/api/search")
+            + "?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofMinutes(5))
+            .GET()
+            .build();
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                String text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                if (response.statusCode() < 200 || response.statusCode() >= 300) return false;
+                return !streaming || !text.contains("event:error");
+            }
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static String report(List<Result> results) {
+        StringBuilder table = new StringBuilder(String.format("%-12s %8s %7s %10s %10s %10s %10s%n",
+            "scenario", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms"));
+        for (Result result : results) {
+            table.append(String.format("%-12s %8d %7d %10.2f %10.1f %10.1f %10.1f%n",
+                result.scenario, result.requests, result.errors, result.throughput(),
+                result.percentileMs(0.50), result.percentileMs(0.99), result.percentileMs(1.0)));
+        }
+        return table.toString();
+    }
+
+    static List<String> repeat(String query, int times) {
+        List<String> queries = new ArrayList<>(times);
+        for (int i = 0; i < times; i++) queries.add(query);
+        return queries;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.reddisearch.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.example.reddisearch.ReddisearchApplication;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Reproducible /api/search throughput baseline with no network: Reddit is replayed from
+ * recordings (or generated) by RedditStandIn, Ollama is OllamaStandIn, and the app runs
+ * in-process on a random port against them. Redis must be reachable (REDIS_HOST/REDIS_PORT).
+ *
+ * Scenarios, each reported as throughput and p50/p99:
+ * - cold: distinct queries never seen before (a fresh run id keeps them out of Redis caches)
+ * - warm: the same queries again, now answered from the caches and the local index
+ * - hot-key: one new query from every client at once, so all but one should coalesce
+ *
+ * mvn -Ploadtest verify -DskipTests -Dloadtest.args="--requests=60 --concurrency=8"
+ *
+ * Options (defaults in brackets): --requests [40], --concurrency [8], --burst [32] clients
+ * for hot-key, --stream [false] to drive /api/search/stream, --recordings [src/loadtest/recordings],
+ * --record [false] to capture misses from reddit.com into the recordings, --llm-first-token-ms
+ * [600], --llm-token-ms [25], --llm-tokens [120], --llm-parallel [2], and --target=URL to
+ * drive an app that is already running (point its app.reddit-base-url and
+ * app.ollama-base-url at the stand-in URLs printed on start).
+ */
+public final class LoadTest {
+
+    private static final String[] TOPICS = {
+        "best budget mechanical keyboard", "how to learn rust quickly", "is a standing desk worth it",
+        "index funds versus real estate", "cast iron pan care", "switching from windows to linux",
+        "first time home buyer tips", "beginner marathon training plan", "java virtual threads in production",
+        "noise cancelling headphones for travel", "sourdough starter not rising", "remote work productivity",
+        "used car buying checklist", "houseplants for low light", "learning guitar as an adult",
+        "home espresso machine under 500"
+    };
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int requests = Integer.parseInt(options.getOrDefault("requests", "40"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        int burst = Integer.parseInt(options.getOrDefault("burst", "32"));
+        boolean stream = Boolean.parseBoolean(options.getOrDefault("stream", "false"));
+        Path recordings = Path.of(options.getOrDefault("recordings", "src/loadtest/recordings"));
+        RedditStandIn.Mode mode = Boolean.parseBoolean(options.getOrDefault("record", "false"))
+            ? RedditStandIn.Mode.RECORD : RedditStandIn.Mode.REPLAY;
+
+        try (RedditStandIn reddit = new RedditStandIn(recordings, mode, "https://www.reddit.com", "ReddiSearch/1.0 (load test recorder)");
+             OllamaStandIn ollama = new OllamaStandIn(
+                 Long.parseLong(options.getOrDefault("llm-first-token-ms", "600")),
+                 Long.parseLong(options.getOrDefault("llm-token-ms", "25")),
+                 Integer.parseInt(options.getOrDefault("llm-tokens", "120")),
+                 Integer.parseInt(options.getOrDefault("llm-parallel", "2")))) {
+            System.out.println("[LoadTest] Reddit stand-in (" + mode.name().toLowerCase() + " from " + recordings + "): " + reddit.baseUrl());
+            System.out.println("[LoadTest] Ollama stand-in: " + ollama.baseUrl());
+
+            ConfigurableApplicationContext app = null;
+            String target = options.get("target");
+            if (target == null) {
+                app = startApp(reddit.baseUrl(), ollama.baseUrl());
+                target = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+            }
+            try {
+                List<LoadDriver.Result> results = runScenarios(new LoadDriver(target, stream), requests, concurrency, burst);
+                System.out.println();
+                System.out.print(LoadDriver.report(results));
+                System.out.println("[LoadTest] Reddit listings: " + reddit.replayed.get() + " replayed, "
+                    + reddit.generated.get() + " generated, " + reddit.recorded.get() + " recorded; "
+                    + ollama.generations.get() + " LLM generations");
+            } finally {
+                if (app != null) app.close();
+            }
+        }
+    }
+
+    private static List<LoadDriver.Result> runScenarios(LoadDriver driver, int requests, int concurrency, int burst)
+            throws InterruptedException {
+        String runId = Long.toString(System.currentTimeMillis() % 1_000_000_000L, 36);
+        List<String> queries = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            queries.add(TOPICS[i % TOPICS.length] + " " + runId + (i / TOPICS.length));
+        }
+
+        List<LoadDriver.Result> results = new ArrayList<>();
+        results.add(driver.run("cold", queries, concurrency));
+        results.add(driver.run("warm", queries, concurrency));
+        results.add(driver.run("hot-key", LoadDriver.repeat(TOPICS[0] + " burst " + runId, burst), burst));
+        return results;
+    }
+
+    /**
+     * The app against the stand-ins, with a throwaway local index so "cold" starts empty and
+     * no background work competing with the searches
+     */
+    private static ConfigurableApplicationContext startApp(String redditBaseUrl, String ollamaBaseUrl) throws Exception {
+        Path indexDirectory = Files.createTempDirectory("reddisearch-loadtest-index");
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("app.reddit-base-url", redditBaseUrl);
+        properties.put("app.ollama-base-url", ollamaBaseUrl);
+        properties.put("app.index.directory", indexDirectory.toString());
+        // The stand-in has no rate limit to respect, and background work would skew the numbers
+        properties.put("app.rate-limit.enabled", false);
+        properties.put("app.ingestion.enabled", false);
+        properties.put("app.embedding.enabled", false);
+        properties.put("logging.level.com.example.reddisearch", "WARN");
+        return new SpringApplicationBuilder(ReddisearchApplication.class)
+            .properties(properties)
+            .run();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.reddisearch.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for Ollama's /api/generate with a model's timing but no model.
+ *
+ * Like Ollama, it serves `parallel` generations at a time (OLLAMA_NUM_PARALLEL) and queues
+ * the rest. A generation takes firstTokenMs (prompt prefill) plus tokenIntervalMs per token.
+ * "stream": true (Ollama's default) sends one NDJSON chunk per token as it is produced,
+ * otherwise the whole response arrives at the end.
+ */
+final class OllamaStandIn implements AutoCloseable {
+
+    private final long firstTokenMs;
+    private final long tokenIntervalMs;
+    private final int tokens;
+    private final Semaphore slots;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    final AtomicInteger generations = new AtomicInteger();
+
+    OllamaStandIn(long firstTokenMs, long tokenIntervalMs, int tokens, int parallel) throws IOException {
+        this.firstTokenMs = firstTokenMs;
+        this.tokenIntervalMs = tokenIntervalMs;
+        this.tokens = tokens;
+        this.slots = new Semaphore(parallel, true);
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "ollama-stand-in-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/api/generate", this::handleGenerate);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String model = request.path("model").asText("stand-in");
+        boolean stream = request.path("stream").asBoolean(true);
+        int count = Math.max(1, Math.min(tokens, request.path("num_predict").asInt(tokens)));
+
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        try {
+            generations.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", stream ? "application/x-ndjson" : "application/json");
+            if (stream) {
+                streamTokens(exchange, model, count);
+            } else {
+                sleep(firstTokenMs + tokenIntervalMs * count);
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < count; i++) text.append(token(i));
+                byte[] body = chunk(model, text.toString(), true).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (IOException e) {
+            // Client went away mid-stream; the slot is freed like Ollama aborting the request
+        } finally {
+            slots.release();
+            exchange.close();
+        }
+    }
+
+    private void streamTokens(HttpExchange exchange, String model, int count) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        sleep(firstTokenMs);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sleep(tokenIntervalMs);
+            out.write((chunk(model, token(i), false) + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        out.write((chunk(model, "", true) + "\n").getBytes(StandardCharsets.UTF_8));
+        out.close();
+    }
+
+    private String chunk(String model, String response, boolean done) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("model", model);
+        chunk.put("response", response);
+        chunk.put("done", done);
+        return chunk.toString();
+    }
+
+    private static String token(int i) {
+        return i == 0 ? "Stand-in" : (i % 12 == 11 ? " answer." : " answer");
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
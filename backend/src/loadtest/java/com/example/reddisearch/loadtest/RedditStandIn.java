@@ -0,0 +1,243 @@
+package com.example.reddisearch.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the Reddit listing endpoints RedditScraperService calls: /r/{subreddit}/
+ * search.json, new.json, hot.json and top.json.
+ *
+ * A request is answered from {directory}/{key}.json, the key being the path plus a hash of
+ * the sorted query parameters, so a recorded listing replays byte for byte. Requests with
+ * no recording get a listing generated from the request itself (seeded by it, so the same
+ * request always gets the same posts) whose posts contain the query's words. In record mode
+ * a miss is fetched from the upstream and saved first, so a live session can be captured
+ * once and replayed offline from then on.
+ */
+final class RedditStandIn implements AutoCloseable {
+
+    enum Mode { REPLAY, RECORD }
+
+    private static final Set<String> LISTINGS = Set.of("search.json", "new.json", "hot.json", "top.json");
+    private static final String[] SUBREDDITS = {"AskReddit", "programming", "java", "technology", "personalfinance"};
+    private static final String[] FILLER = {
+        "honestly", "experience", "recommend", "tried", "works", "better", "years", "people",
+        "problem", "setup", "cheap", "worth", "issue", "switched", "fine", "support", "time", "team"
+    };
+
+    private final Path directory;
+    private final Mode mode;
+    private final String upstream;
+    private final String userAgent;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HttpClient upstreamClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    final AtomicInteger replayed = new AtomicInteger();
+    final AtomicInteger generated = new AtomicInteger();
+    final AtomicInteger recorded = new AtomicInteger();
+
+    RedditStandIn(Path directory, Mode mode, String upstream, String userAgent) throws IOException {
+        this.directory = directory;
+        this.mode = mode;
+        this.upstream = upstream;
+        this.userAgent = userAgent;
+        this.upstreamClient = mode == Mode.RECORD
+            ? HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).connectTimeout(Duration.ofSeconds(10)).build()
+            : null;
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "reddit-stand-in-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/r/", this::handle);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            URI uri = exchange.getRequestURI();
+            String[] segments = uri.getPath().split("/");
+            // "", "r", subreddit, listing
+            if (segments.length != 4 || !LISTINGS.contains(segments[3])) {
+                respond(exchange, 404, "{\"message\":\"Not Found\",\"error\":404}");
+                return;
+            }
+            Map<String, String> params = parseQuery(uri.getRawQuery());
+            Path recording = directory.resolve(key(uri.getPath(), params) + ".json");
+
+            if (Files.isRegularFile(recording)) {
+                replayed.incrementAndGet();
+                respond(exchange, 200, Files.readString(recording));
+            } else if (mode == Mode.RECORD) {
+                record(exchange, uri, recording);
+            } else {
+                generated.incrementAndGet();
+                respond(exchange, 200, generate(segments[2], segments[3], params));
+            }
+        } catch (RuntimeException e) {
+            respond(exchange, 500, objectMapper.writeValueAsString(Map.of("message", String.valueOf(e.getMessage()), "error", 500)));
+        }
+    }
+
+    private void record(HttpExchange exchange, URI uri, Path recording) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(upstream + uri.getRawPath()
+                + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "")))
+            .header("User-Agent", userAgent)
+            .timeout(Duration.ofSeconds(30))
+            .GET()
+            .build();
+        HttpResponse<String> response;
+        try {
+            response = upstreamClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted recording " + uri, e);
+        }
+        // Only successful listings are worth replaying; errors pass through unrecorded
+        if (response.statusCode() == 200) {
+            Files.createDirectories(directory);
+            Files.writeString(recording, response.body());
+            recorded.incrementAndGet();
+        }
+        respond(exchange, response.statusCode(), response.body());
+    }
+
+    /**
+     * A listing page whose posts mention every word of the query, from one subreddit mostly,
+     * so the search pipeline finds, filters and redirects the way it would on a real topic
+     */
+    private String generate(String subreddit, String listing, Map<String, String> params) throws IOException {
+        String query = params.getOrDefault("q", "");
+        int limit = Math.max(1, Math.min(100, parseInt(params.get("limit"), 25)));
+        Random random = new Random(Objects.hash(subreddit, listing, params.get("q"), params.get("t")));
+        String home = subreddit.equals("all")
+            ? SUBREDDITS[Math.floorMod(query.hashCode(), SUBREDDITS.length)]
+            : subreddit;
+        long newest = 1_760_000_000L - Math.floorMod(query.hashCode(), 86_400);
+
+        List<Object> children = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            String postSubreddit = subreddit.equals("all") && random.nextInt(3) == 0
+                ? SUBREDDITS[random.nextInt(SUBREDDITS.length)]
+                : home;
+            String id = Long.toString(Math.floorMod(random.nextLong(), 2_000_000_000L), 36);
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("subreddit", postSubreddit);
+            data.put("title", (query.isEmpty() ? "Thread" : query) + " - " + words(random, 4));
+            data.put("selftext", selftext(random, query));
+            data.put("score", 1 + random.nextInt(2000));
+            data.put("num_comments", random.nextInt(300));
+            data.put("name", "t3_" + id);
+            data.put("permalink", "/r/" + postSubreddit + "/comments/" + id + "/standin_" + i + "/");
+            data.put("created_utc", (double) (newest - i * 600L));
+            children.add(Map.of("kind", "t3", "data", data));
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("after", null);
+        page.put("dist", limit);
+        page.put("children", children);
+        return objectMapper.writeValueAsString(Map.of("kind", "Listing", "data", page));
+    }
+
+    private static String selftext(Random random, String query) {
+        StringBuilder text = new StringBuilder();
+        int sentences = 2 + random.nextInt(6);
+        for (int s = 0; s < sentences; s++) {
+            text.append(words(random, 6 + random.nextInt(10)));
+            if (!query.isEmpty() && random.nextBoolean()) {
+                text.append(' ').append(query);
+            }
+            text.append(". ");
+        }
+        return text.toString().trim();
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) words.append(' ');
+            words.append(FILLER[random.nextInt(FILLER.length)]);
+        }
+        return words.toString();
+    }
+
+    /**
+     * Recording file name: the path flattened ("r_java_search.json") and a hash of the
+     * decoded, sorted parameters, so parameter order and encoding do not matter
+     */
+    static String key(String path, Map<String, String> params) {
+        StringBuilder canonical = new StringBuilder();
+        new TreeMap<>(params).forEach((name, value) -> canonical.append(name).append('=').append(value).append('&'));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return path.substring(1).replace('/', '_') + "__" + HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) return params;
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return value != null ? Integer.parseInt(value) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -2,10 +2,19 @@ package com.example.reddisearch;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import com.example.reddisearch.http.OutboundHttpClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @SpringBootApplication
 public class ReddisearchApplication {
@@ -14,9 +23,32 @@ public class ReddisearchApplication {
         SpringApplication.run(ReddisearchApplication.class, args);
     }
 
+    /**
+     * RestTemplate on the shared pooled client, for callers that still use it (embeddings).
+     * Built through Boot's builder so its calls are timed as http.client.requests.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, OutboundHttpClient outboundHttpClient,
+                                     HttpClientConfig httpClientConfig) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(outboundHttpClient.getHttpClient());
+        requestFactory.setReadTimeout(Duration.ofMillis(httpClientConfig.getReadTimeout()));
+        return builder.requestFactory(() -> requestFactory).build();
+    }
+
+    /**
+     * Timeouts for outbound HTTP (http.client.*)
+     */
+    @ConfigurationProperties(prefix = "http.client")
+    @Component
+    public static class HttpClientConfig {
+        private int connectionTimeout = 30000;
+        private int readTimeout = 60000;
+
+        public int getConnectionTimeout() { return connectionTimeout; }
+        public void setConnectionTimeout(int connectionTimeout) { this.connectionTimeout = connectionTimeout; }
+
+        public int getReadTimeout() { return readTimeout; }
+        public void setReadTimeout(int readTimeout) { this.readTimeout = readTimeout; }
     }
 
     @ConfigurationProperties(prefix = "app")
@@ -25,25 +57,470 @@ public class ReddisearchApplication {
         private String userAgent = "ReddiSearch/1.0";
         private int maxPostsPerRequest = 50;
 
-        // Minimal tweak: lower default delay
-        private int rateLimitDelayMs = 100;
-
+        private String redditBaseUrl = "https://www.reddit.com";
         private String ollamaBaseUrl = "http://localhost:11434";
         private String ollamaModel = "mistral";
 
+        private Index index = new Index();
+        private TokenizerSettings tokenizer = new TokenizerSettings();
+        private Ranking ranking = new Ranking();
+        private Embedding embedding = new Embedding();
+        private VectorStore vectorStore = new VectorStore();
+        private CacheSettings cache = new CacheSettings();
+        private AnswerCacheSettings answerCache = new AnswerCacheSettings();
+        private Coalescing coalescing = new Coalescing();
+        private Fetch fetch = new Fetch();
+        private RateLimit rateLimit = new RateLimit();
+        private Ingestion ingestion = new Ingestion();
+        private Llm llm = new Llm();
+        private ContextSettings context = new ContextSettings();
+        private Stream stream = new Stream();
+
         public String getUserAgent() { return userAgent; }
         public void setUserAgent(String userAgent) { this.userAgent = userAgent; }
 
         public int getMaxPostsPerRequest() { return maxPostsPerRequest; }
         public void setMaxPostsPerRequest(int maxPostsPerRequest) { this.maxPostsPerRequest = maxPostsPerRequest; }
 
-        public int getRateLimitDelayMs() { return rateLimitDelayMs; }
-        public void setRateLimitDelayMs(int rateLimitDelayMs) { this.rateLimitDelayMs = rateLimitDelayMs; }
+        /** Where listings are fetched from; permalinks always point at www.reddit.com */
+        public String getRedditBaseUrl() { return redditBaseUrl; }
+        public void setRedditBaseUrl(String redditBaseUrl) { this.redditBaseUrl = redditBaseUrl; }
 
         public String getOllamaBaseUrl() { return ollamaBaseUrl; }
         public void setOllamaBaseUrl(String ollamaBaseUrl) { this.ollamaBaseUrl = ollamaBaseUrl; }
 
         public String getOllamaModel() { return ollamaModel; }
         public void setOllamaModel(String ollamaModel) { this.ollamaModel = ollamaModel; }
+
+        public Index getIndex() { return index; }
+        public void setIndex(Index index) { this.index = index; }
+
+        public TokenizerSettings getTokenizer() { return tokenizer; }
+        public void setTokenizer(TokenizerSettings tokenizer) { this.tokenizer = tokenizer; }
+
+        public Ranking getRanking() { return ranking; }
+        public void setRanking(Ranking ranking) { this.ranking = ranking; }
+
+        public Embedding getEmbedding() { return embedding; }
+        public void setEmbedding(Embedding embedding) { this.embedding = embedding; }
+
+        public VectorStore getVectorStore() { return vectorStore; }
+        public void setVectorStore(VectorStore vectorStore) { this.vectorStore = vectorStore; }
+
+        public CacheSettings getCache() { return cache; }
+        public void setCache(CacheSettings cache) { this.cache = cache; }
+
+        public AnswerCacheSettings getAnswerCache() { return answerCache; }
+        public void setAnswerCache(AnswerCacheSettings answerCache) { this.answerCache = answerCache; }
+
+        public Coalescing getCoalescing() { return coalescing; }
+        public void setCoalescing(Coalescing coalescing) { this.coalescing = coalescing; }
+
+        public Fetch getFetch() { return fetch; }
+        public void setFetch(Fetch fetch) { this.fetch = fetch; }
+
+        public RateLimit getRateLimit() { return rateLimit; }
+        public void setRateLimit(RateLimit rateLimit) { this.rateLimit = rateLimit; }
+
+        public Ingestion getIngestion() { return ingestion; }
+        public void setIngestion(Ingestion ingestion) { this.ingestion = ingestion; }
+
+        public Llm getLlm() { return llm; }
+        public void setLlm(Llm llm) { this.llm = llm; }
+
+        public ContextSettings getContext() { return context; }
+        public void setContext(ContextSettings context) { this.context = context; }
+
+        public Stream getStream() { return stream; }
+        public void setStream(Stream stream) { this.stream = stream; }
+
+        /**
+         * Settings for the local inverted index of scraped posts (app.index.*)
+         */
+        public static class Index {
+            private boolean enabled = true;
+            private String directory = "data/index";
+
+            // Serve from the index only when at least this many recently scraped posts match
+            private int minFreshHits = 5;
+            private long maxAgeMinutes = 720;
+
+            // Snapshot to disk after this many newly ingested posts
+            private int flushEvery = 200;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public String getDirectory() { return directory; }
+            public void setDirectory(String directory) { this.directory = directory; }
+
+            public int getMinFreshHits() { return minFreshHits; }
+            public void setMinFreshHits(int minFreshHits) { this.minFreshHits = minFreshHits; }
+
+            public long getMaxAgeMinutes() { return maxAgeMinutes; }
+            public void setMaxAgeMinutes(long maxAgeMinutes) { this.maxAgeMinutes = maxAgeMinutes; }
+
+            public int getFlushEvery() { return flushEvery; }
+            public void setFlushEvery(int flushEvery) { this.flushEvery = flushEvery; }
+        }
+
+        /**
+         * How post and query text is split into index terms (app.tokenizer.*)
+         */
+        public static class TokenizerSettings {
+            // Fold plurals ("threads" -> "thread") so singular and plural queries match
+            private boolean stemming = true;
+            private int minTermLength = 3;
+            private int maxTermLength = 64;
+            private List<String> stopWords = new ArrayList<>(List.of(
+                "the", "a", "an", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by", "from",
+                "this", "that", "these", "those", "i", "you", "he", "she", "it", "we", "they",
+                "is", "am", "are", "was", "were", "have", "what", "when", "where", "who", "why", "how"));
+
+            public boolean isStemming() { return stemming; }
+            public void setStemming(boolean stemming) { this.stemming = stemming; }
+
+            public int getMinTermLength() { return minTermLength; }
+            public void setMinTermLength(int minTermLength) { this.minTermLength = minTermLength; }
+
+            public int getMaxTermLength() { return maxTermLength; }
+            public void setMaxTermLength(int maxTermLength) { this.maxTermLength = maxTermLength; }
+
+            public List<String> getStopWords() { return stopWords; }
+            public void setStopWords(List<String> stopWords) { this.stopWords = stopWords; }
+        }
+
+        /**
+         * Relevance scoring for the final ranking (app.ranking.*)
+         */
+        public static class Ranking {
+            // Bean name of the RelevanceScorer to use: bm25 or tfidf
+            private String scorer = "bm25";
+            private double k1 = 1.2;
+            private double b = 0.75;
+
+            public String getScorer() { return scorer; }
+            public void setScorer(String scorer) { this.scorer = scorer; }
+
+            public double getK1() { return k1; }
+            public void setK1(double k1) { this.k1 = k1; }
+
+            public double getB() { return b; }
+            public void setB(double b) { this.b = b; }
+        }
+
+        /**
+         * Dense embedding retrieval through Ollama plus the in-memory HNSW index (app.embedding.*)
+         */
+        public static class Embedding {
+            private boolean enabled = false;
+            private String model = "nomic-embed-text";
+            private int batchSize = 32;
+            // Posts are truncated before embedding to stay inside the model's context
+            private int maxChars = 2000;
+
+            private int hnswM = 16;
+            private int efConstruction = 100;
+            private int efSearch = 64;
+            // How many dense and lexical candidates are fused in stage 3
+            private int fusionDepth = 20;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public String getModel() { return model; }
+            public void setModel(String model) { this.model = model; }
+
+            public int getBatchSize() { return batchSize; }
+            public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+            public int getMaxChars() { return maxChars; }
+            public void setMaxChars(int maxChars) { this.maxChars = maxChars; }
+
+            public int getHnswM() { return hnswM; }
+            public void setHnswM(int hnswM) { this.hnswM = hnswM; }
+
+            public int getEfConstruction() { return efConstruction; }
+            public void setEfConstruction(int efConstruction) { this.efConstruction = efConstruction; }
+
+            public int getEfSearch() { return efSearch; }
+            public void setEfSearch(int efSearch) { this.efSearch = efSearch; }
+
+            public int getFusionDepth() { return fusionDepth; }
+            public void setFusionDepth(int fusionDepth) { this.fusionDepth = fusionDepth; }
+        }
+
+        /**
+         * Memory-mapped segment files under the index directory holding embeddings and
+         * per-post term vectors (app.vector-store.*)
+         */
+        public static class VectorStore {
+            private boolean enabled = true;
+            private int segmentSizeMb = 64;
+            // Compact once this share of segment bytes belongs to superseded records
+            private double compactionRatio = 0.5;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public int getSegmentSizeMb() { return segmentSizeMb; }
+            public void setSegmentSizeMb(int segmentSizeMb) { this.segmentSizeMb = segmentSizeMb; }
+
+            public double getCompactionRatio() { return compactionRatio; }
+            public void setCompactionRatio(double compactionRatio) { this.compactionRatio = compactionRatio; }
+        }
+
+        /**
+         * In-process L1 in front of the Redis cache manager (app.cache.*)
+         */
+        public static class CacheSettings {
+            private boolean l1Enabled = true;
+            private long l2TtlMinutes = 10;
+            // Pub/sub channel used to evict other instances' L1 entries on writes
+            private String invalidationChannel = "reddisearch:cache-invalidation";
+            private Spec defaults = new Spec();
+            // Per-cache L1 overrides, keyed by cache name
+            private Map<String, Spec> specs = new HashMap<>();
+
+            public boolean isL1Enabled() { return l1Enabled; }
+            public void setL1Enabled(boolean l1Enabled) { this.l1Enabled = l1Enabled; }
+
+            public long getL2TtlMinutes() { return l2TtlMinutes; }
+            public void setL2TtlMinutes(long l2TtlMinutes) { this.l2TtlMinutes = l2TtlMinutes; }
+
+            public String getInvalidationChannel() { return invalidationChannel; }
+            public void setInvalidationChannel(String invalidationChannel) { this.invalidationChannel = invalidationChannel; }
+
+            public Spec getDefaults() { return defaults; }
+            public void setDefaults(Spec defaults) { this.defaults = defaults; }
+
+            public Map<String, Spec> getSpecs() { return specs; }
+            public void setSpecs(Map<String, Spec> specs) { this.specs = specs; }
+
+            public Spec specFor(String cacheName) { return specs.getOrDefault(cacheName, defaults); }
+
+            public static class Spec {
+                private long maxSize = 1000;
+                private long ttlSeconds = 300;
+
+                public long getMaxSize() { return maxSize; }
+                public void setMaxSize(long maxSize) { this.maxSize = maxSize; }
+
+                public long getTtlSeconds() { return ttlSeconds; }
+                public void setTtlSeconds(long ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+            }
+        }
+
+        /**
+         * Reuse of generated LLM answers, exact and near-duplicate (app.answer-cache.*)
+         */
+        public static class AnswerCacheSettings {
+            private long ttlMinutes = 360;
+            private boolean semanticEnabled = true;
+            // Cosine similarity of query embeddings, used when app.embedding is enabled
+            private double similarityThreshold = 0.92;
+            // Jaccard similarity of query terms, used otherwise
+            private double lexicalThreshold = 0.8;
+            // Share of context posts two answers must have in common to be interchangeable
+            private double minPostOverlap = 0.5;
+            private int semanticEntries = 512;
+
+            public long getTtlMinutes() { return ttlMinutes; }
+            public void setTtlMinutes(long ttlMinutes) { this.ttlMinutes = ttlMinutes; }
+
+            public boolean isSemanticEnabled() { return semanticEnabled; }
+            public void setSemanticEnabled(boolean semanticEnabled) { this.semanticEnabled = semanticEnabled; }
+
+            public double getSimilarityThreshold() { return similarityThreshold; }
+            public void setSimilarityThreshold(double similarityThreshold) { this.similarityThreshold = similarityThreshold; }
+
+            public double getLexicalThreshold() { return lexicalThreshold; }
+            public void setLexicalThreshold(double lexicalThreshold) { this.lexicalThreshold = lexicalThreshold; }
+
+            public double getMinPostOverlap() { return minPostOverlap; }
+            public void setMinPostOverlap(double minPostOverlap) { this.minPostOverlap = minPostOverlap; }
+
+            public int getSemanticEntries() { return semanticEntries; }
+            public void setSemanticEntries(int semanticEntries) { this.semanticEntries = semanticEntries; }
+        }
+
+        /**
+         * Single-flight for identical concurrent searches, locally and across instances (app.coalescing.*)
+         */
+        public static class Coalescing {
+            private boolean enabled = true;
+            // Coordinate instances through a Redis lease; otherwise coalesce within this JVM only
+            private boolean distributed = true;
+            // Longest a search may hold the lease
+            private long leaseMs = 120_000;
+            // Followers on other instances wait this long for the holder's result, then compute it themselves
+            private long followerWaitMs = 15_000;
+            private long pollIntervalMs = 250;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public boolean isDistributed() { return distributed; }
+            public void setDistributed(boolean distributed) { this.distributed = distributed; }
+
+            public long getLeaseMs() { return leaseMs; }
+            public void setLeaseMs(long leaseMs) { this.leaseMs = leaseMs; }
+
+            public long getFollowerWaitMs() { return followerWaitMs; }
+            public void setFollowerWaitMs(long followerWaitMs) { this.followerWaitMs = followerWaitMs; }
+
+            public long getPollIntervalMs() { return pollIntervalMs; }
+            public void setPollIntervalMs(long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+        }
+
+        /**
+         * Parallel Reddit fan-out (app.fetch.*)
+         */
+        public static class Fetch {
+            // Requests in flight at once against one host, across all searches
+            private int maxConcurrentPerHost = 4;
+            // Wall-clock budget for one search's fan-out; late responses are dropped
+            private long deadlineMs = 10_000;
+            // Keyword searches issued alongside the full-query search
+            private int maxKeywordSearches = 4;
+
+            public int getMaxConcurrentPerHost() { return maxConcurrentPerHost; }
+            public void setMaxConcurrentPerHost(int maxConcurrentPerHost) { this.maxConcurrentPerHost = maxConcurrentPerHost; }
+
+            public long getDeadlineMs() { return deadlineMs; }
+            public void setDeadlineMs(long deadlineMs) { this.deadlineMs = deadlineMs; }
+
+            public int getMaxKeywordSearches() { return maxKeywordSearches; }
+            public void setMaxKeywordSearches(int maxKeywordSearches) { this.maxKeywordSearches = maxKeywordSearches; }
+        }
+
+        /**
+         * Token bucket for outbound Reddit requests, shared through Redis (app.rate-limit.*)
+         */
+        public static class RateLimit {
+            private boolean enabled = true;
+            // Sustained rate across all instances, and how many requests may go out back to back
+            private double requestsPerMinute = 60;
+            private int burst = 10;
+            // Share the bucket through Redis; otherwise each instance gets the full rate
+            private boolean distributed = true;
+            // A request that would have to wait longer than this is skipped instead
+            private long maxWaitMs = 5_000;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public double getRequestsPerMinute() { return requestsPerMinute; }
+            public void setRequestsPerMinute(double requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+
+            public int getBurst() { return burst; }
+            public void setBurst(int burst) { this.burst = burst; }
+
+            public boolean isDistributed() { return distributed; }
+            public void setDistributed(boolean distributed) { this.distributed = distributed; }
+
+            public long getMaxWaitMs() { return maxWaitMs; }
+            public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+        }
+
+        /**
+         * Background polling of subscribed subreddits into the local index (app.ingestion.*)
+         */
+        public static class Ingestion {
+            private boolean enabled = false;
+            private List<String> subreddits = new ArrayList<>();
+            // Each subreddit's poll interval adapts to its post rate within these bounds
+            private long minIntervalSeconds = 30;
+            private long maxIntervalSeconds = 900;
+            // Aim for roughly this many new posts per poll
+            private int targetPostsPerPoll = 25;
+            // Listing pages per poll (up to 100 posts each); also bounds the first backfill
+            private int maxPagesPerPoll = 5;
+            // Posts indexed and vectorized together
+            private int batchSize = 50;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public List<String> getSubreddits() { return subreddits; }
+            public void setSubreddits(List<String> subreddits) { this.subreddits = subreddits; }
+
+            public long getMinIntervalSeconds() { return minIntervalSeconds; }
+            public void setMinIntervalSeconds(long minIntervalSeconds) { this.minIntervalSeconds = minIntervalSeconds; }
+
+            public long getMaxIntervalSeconds() { return maxIntervalSeconds; }
+            public void setMaxIntervalSeconds(long maxIntervalSeconds) { this.maxIntervalSeconds = maxIntervalSeconds; }
+
+            public int getTargetPostsPerPoll() { return targetPostsPerPoll; }
+            public void setTargetPostsPerPoll(int targetPostsPerPoll) { this.targetPostsPerPoll = targetPostsPerPoll; }
+
+            public int getMaxPagesPerPoll() { return maxPagesPerPoll; }
+            public void setMaxPagesPerPoll(int maxPagesPerPoll) { this.maxPagesPerPoll = maxPagesPerPoll; }
+
+            public int getBatchSize() { return batchSize; }
+            public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+        }
+
+        /**
+         * Admission control for calls to Ollama (app.llm.*)
+         */
+        public static class Llm {
+            // Calls allowed in flight at once; match Ollama's OLLAMA_NUM_PARALLEL
+            private int maxConcurrent = 2;
+            // Further callers wait here; beyond this they get the fallback immediately
+            private int maxQueued = 32;
+            // Longest wait for a slot before falling back (synthesized answer, no embedding)
+            private long interactiveQueueTimeoutMs = 8000;
+            private long backgroundQueueTimeoutMs = 120000;
+
+            public int getMaxConcurrent() { return maxConcurrent; }
+            public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+            public int getMaxQueued() { return maxQueued; }
+            public void setMaxQueued(int maxQueued) { this.maxQueued = maxQueued; }
+
+            public long getInteractiveQueueTimeoutMs() { return interactiveQueueTimeoutMs; }
+            public void setInteractiveQueueTimeoutMs(long interactiveQueueTimeoutMs) { this.interactiveQueueTimeoutMs = interactiveQueueTimeoutMs; }
+
+            public long getBackgroundQueueTimeoutMs() { return backgroundQueueTimeoutMs; }
+            public void setBackgroundQueueTimeoutMs(long backgroundQueueTimeoutMs) { this.backgroundQueueTimeoutMs = backgroundQueueTimeoutMs; }
+        }
+
+        /**
+         * The posts section of the answer prompt (app.context.*)
+         */
+        public static class ContextSettings {
+            // Estimated LLM tokens for all posts together, headers included
+            private int maxTokens = 300;
+            // Longer sentences are clipped to this many tokens
+            private int maxSpanTokens = 60;
+            // Term overlap (Jaccard) at which a sentence counts as repeating a chosen one
+            private double duplicateSimilarity = 0.7;
+
+            public int getMaxTokens() { return maxTokens; }
+            public void setMaxTokens(int maxTokens) { this.maxTokens = maxTokens; }
+
+            public int getMaxSpanTokens() { return maxSpanTokens; }
+            public void setMaxSpanTokens(int maxSpanTokens) { this.maxSpanTokens = maxSpanTokens; }
+
+            public double getDuplicateSimilarity() { return duplicateSimilarity; }
+            public void setDuplicateSimilarity(double duplicateSimilarity) { this.duplicateSimilarity = duplicateSimilarity; }
+        }
+
+        /**
+         * Worker pool for streamed searches (app.stream.*)
+         */
+        public static class Stream {
+            // Streams running at once; each holds a thread for the whole search and answer
+            private int maxConcurrent = 16;
+            // Streams waiting for a thread; beyond this they get an error event straight away
+            private int maxQueued = 16;
+
+            public int getMaxConcurrent() { return maxConcurrent; }
+            public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+            public int getMaxQueued() { return maxQueued; }
+            public void setMaxQueued(int maxQueued) { this.maxQueued = maxQueued; }
+        }
     }
 }
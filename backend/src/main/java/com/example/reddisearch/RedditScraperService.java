@@ -1,29 +1,45 @@
 package com.example.reddisearch;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.RestClientException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.http.OutboundHttpClient;
+import com.example.reddisearch.index.LocalPostIndex;
+import com.example.reddisearch.index.Tokenizer;
+import com.example.reddisearch.scrape.FetchEngine;
+import com.example.reddisearch.scrape.RedditListingDecoder;
+import com.example.reddisearch.scrape.RedditRateLimiter;
 
+import java.io.IOException;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 @Service
 public class RedditScraperService {
 
     @Autowired
-    private RestTemplate restTemplate;
+    private OutboundHttpClient httpClient;
     
     @Autowired
     private AppConfig appConfig;
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private LocalPostIndex localPostIndex;
+    
+    @Autowired
+    private FetchEngine fetchEngine;
+    
+    @Autowired
+    private RedditRateLimiter rateLimiter;
+    
+    @Autowired
+    private Tokenizer tokenizer;
+    
+    // Post URLs stay on reddit.com even when listings come from app.reddit-base-url (e.g. a replay stand-in)
     private static final String REDDIT_BASE_URL = "https://www.reddit.com";
 
     public static class RedditPost {
@@ -33,14 +49,23 @@ public class RedditScraperService {
         private String subreddit;
         private int score;
         private int comments;
+        private String fullname;
+        private long createdUtc;
 
         public RedditPost(String title, String content, String url, String subreddit, int score, int comments) {
+            this(title, content, url, subreddit, score, comments, null, 0);
+        }
+
+        public RedditPost(String title, String content, String url, String subreddit, int score, int comments,
+                          String fullname, long createdUtc) {
             this.title = title;
             this.content = content;
             this.url = url;
             this.subreddit = subreddit;
             this.score = score;
             this.comments = comments;
+            this.fullname = fullname;
+            this.createdUtc = createdUtc;
         }
 
         public String getTitle() { return title; }
@@ -49,53 +74,108 @@ public class RedditScraperService {
         public String getSubreddit() { return subreddit; }
         public int getScore() { return score; }
         public int getComments() { return comments; }
+        /** Reddit's "t3_..." id, used as a listing cursor; null for posts restored from the index snapshot */
+        public String getFullname() { return fullname; }
+        public long getCreatedUtc() { return createdUtc; }
         
         public String getCombinedText() {
             return title + "\n\n" + content;
         }
+
+        /**
+         * 64-bit FNV-1a of the URL and text. Derived data stored per post keeps this next to
+         * it, so a post edited since then is recomputed rather than served stale.
+         */
+        public long getContentHash() {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : ((url != null ? url : "") + "\n" + getCombinedText()).getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * One page of a listing. The cursors describe the raw page, including posts that were
+     * filtered out, so paging never skips or repeats items.
+     */
+    public static class Listing {
+        private final List<RedditPost> posts;
+        private final int rawCount;
+        private final String newestFullname;
+        private final long newestCreatedUtc;
+        private final long oldestCreatedUtc;
+        private final String after;
+
+        public Listing(List<RedditPost> posts, int rawCount, String newestFullname,
+                       long newestCreatedUtc, long oldestCreatedUtc, String after) {
+            this.posts = posts;
+            this.rawCount = rawCount;
+            this.newestFullname = newestFullname;
+            this.newestCreatedUtc = newestCreatedUtc;
+            this.oldestCreatedUtc = oldestCreatedUtc;
+            this.after = after;
+        }
+
+        public List<RedditPost> getPosts() { return posts; }
+        public int getRawCount() { return rawCount; }
+        public String getNewestFullname() { return newestFullname; }
+        public long getNewestCreatedUtc() { return newestCreatedUtc; }
+        public long getOldestCreatedUtc() { return oldestCreatedUtc; }
+        public String getAfter() { return after; }
     }
 
     public List<RedditPost> searchRedditPosts(String query, int limit, String userSubreddit) {
+        return searchRedditPosts(query, limit, userSubreddit, FetchEngine.deadline(appConfig.getFetch().getDeadlineMs()));
+    }
+
+    private List<RedditPost> searchRedditPosts(String query, int limit, String userSubreddit, long deadline) {
         try {
             String subreddit = (userSubreddit != null && !userSubreddit.trim().isEmpty()) ? 
                 userSubreddit.trim().replaceAll("^r/", "") : "all";
             
             List<RedditPost> allPosts = new ArrayList<>();
+            Set<String> seenUrls = new HashSet<>();
             
             // Try both search and recent posts for better results
             if (query != null && !query.trim().isEmpty()) {
-                // First try searching for the full query
-                allPosts.addAll(searchRedditByQuery(query, subreddit, limit));
+                // The full query goes out alone, so it gets the first rate-limit token and the
+                // fallbacks cost nothing when it is enough. The tiers it falls short on then go
+                // out together, and r/all only if the subreddit still has next to nothing.
+                addNewPosts(allPosts, seenUrls, fetchEngine.fetchAll(
+                    List.of(redditRequest(() -> searchRedditByQuery(query, subreddit, limit))), deadline).get(0));
                 
                 System.out.println("[Scraper] Found " + allPosts.size() + " posts with full query in r/" + subreddit);
                 
-                // If we get very few results, try keyword-based search
-                if (allPosts.size() < limit / 2) {
-                    System.out.println("[Scraper] Low results, trying keyword extraction");
-                    String[] keywords = extractKeywords(query);
+                if (allPosts.size() < limit) {
+                    List<String> keywords = allPosts.size() < limit / 2
+                        ? tokenizer.keywords(query).stream()
+                            .limit(appConfig.getFetch().getMaxKeywordSearches())
+                            .collect(Collectors.toList())
+                        : Collections.emptyList();
+                    
+                    List<FetchEngine.Request<List<RedditPost>>> requests = new ArrayList<>();
                     for (String keyword : keywords) {
-                        if (keyword.length() > 2) {
-                            List<RedditPost> keywordPosts = searchRedditByQuery(keyword, subreddit, limit);
-                            for (RedditPost post : keywordPosts) {
-                                if (allPosts.stream().noneMatch(p -> p.getUrl().equals(post.getUrl()))) {
-                                    allPosts.add(post);
-                                }
-                            }
-                            if (allPosts.size() >= limit) break;
+                        requests.add(redditRequest(() -> searchRedditByQuery(keyword, subreddit, limit)));
+                    }
+                    requests.add(redditRequest(() -> fetchRecentPosts(subreddit, limit * 3)));
+                    List<List<RedditPost>> results = fetchEngine.fetchAll(requests, deadline);
+                    
+                    // If we get very few results, use the keyword-based searches
+                    if (!keywords.isEmpty()) {
+                        System.out.println("[Scraper] Low results, using keyword searches");
+                        for (int i = 0; i < keywords.size() && allPosts.size() < limit; i++) {
+                            addNewPosts(allPosts, seenUrls, results.get(i));
                         }
                     }
-                }
-                
-                // If still low on results, get recent posts and filter
-                if (allPosts.size() < limit) {
-                    System.out.println("[Scraper] Still low, fetching and filtering recent posts");
-                    List<RedditPost> recentPosts = fetchRecentPosts(subreddit, limit * 3);
-                    List<RedditPost> filteredPosts = filterPostsByQuery(recentPosts, query);
                     
-                    // Add posts that aren't already in our list
-                    for (RedditPost post : filteredPosts) {
-                        if (allPosts.stream().noneMatch(p -> p.getUrl().equals(post.getUrl()))) {
-                            allPosts.add(post);
+                    // If still low on results, filter the recent posts
+                    if (allPosts.size() < limit) {
+                        System.out.println("[Scraper] Still low, filtering recent posts");
+                        List<RedditPost> recentPosts = results.get(keywords.size());
+                        if (recentPosts != null) {
+                            addNewPosts(allPosts, seenUrls, filterPostsByQuery(recentPosts, query));
                         }
                     }
                 }
@@ -103,18 +183,17 @@ public class RedditScraperService {
                 // Last resort: if subreddit search yielded nothing, try "all" subreddit
                 if (allPosts.size() < 3 && !subreddit.equals("all")) {
                     System.out.println("[Scraper] Very low results in r/" + subreddit + ", falling back to r/all");
-                    List<RedditPost> allSubredditPosts = searchRedditByQuery(query, "all", limit);
-                    for (RedditPost post : allSubredditPosts) {
-                        if (allPosts.stream().noneMatch(p -> p.getUrl().equals(post.getUrl()))) {
-                            allPosts.add(post);
-                        }
-                    }
+                    addNewPosts(allPosts, seenUrls, fetchEngine.fetchAll(
+                        List.of(redditRequest(() -> searchRedditByQuery(query, "all", limit))), deadline).get(0));
                 }
             } else {
                 // Just get recent posts if no query
                 allPosts.addAll(fetchRecentPosts(subreddit, limit));
             }
             
+            // Keep everything we scraped so repeat topics can be answered locally
+            localPostIndex.ingest(allPosts);
+            
             List<RedditPost> result = allPosts.stream()
                 .sorted((a, b) -> Integer.compare(b.getScore(), a.getScore()))
                 .limit(limit)
@@ -131,47 +210,53 @@ public class RedditScraperService {
     }
     
     /**
-     * Extract important keywords from a query for fallback searching
+     * GET a listing and decode it as it streams in; null on a non-2xx response
      */
-    private String[] extractKeywords(String query) {
-        // Remove common words and split
-        String[] parts = query.toLowerCase()
-            .replaceAll("[^a-z0-9\\s]", "")
-            .split("\\s+");
-        
-        List<String> keywords = new ArrayList<>();
-        for (String part : parts) {
-            // Keep words longer than 3 chars that aren't common stop words
-            if (part.length() > 3 && !isCommonStopWord(part)) {
-                keywords.add(part);
+    private Listing getListing(String url, String subreddit) throws IOException {
+        if (!rateLimiter.acquire()) {
+            throw new IOException("Reddit rate limit reached, skipped " + url);
+        }
+        try (OutboundHttpClient.StreamResponse response =
+                 httpClient.getStream(url, Map.of("User-Agent", appConfig.getUserAgent()))) {
+            rateLimiter.observe(response.getStatusCode(), response.getHeaders());
+            if (!response.isSuccessful()) {
+                System.err.println("[Scraper] Reddit returned HTTP " + response.getStatusCode() + " for " + url);
+                return null;
             }
+            return RedditListingDecoder.decode(response.getBody(), subreddit, REDDIT_BASE_URL);
         }
-        
-        return keywords.toArray(new String[0]);
     }
     
-    private boolean isCommonStopWord(String word) {
-        Set<String> stopWords = Set.of("the", "and", "that", "with", "from", "have", "this", "what", "when", "where", "who", "why", "how");
-        return stopWords.contains(word);
+    private List<RedditPost> getPosts(String url, String subreddit) throws IOException {
+        Listing listing = getListing(url, subreddit);
+        return listing != null ? listing.getPosts() : Collections.emptyList();
+    }
+    
+    private FetchEngine.Request<List<RedditPost>> redditRequest(Callable<List<RedditPost>> call) {
+        return FetchEngine.Request.of(URI.create(appConfig.getRedditBaseUrl()).getHost(), call);
+    }
+    
+    /**
+     * Append posts whose URL has not been seen; null (a request that missed the deadline) adds nothing
+     */
+    private static void addNewPosts(List<RedditPost> allPosts, Set<String> seenUrls, List<RedditPost> posts) {
+        if (posts == null) return;
+        for (RedditPost post : posts) {
+            if (seenUrls.add(post.getUrl())) {
+                allPosts.add(post);
+            }
+        }
     }
     
     private List<RedditPost> searchRedditByQuery(String query, String subreddit, int limit) {
         try {
             String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
             String searchUrl = String.format("%s/r/%s/search.json?q=%s&restrict_sr=1&sort=relevance&limit=%d", 
-                REDDIT_BASE_URL, subreddit, encodedQuery, Math.min(limit, appConfig.getMaxPostsPerRequest()));
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("User-Agent", appConfig.getUserAgent());
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(searchUrl, HttpMethod.GET, entity, String.class);
+                appConfig.getRedditBaseUrl(), subreddit, encodedQuery, Math.min(limit, appConfig.getMaxPostsPerRequest()));
             
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return parseRedditJson(response.getBody(), subreddit);
-            }
+            return getPosts(searchUrl, subreddit);
             
-        } catch (RestClientException e) {
+        } catch (IOException e) {
             System.err.println("Network error searching Reddit: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Error searching Reddit by query: " + e.getMessage());
@@ -183,19 +268,11 @@ public class RedditScraperService {
     private List<RedditPost> fetchRecentPosts(String subreddit, int limit) {
         try {
             String url = String.format("%s/r/%s/new.json?limit=%d", 
-                REDDIT_BASE_URL, subreddit, Math.min(limit, appConfig.getMaxPostsPerRequest()));
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("User-Agent", appConfig.getUserAgent());
-            HttpEntity<String> entity = new HttpEntity<>(headers);
+                appConfig.getRedditBaseUrl(), subreddit, Math.min(limit, appConfig.getMaxPostsPerRequest()));
             
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            return getPosts(url, subreddit);
             
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return parseRedditJson(response.getBody(), subreddit);
-            }
-            
-        } catch (RestClientException e) {
+        } catch (IOException e) {
             System.err.println("Network error fetching recent posts: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Error fetching recent posts: " + e.getMessage());
@@ -209,41 +286,40 @@ public class RedditScraperService {
             return posts;
         }
         
-        String queryLower = query.toLowerCase();
+        // Every query term must appear in the post, matched as terms rather than one substring
+        List<String> queryTerms = tokenizer.terms(query);
+        if (queryTerms.isEmpty()) {
+            return posts;
+        }
         return posts.stream()
-            .filter(post -> post.getTitle().toLowerCase().contains(queryLower) || 
-                          post.getContent().toLowerCase().contains(queryLower))
+            .filter(post -> {
+                Set<String> remaining = new HashSet<>(queryTerms);
+                tokenizer.forEachTerm(post.getCombinedText(), remaining::remove);
+                return remaining.isEmpty();
+            })
             .collect(Collectors.toList());
     }
 
-    private List<RedditPost> parseRedditJson(String jsonResponse, String subreddit) throws Exception {
-        JsonNode root = objectMapper.readTree(jsonResponse);
-        JsonNode posts = root.path("data").path("children");
-        
-        List<RedditPost> redditPosts = new ArrayList<>();
-        
-        for (JsonNode post : posts) {
-            JsonNode data = post.path("data");
-            String title = data.path("title").asText("");
-            String content = data.path("selftext").asText("");
-            String url = REDDIT_BASE_URL + data.path("permalink").asText("");
-            String actualSubreddit = data.path("subreddit").asText(subreddit);
-            int score = data.path("score").asInt(0);
-            int comments = data.path("num_comments").asInt(0);
+    /**
+     * One page of r/subreddit/new.json, newest first, without touching the local index.
+     * before returns posts newer than that fullname, after posts older; null on failure.
+     */
+    public Listing fetchNewListing(String subreddit, String before, String after, int limit) {
+        try {
+            StringBuilder url = new StringBuilder(String.format("%s/r/%s/new.json?limit=%d",
+                appConfig.getRedditBaseUrl(), subreddit, Math.min(limit, 100)));
+            if (before != null) url.append("&before=").append(URLEncoder.encode(before, StandardCharsets.UTF_8));
+            if (after != null) url.append("&after=").append(URLEncoder.encode(after, StandardCharsets.UTF_8));
             
-            // Skip deleted or removed posts
-            if (title.equals("[deleted]") || title.equals("[removed]") || 
-                content.equals("[deleted]") || content.equals("[removed]")) {
-                continue;
-            }
+            return getListing(url.toString(), subreddit);
             
-            // Only include posts with some content or reasonable engagement
-            if (!title.trim().isEmpty() && (score > 0 || comments > 0 || !content.trim().isEmpty())) {
-                redditPosts.add(new RedditPost(title, content, url, actualSubreddit, score, comments));
-            }
+        } catch (IOException e) {
+            System.err.println("Network error fetching new posts listing: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error fetching new posts listing: " + e.getMessage());
         }
         
-        return redditPosts;
+        return null;
     }
     
     /**
@@ -255,19 +331,13 @@ public class RedditScraperService {
                 subreddit.trim().replaceAll("^r/", "") : "all";
             
             String url = String.format("%s/r/%s/hot.json?limit=%d", 
-                REDDIT_BASE_URL, cleanSubreddit, Math.min(limit, appConfig.getMaxPostsPerRequest()));
+                appConfig.getRedditBaseUrl(), cleanSubreddit, Math.min(limit, appConfig.getMaxPostsPerRequest()));
             
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("User-Agent", appConfig.getUserAgent());
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return parseRedditJson(response.getBody(), cleanSubreddit);
-            }
+            List<RedditPost> posts = getPosts(url, cleanSubreddit);
+            localPostIndex.ingest(posts);
+            return posts;
             
-        } catch (RestClientException e) {
+        } catch (IOException e) {
             System.err.println("Network error fetching hot posts: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Error fetching hot posts: " + e.getMessage());
@@ -290,19 +360,13 @@ public class RedditScraperService {
                 ? timeFilter.toLowerCase() : "day";
             
             String url = String.format("%s/r/%s/top.json?t=%s&limit=%d", 
-                REDDIT_BASE_URL, cleanSubreddit, validTimeFilter, Math.min(limit, appConfig.getMaxPostsPerRequest()));
+                appConfig.getRedditBaseUrl(), cleanSubreddit, validTimeFilter, Math.min(limit, appConfig.getMaxPostsPerRequest()));
             
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("User-Agent", appConfig.getUserAgent());
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return parseRedditJson(response.getBody(), cleanSubreddit);
-            }
+            List<RedditPost> posts = getPosts(url, cleanSubreddit);
+            localPostIndex.ingest(posts);
+            return posts;
             
-        } catch (RestClientException e) {
+        } catch (IOException e) {
             System.err.println("Network error fetching top posts: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Error fetching top posts: " + e.getMessage());
@@ -315,11 +379,16 @@ public class RedditScraperService {
      * Search across multiple subreddits
      */
     public List<RedditPost> searchMultipleSubreddits(String query, List<String> subreddits, int limitPerSubreddit) {
-        List<RedditPost> allPosts = new ArrayList<>();
-        
+        // One shared deadline: each subreddit's own fan-out is bounded by it too
+        long deadline = FetchEngine.deadline(appConfig.getFetch().getDeadlineMs());
+        List<FetchEngine.Request<List<RedditPost>>> requests = new ArrayList<>();
         for (String subreddit : subreddits) {
-            List<RedditPost> posts = searchRedditPosts(query, limitPerSubreddit, subreddit);
-            allPosts.addAll(posts);
+            requests.add(FetchEngine.Request.of(null, () -> searchRedditPosts(query, limitPerSubreddit, subreddit, deadline)));
+        }
+        
+        List<RedditPost> allPosts = new ArrayList<>();
+        for (List<RedditPost> posts : fetchEngine.fetchAll(requests, deadline)) {
+            if (posts != null) allPosts.addAll(posts);
         }
         
         // Sort by score and remove duplicates
@@ -1,18 +1,36 @@
 package com.example.reddisearch;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.RestClientException;
 import org.springframework.cache.annotation.Cacheable;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.example.reddisearch.ReddisearchApplication.AppConfig;
 import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.answer.AnswerCache;
+import com.example.reddisearch.answer.ContextBuilder;
+import com.example.reddisearch.answer.TokenEstimator;
 import com.example.reddisearch.config.PostVectorCache;
-
+import com.example.reddisearch.embedding.EmbeddingIndex;
+import com.example.reddisearch.http.OutboundHttpClient;
+import com.example.reddisearch.index.LocalPostIndex;
+import com.example.reddisearch.index.TermDictionary;
+import com.example.reddisearch.index.TermVectorStore;
+import com.example.reddisearch.index.Tokenizer;
+import com.example.reddisearch.llm.LlmScheduler;
+import com.example.reddisearch.ranking.RelevanceScorer;
+import com.example.reddisearch.search.SearchMetrics;
+import com.example.reddisearch.search.SearchMetrics.Stage;
+import com.example.reddisearch.vector.SparseVector;
+import com.example.reddisearch.vector.TopK;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,7 +38,7 @@ import java.util.stream.Collectors;
 public class VectorSearchService {
 
     @Autowired
-    private RestTemplate restTemplate;
+    private OutboundHttpClient httpClient;
 
     @Autowired
     private AppConfig appConfig;
@@ -31,35 +49,63 @@ public class VectorSearchService {
     @Autowired
     private PostVectorCache postVectorCache;
 
+    @Autowired
+    private LocalPostIndex localPostIndex;
+
+    @Autowired
+    private TermDictionary termDictionary;
+
+    @Autowired
+    private TermVectorStore termVectorStore;
+
+    @Autowired
+    private Tokenizer tokenizer;
+
+    @Autowired
+    private Map<String, RelevanceScorer> scorers;
+
+    @Autowired
+    private EmbeddingIndex embeddingIndex;
+
+    @Autowired
+    private AnswerCache answerCache;
+
+    @Autowired
+    private ContextBuilder contextBuilder;
+
+    @Autowired
+    private LlmScheduler llmScheduler;
+
+    @Autowired
+    private SearchMetrics searchMetrics;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final Map<String, Integer> vocabulary = new HashMap<>();
-    private final Set<String> stopWords = Set.of(
-        "the", "a", "an", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by",
-        "this", "that", "these", "those", "i", "you", "he", "she", "it", "we", "they", "is", "am", "are", "was", "were"
-    );
+    public static final String SEARCH_RESULTS_CACHE = "vectorSearchResults";
+
+    // Reciprocal rank fusion constant (the usual value from the RRF paper)
+    private static final int RRF_K = 60;
 
     public static class DocumentVector {
         private final RedditPost post;
-        private final Map<String, Double> vector;
-        private final double magnitude;
+        private final SparseVector vector;
 
-        public DocumentVector(RedditPost post, Map<String, Double> vector, double magnitude) {
+        public DocumentVector(RedditPost post, SparseVector vector) {
             this.post = post;
             this.vector = vector;
-            this.magnitude = magnitude;
         }
 
         public RedditPost getPost() { return post; }
-        public Map<String, Double> getVector() { return vector; }
-        public double getMagnitude() { return magnitude; }
+        public SparseVector getVector() { return vector; }
+        public double getMagnitude() { return vector.norm(); }
     }
 
     public static class SearchResult {
         private final String answer;
         private final int postsFound;
 
-        public SearchResult(String answer, int postsFound) {
+        @JsonCreator
+        public SearchResult(@JsonProperty("answer") String answer, @JsonProperty("postsFound") int postsFound) {
             this.answer = answer;
             this.postsFound = postsFound;
         }
@@ -84,98 +130,117 @@ public class VectorSearchService {
         public String getReasoning() { return reasoning; }
     }
 
+    /**
+     * Progress callbacks for a running search; every method defaults to a no-op
+     */
+    public interface ProgressListener {
+        ProgressListener NONE = new ProgressListener() { };
+
+        /** Pipeline stage (1 discovery, 2 subreddit redirection, 3 focused search) has started */
+        default void onStage(int stage, String description) { }
+
+        /** Next chunk of the LLM answer as Ollama generates it */
+        default void onToken(String token) { }
+
+        /** True once nobody is listening; generation stops early and the partial answer is dropped */
+        default boolean isCancelled() { return false; }
+    }
+
     public String answerQuery(String query, String userSubreddit) {
         return answerQueryWithDetails(query, userSubreddit).getAnswer();
     }
 
     @Cacheable(
-        value = "vectorSearchResults",
-        key = "T(java.util.Objects).hash(#query, #userSubreddit)",
+        value = SEARCH_RESULTS_CACHE,
+        key = "T(com.example.reddisearch.search.SearchKey).of(#query, #userSubreddit).toString()",
         unless = "#result == null || #result.getPostsFound() == 0"
     )
     public SearchResult answerQueryWithDetails(String query, String userSubreddit) {
-        try {
-            if (appConfig.getRateLimitDelayMs() > 0) {
-                Thread.sleep(appConfig.getRateLimitDelayMs());
-            }
+        return runSearch(query, userSubreddit, ProgressListener.NONE);
+    }
 
+    /**
+     * Same pipeline as answerQueryWithDetails, reporting stages and streaming LLM tokens to
+     * the listener as they arrive. Not cached here; the caller decides what to store.
+     */
+    public SearchResult answerQueryStreaming(String query, String userSubreddit, ProgressListener listener) {
+        return runSearch(query, userSubreddit, listener);
+    }
+
+    private SearchResult runSearch(String query, String userSubreddit, ProgressListener listener) {
+        long start = System.nanoTime();
+        SearchMetrics.Outcome outcome = SearchMetrics.Outcome.ERROR;
+        try {
             System.out.println("\n STAGE 1: BROAD DISCOVERY ");
             System.out.println("Query: " + query);
             System.out.println("User-specified subreddit: " + userSubreddit);
+            listener.onStage(1, "Searching Reddit for relevant discussions");
 
             String initialSearchSubreddit = (userSubreddit != null && !userSubreddit.trim().isEmpty())
                 ? userSubreddit.trim().replaceAll("^r/", "")
                 : "all";
 
-            List<RedditPost> initialPosts = redditScraperService.searchRedditPosts(query, 20, initialSearchSubreddit);
+            List<RedditPost> initialPosts = searchMetrics.time(Stage.STAGE1_SCRAPE,
+                () -> retrievePosts(query, 20, initialSearchSubreddit, "Stage 1"));
+            searchMetrics.recordPosts(Stage.STAGE1_SCRAPE, initialPosts.size());
 
-            List<RedditPost> filteredPosts = filterStage1Posts(initialPosts, query);
+            List<RedditPost> filteredPosts = searchMetrics.time(Stage.FILTER, () -> filterStage1Posts(initialPosts, query));
+            searchMetrics.recordPosts(Stage.FILTER, filteredPosts.size());
             System.out.println("[Stage 1] Filtered from " + initialPosts.size() + " to " + filteredPosts.size() + " relevant posts");
 
             if (filteredPosts.isEmpty()) {
                 String fallbackMessage = "Couldn't find any Reddit discussions about this topic. Try rephrasing your question or specify a subreddit.";
                 System.out.println("[Stage 1] No relevant posts found - returning fallback");
+                outcome = SearchMetrics.Outcome.NO_POSTS;
                 return new SearchResult(fallbackMessage, 0);
             }
 
             System.out.println("[Stage 1] Found " + filteredPosts.size() + " relevant posts from broad search");
 
             System.out.println("\n STAGE 2: SUBREDDIT REDIRECTION ");
-            String identifiedSubreddit = analyzePostsForBestSubreddit(filteredPosts, query);
+            listener.onStage(2, "Found " + filteredPosts.size() + " relevant posts, picking the best subreddit");
+            String identifiedSubreddit = searchMetrics.time(Stage.SUBREDDIT_SELECTION,
+                () -> analyzePostsForBestSubreddit(filteredPosts, query));
             System.out.println("[Stage 2] Identified most relevant subreddit: r/" + identifiedSubreddit);
 
             System.out.println("\n STAGE 3: FOCUSED DEEP SEARCH ");
-            List<RedditPost> focusedPosts = redditScraperService.searchRedditPosts(query, 15, identifiedSubreddit);
+            listener.onStage(3, "Searching r/" + identifiedSubreddit + " in depth");
+            List<RedditPost> focusedPosts = searchMetrics.time(Stage.STAGE3_SCRAPE,
+                () -> retrievePosts(query, 15, identifiedSubreddit, "Stage 3"));
+            searchMetrics.recordPosts(Stage.STAGE3_SCRAPE, focusedPosts.size());
             System.out.println("[Stage 3] Found " + focusedPosts.size() + " posts from r/" + identifiedSubreddit);
 
             List<RedditPost> posts = focusedPosts.isEmpty() ? filteredPosts : focusedPosts;
 
-            buildVocabulary(posts, query);
-            Map<String, Double> queryVector = vectorizeText(query);
-            List<DocumentVector> docVectors = new ArrayList<>();
-
-            for (RedditPost post : posts) {
-                Map<String, Double> postVector = postVectorCache.getVector(post.getSubreddit(), post.getTitle());
-
-                if (postVector == null) {
-                    postVector = vectorizeText(post.getCombinedText());
-                    postVectorCache.cacheVector(post.getSubreddit(), post.getTitle(), postVector);
+            List<DocumentVector> docVectors = searchMetrics.time(Stage.VECTORIZATION, () -> {
+                List<SparseVector> postVectors = loadPostVectors(posts);
+                List<DocumentVector> vectors = new ArrayList<>(posts.size());
+                for (int i = 0; i < posts.size(); i++) {
+                    vectors.add(new DocumentVector(posts.get(i), postVectors.get(i)));
                 }
+                return vectors;
+            });
 
-                double magnitude = calculateMagnitude(postVector);
-                docVectors.add(new DocumentVector(post, postVector, magnitude));
-            }
-
-            // Minimal change: keep only top 3 total (less prompt tokens -> faster Ollama)
-            List<DocumentVector> relevantDocs = docVectors.stream()
-                .filter(doc -> doc.getMagnitude() > 0)
-                .sorted((a, b) -> Double.compare(
-                    cosineSimilarity(queryVector, b.getVector(), b.getMagnitude()),
-                    cosineSimilarity(queryVector, a.getVector(), a.getMagnitude())))
-                .limit(3)
-                .collect(Collectors.toList());
+            List<DocumentVector> relevantDocs = searchMetrics.time(Stage.RANKING,
+                () -> rankDocuments(query, identifiedSubreddit, docVectors));
 
             if (relevantDocs.isEmpty()) {
+                outcome = SearchMetrics.Outcome.NO_MATCH;
                 return new SearchResult("Found posts but couldn't match them well to your query. Try rephrasing.", posts.size());
             }
 
-            // Minimal change: shorter snippets in context to reduce prompt size
-            String context = relevantDocs.stream()
-                .map(doc -> String.format(
-                    "Post from r/%s (Score: %d, Comments: %d):\nTitle: %s\nContent: %s\n---",
-                    doc.getPost().getSubreddit(),
-                    doc.getPost().getScore(),
-                    doc.getPost().getComments(),
-                    doc.getPost().getTitle(),
-                    doc.getPost().getContent().length() > 220
-                        ? doc.getPost().getContent().substring(0, 220) + "..."
-                        : doc.getPost().getContent()
-                ))
-                .collect(Collectors.joining("\n\n"));
-
             System.out.println("[Answer] Using top " + relevantDocs.size() + " relevant posts for LLM context");
 
-            String answer = generateAnswerWithMistral(query, context);
+            List<RedditPost> contextPosts = relevantDocs.stream().map(DocumentVector::getPost).collect(Collectors.toList());
+            String answer = answerCache.get(query, contextPosts);
+            if (answer == null) {
+                // Only built on a cache miss: the sentences that answer the query, within the token budget
+                answer = searchMetrics.time(Stage.LLM,
+                    () -> generateAnswerWithMistral(query, contextBuilder.build(query, contextPosts), listener));
+                if (answer != null && !listener.isCancelled()) {
+                    answerCache.put(query, contextPosts, answer);
+                }
+            }
 
             if (answer == null || answer.isEmpty() ||
                 answer.contains("couldn't generate a comprehensive answer") ||
@@ -186,18 +251,119 @@ public class VectorSearchService {
             }
 
             System.out.println("\n ANSWER GENERATED & CACHED \n");
+            outcome = SearchMetrics.Outcome.ANSWERED;
             return new SearchResult(answer, posts.size());
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return new SearchResult("Search was interrupted. Please try again.", 0);
         } catch (Exception e) {
             System.err.println("Error in answerQueryWithDetails: " + e.getMessage());
             e.printStackTrace();
             return new SearchResult("Sorry, I encountered an error while processing your query: " + e.getMessage(), 0);
+        } finally {
+            searchMetrics.recordSearch(start, outcome);
+        }
+    }
+
+    /**
+     * Score the candidates against the query and keep the top 3 (fused with kNN hits when
+     * dense retrieval is on)
+     */
+    private List<DocumentVector> rankDocuments(String query, String subreddit, List<DocumentVector> docVectors) {
+        SparseVector queryVector = vectorizeQuery(query);
+
+        // Minimal change: keep only top 3 total (less prompt tokens -> faster Ollama)
+        boolean denseRanking = embeddingIndex.isEnabled();
+        RelevanceScorer.PreparedQuery scoredQuery = relevanceScorer().prepare(queryVector, localPostIndex);
+        TopK<DocumentVector> topDocs = new TopK<>(denseRanking ? appConfig.getEmbedding().getFusionDepth() : 3);
+        for (DocumentVector doc : docVectors) {
+            if (doc.getMagnitude() > 0) {
+                topDocs.offer(doc, scoredQuery.score(doc.getVector()));
+            }
+        }
+        List<TopK.Scored<DocumentVector>> ranked = topDocs.toSortedList();
+        System.out.println("[Ranking] Top scores: " + ranked.stream()
+            .map(r -> String.format("%.3f", r.getScore()))
+            .collect(Collectors.joining(", ")));
+        if (denseRanking) {
+            return fuseWithDenseRanking(query, subreddit, ranked, 3);
+        }
+        return ranked.stream()
+            .map(TopK.Scored::getItem)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Precompute what a search over these posts needs (term vectors in the local store and
+     * Redis, embeddings if enabled), so background-ingested posts are ranked without any work
+     * on the request path
+     */
+    public void warmPosts(List<RedditPost> posts) {
+        if (posts.isEmpty()) return;
+        loadPostVectors(posts);
+        if (embeddingIndex.isEnabled()) {
+            embeddingIndex.addPosts(posts, LlmScheduler.Priority.BACKGROUND);
         }
     }
 
+    /**
+     * Answer from the local index when it has enough recently scraped matches,
+     * otherwise scrape Reddit (which also feeds the index) and top up with local hits.
+     */
+    private List<RedditPost> retrievePosts(String query, int limit, String subreddit, String stage) {
+        List<RedditPost> indexed = localPostIndex.searchFresh(query, subreddit, limit);
+        if (indexed.size() >= Math.min(limit, appConfig.getIndex().getMinFreshHits())) {
+            System.out.println("[" + stage + "] Served " + indexed.size() + " posts from local index (no Reddit call)");
+            return indexed;
+        }
+
+        List<RedditPost> scraped = redditScraperService.searchRedditPosts(query, limit, subreddit);
+        if (indexed.isEmpty() || scraped.size() >= limit) {
+            return scraped;
+        }
+
+        List<RedditPost> merged = new ArrayList<>(scraped);
+        Set<String> seenUrls = scraped.stream().map(RedditPost::getUrl).collect(Collectors.toSet());
+        for (RedditPost post : indexed) {
+            if (merged.size() >= limit) break;
+            if (seenUrls.add(post.getUrl())) {
+                merged.add(post);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Reciprocal rank fusion of the lexical ranking with kNN hits from the embedding index.
+     * Dense hits can come from anywhere in the local corpus, not just this request's candidates.
+     */
+    private List<DocumentVector> fuseWithDenseRanking(String query, String subreddit,
+                                                      List<TopK.Scored<DocumentVector>> lexical, int limit) {
+        embeddingIndex.addPosts(lexical.stream()
+            .map(scored -> scored.getItem().getPost())
+            .collect(Collectors.toList()));
+        List<EmbeddingIndex.Hit> dense = embeddingIndex.search(query, appConfig.getEmbedding().getFusionDepth(), subreddit);
+
+        Map<String, DocumentVector> docsByUrl = new LinkedHashMap<>();
+        Map<String, Double> fusedScores = new HashMap<>();
+        for (int i = 0; i < lexical.size(); i++) {
+            DocumentVector doc = lexical.get(i).getItem();
+            docsByUrl.put(doc.getPost().getUrl(), doc);
+            fusedScores.merge(doc.getPost().getUrl(), 1.0 / (RRF_K + i + 1), Double::sum);
+        }
+        for (int i = 0; i < dense.size(); i++) {
+            RedditPost post = dense.get(i).getPost();
+            docsByUrl.putIfAbsent(post.getUrl(), new DocumentVector(post, SparseVector.EMPTY));
+            fusedScores.merge(post.getUrl(), 1.0 / (RRF_K + i + 1), Double::sum);
+        }
+
+        TopK<DocumentVector> fused = new TopK<>(limit);
+        docsByUrl.forEach((url, doc) -> fused.offer(doc, fusedScores.get(url)));
+        System.out.println("[Ranking] Fused " + lexical.size() + " lexical and " + dense.size() + " dense candidates");
+
+        return fused.toSortedList().stream()
+            .map(TopK.Scored::getItem)
+            .collect(Collectors.toList());
+    }
+
     private String analyzePostsForBestSubreddit(List<RedditPost> posts, String query) {
         Map<String, Integer> subredditCount = new HashMap<>();
         for (RedditPost post : posts) {
@@ -223,10 +389,21 @@ public class VectorSearchService {
     }
 
     public String generateMistralResponse(String prompt, double temperature, int maxTokens) {
-        return generateOllamaResponse(prompt, temperature, maxTokens);
+        return generateOllamaResponse(prompt, temperature, maxTokens, ProgressListener.NONE);
     }
 
-    private String generateOllamaResponse(String prompt, double temperature, int maxTokens) {
+    /**
+     * Completion from Ollama, or null on failure or when no LLM slot frees up in time (the
+     * caller then synthesizes an answer from the posts). With a listener other than NONE the
+     * request uses Ollama's NDJSON streaming mode and each chunk is forwarded as it is read.
+     */
+    private String generateOllamaResponse(String prompt, double temperature, int maxTokens, ProgressListener listener) {
+        return llmScheduler.call(LlmScheduler.Priority.INTERACTIVE,
+            () -> requestOllamaResponse(prompt, temperature, maxTokens, listener),
+            () -> null);
+    }
+
+    private String requestOllamaResponse(String prompt, double temperature, int maxTokens, ProgressListener listener) {
         try {
             String baseUrl = appConfig.getOllamaBaseUrl();
             String model = appConfig.getOllamaModel();
@@ -238,9 +415,6 @@ public class VectorSearchService {
 
             String url = baseUrl + "/api/generate";
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
             ObjectNode requestBody = objectMapper.createObjectNode();
             requestBody.put("model", model);
             requestBody.put("prompt", prompt);
@@ -249,13 +423,16 @@ public class VectorSearchService {
             // Minimal change: cap generation tokens (faster final query)
             requestBody.put("num_predict", Math.min(maxTokens, 180));
 
+            if (listener != ProgressListener.NONE) {
+                requestBody.put("stream", true);
+                return streamOllamaResponse(url, requestBody.toString(), listener);
+            }
             requestBody.put("stream", false);
 
-            HttpEntity<String> entity = new HttpEntity<>(requestBody.toString(), headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            OutboundHttpClient.Response response = httpClient.postJson(url, requestBody.toString());
 
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                int statusCode = response.getStatusCode().value();
+            if (!response.isSuccessful()) {
+                int statusCode = response.getStatusCode();
                 System.err.println("[Ollama] Error: Status " + statusCode);
                 System.err.println("[Ollama] Make sure Ollama is running: ollama serve");
                 System.err.println("[Ollama] Download model: ollama pull " + model);
@@ -273,7 +450,7 @@ public class VectorSearchService {
             System.out.println("[Ollama] Answer generated successfully (local, no quotas!)");
             return responseText;
 
-        } catch (RestClientException e) {
+        } catch (IOException e) {
             System.err.println("[Ollama] Connection error: " + e.getMessage());
             System.err.println("[Ollama] Make sure Ollama is running: ollama serve");
             return null;
@@ -284,77 +461,107 @@ public class VectorSearchService {
         }
     }
 
-    private void buildVocabulary(List<RedditPost> posts, String query) {
-        vocabulary.clear();
-        Set<String> allWords = new HashSet<>();
-
-        allWords.addAll(extractWords(query));
-
-        for (RedditPost post : posts) {
-            allWords.addAll(extractWords(post.getCombinedText()));
-        }
-
-        int index = 0;
-        for (String word : allWords) {
-            if (!stopWords.contains(word) && word.length() > 2) {
-                vocabulary.put(word, index++);
+    /**
+     * Read /api/generate's NDJSON stream line by line: each line carries a "response" chunk,
+     * the last one has "done": true
+     */
+    private String streamOllamaResponse(String url, String requestBody, ProgressListener listener) throws IOException {
+        // Closing the stream early (error, client gone) abandons the rest of the generation
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                httpClient.postJsonStream(url, requestBody), StandardCharsets.UTF_8))) {
+            StringBuilder text = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                JsonNode chunk = objectMapper.readTree(line);
+                if (chunk.hasNonNull("error")) {
+                    System.err.println("[Ollama] Stream error: " + chunk.get("error").asText());
+                    return null;
+                }
+                String token = chunk.path("response").asText("");
+                if (!token.isEmpty()) {
+                    text.append(token);
+                    listener.onToken(token);
+                }
+                if (listener.isCancelled()) {
+                    System.out.println("[Ollama] Client went away, abandoning generation");
+                    return null;
+                }
+                if (chunk.path("done").asBoolean(false)) break;
             }
+            if (text.length() == 0) {
+                System.err.println("[Ollama] Empty response from model");
+                return null;
+            }
+            System.out.println("[Ollama] Streamed answer generated successfully");
+            return text.toString();
         }
     }
 
-    private Set<String> extractWords(String text) {
-        if (text == null) return new HashSet<>();
-
-        return Arrays.stream(text.toLowerCase()
-                .replaceAll("[^a-zA-Z0-9\\s]", " ")
-                .split("\\s+"))
-                .filter(word -> !word.isEmpty())
-                .collect(Collectors.toSet());
+    private RelevanceScorer relevanceScorer() {
+        RelevanceScorer scorer = scorers.get(appConfig.getRanking().getScorer());
+        return scorer != null ? scorer : scorers.get("bm25");
     }
 
-    private Map<String, Double> vectorizeText(String text) {
-        Map<String, Double> vector = new HashMap<>();
-        Map<String, Integer> wordCount = new HashMap<>();
-
-        Set<String> words = extractWords(text);
-        for (String word : words) {
-            if (vocabulary.containsKey(word)) {
-                wordCount.put(word, wordCount.getOrDefault(word, 0) + 1);
-            }
+    /**
+     * Term vectors for the posts, in order: local off-heap tier first, then one MGET against
+     * the shared Redis cache, then vectorize what is left and write it back in one pipeline
+     */
+    private List<SparseVector> loadPostVectors(List<RedditPost> posts) {
+        List<SparseVector> vectors = new ArrayList<>(posts.size());
+        List<Integer> remoteLookups = new ArrayList<>();
+        for (RedditPost post : posts) {
+            SparseVector local = termVectorStore.get(localPostIndex.docIdOf(post), post.getContentHash());
+            if (local == null) remoteLookups.add(vectors.size());
+            vectors.add(local);
         }
-
-        int totalWords = wordCount.values().stream().mapToInt(Integer::intValue).sum();
-        if (totalWords == 0) return vector;
-
-        for (Map.Entry<String, Integer> entry : wordCount.entrySet()) {
-            double tf = (double) entry.getValue() / totalWords;
-            vector.put(entry.getKey(), tf);
+        if (remoteLookups.isEmpty()) return vectors;
+
+        List<RedditPost> remotePosts = new ArrayList<>(remoteLookups.size());
+        for (int position : remoteLookups) remotePosts.add(posts.get(position));
+        List<SparseVector> cached = postVectorCache.getVectors(remotePosts);
+
+        Map<RedditPost, SparseVector> computed = new LinkedHashMap<>();
+        for (int i = 0; i < remoteLookups.size(); i++) {
+            RedditPost post = remotePosts.get(i);
+            SparseVector vector = cached.get(i);
+            if (vector == null) {
+                vector = vectorizeText(post.getCombinedText());
+                computed.put(post, vector);
+            }
+            termVectorStore.put(localPostIndex.docIdOf(post), post.getContentHash(), vector);
+            vectors.set(remoteLookups.get(i), vector);
         }
-
-        return vector;
+        postVectorCache.cacheVectors(computed);
+        return vectors;
     }
 
-    private double calculateMagnitude(Map<String, Double> vector) {
-        return Math.sqrt(vector.values().stream()
-                .mapToDouble(val -> val * val)
-                .sum());
+    /**
+     * Raw term-frequency vector of a post, interning new terms into the global dictionary.
+     * Weighting (IDF, length normalisation) is left to the RelevanceScorer at query time,
+     * so cached vectors stay valid as corpus statistics change.
+     * Only reads and appends shared state, so concurrent requests can vectorize freely.
+     */
+    private SparseVector vectorizeText(String text) {
+        return vectorize(text, true);
     }
 
-    private double cosineSimilarity(Map<String, Double> vectorA, Map<String, Double> vectorB, double magnitudeB) {
-        if (vectorA.isEmpty() || vectorB.isEmpty()) return 0.0;
-
-        double dotProduct = 0.0;
-        for (Map.Entry<String, Double> entry : vectorA.entrySet()) {
-            String word = entry.getKey();
-            if (vectorB.containsKey(word)) {
-                dotProduct += entry.getValue() * vectorB.get(word);
-            }
-        }
+    /**
+     * Vectorize a query without growing the dictionary; unknown terms cannot match any post anyway
+     */
+    private SparseVector vectorizeQuery(String text) {
+        return vectorize(text, false);
+    }
 
-        double magnitudeA = calculateMagnitude(vectorA);
-        if (magnitudeA == 0.0 || magnitudeB == 0.0) return 0.0;
+    private SparseVector vectorize(String text, boolean internNewTerms) {
+        Tokenizer.TermIds termIds = tokenizer.termIds(text, termDictionary, internNewTerms);
+        int count = termIds.size();
+        if (count == 0) return SparseVector.EMPTY;
 
-        return dotProduct / (magnitudeA * magnitudeB);
+        // Duplicate term ids are summed into counts by SparseVector.of, which copies the buffer
+        float[] weights = new float[count];
+        Arrays.fill(weights, 1.0f);
+        return SparseVector.of(termIds.ids(), weights, count);
     }
 
     private List<RedditPost> filterStage1Posts(List<RedditPost> posts, String query) {
@@ -362,29 +569,33 @@ public class VectorSearchService {
             return posts;
         }
 
-        String queryLower = query.toLowerCase();
-        String[] topicWords = queryLower
-            .replaceAll("[^a-z0-9\\s]", " ")
-            .split("\\s+");
-
-        List<String> significantWords = new ArrayList<>();
-        for (String word : topicWords) {
-            if (word.length() > 3 && !stopWords.contains(word)) {
-                significantWords.add(word);
-            }
+        List<String> significantWords = tokenizer.terms(query);
+        if (significantWords.isEmpty()) {
+            return posts;
         }
+        int requiredMatches = Math.max(1, significantWords.size() / 2);
 
         return posts.stream()
-            .filter(post -> {
-                String combined = (post.getTitle() + " " + post.getContent()).toLowerCase();
-                long matchCount = significantWords.stream()
-                    .filter(combined::contains)
-                    .count();
-                return matchCount >= Math.max(1, significantWords.size() / 2);
-            })
+            .filter(post -> countMatchedTerms(post.getCombinedText(), significantWords) >= requiredMatches)
             .collect(Collectors.toList());
     }
 
+    /**
+     * How many of the (distinct) terms occur in the text, by term rather than by substring
+     */
+    private int countMatchedTerms(String text, List<String> terms) {
+        boolean[] matched = new boolean[terms.size()];
+        int[] count = {0};
+        tokenizer.forEachTerm(text, term -> {
+            int i = terms.indexOf(term);
+            if (i >= 0 && !matched[i]) {
+                matched[i] = true;
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
     private String synthesizeFallbackAnswer(String query, List<DocumentVector> relevantDocs) {
         if (relevantDocs.isEmpty()) {
             return "No relevant discussions found. Try rephrasing your question or specifying a subreddit.";
@@ -441,12 +652,11 @@ public class VectorSearchService {
         return answer.toString();
     }
 
-    @Cacheable(
-        value = "generatedAnswers",
-        key = "T(java.util.Objects).hash(#query, #context)",
-        unless = "#result == null || #result.isEmpty()"
-    )
-    private String generateAnswerWithMistral(String query, String context) {
+    /**
+     * Ask the LLM for an answer, or null if it is unavailable or returns nothing (the caller
+     * then synthesizes one from the posts). Goes through AnswerCache, so never cached here.
+     */
+    private String generateAnswerWithMistral(String query, String context, ProgressListener listener) {
         try {
             System.out.println("[LLM] Generating answer (not cached)...");
             String prompt = String.format(
@@ -458,25 +668,21 @@ public class VectorSearchService {
                 "Provide a helpful answer based on this Reddit content:",
                 query, context
             );
-            System.out.println("[Timing] Prompt length: " + prompt.length());
+            searchMetrics.recordPromptTokens(TokenEstimator.estimate(prompt));
 
             // Minimal change: fewer tokens for faster local generation
-            String mistralResponse = generateMistralResponse(prompt, 0.7, 320);
+            String mistralResponse = generateOllamaResponse(prompt, 0.7, 320, listener);
 
             if (mistralResponse != null && !mistralResponse.trim().isEmpty()) {
                 System.out.println("[LLM] Answer generation successful");
                 return mistralResponse;
-            } else {
-                System.out.println("[LLM] Returned null/empty, using fallback");
-                return "I found relevant Reddit discussions but couldn't generate a full answer. " +
-                       "Here's a quick summary: " +
-                       context.substring(0, Math.min(280, context.length())) + "...";
             }
+            System.out.println("[LLM] Returned null/empty, using fallback");
+            return null;
 
         } catch (Exception e) {
             System.err.println("Error generating answer: " + e.getMessage());
-            return "I couldn't generate an answer right now. Here's what I found: " +
-                   context.substring(0, Math.min(280, context.length())) + "...";
+            return null;
         }
     }
 }
@@ -0,0 +1,235 @@
+package com.example.reddisearch.answer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.AnswerCacheSettings;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.embedding.OllamaEmbeddingClient;
+import com.example.reddisearch.llm.LlmScheduler;
+import com.example.reddisearch.search.SearchKey;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of generated LLM answers, stored in the "generatedAnswers" Spring cache (L1 + Redis).
+ *
+ * The exact key is the normalized query plus a hash of the sorted URLs of the posts used as
+ * context, so the same question over the same posts never reaches the LLM twice. On an
+ * exact miss, a semantic lookup scans recently stored answers for a near-duplicate
+ * question (query embeddings if app.embedding is enabled, query-term overlap otherwise)
+ * that was answered from mostly the same posts.
+ *
+ * Storing an answer never waits on Ollama: it reuses the query embedding from dense
+ * retrieval when there is one, and otherwise embeds the query in the background at
+ * BACKGROUND priority, matching lexically until that is done.
+ */
+@Component
+public class AnswerCache {
+
+    public static final String CACHE_NAME = "generatedAnswers";
+    private static final String KEY_VERSION = "v1";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private OllamaEmbeddingClient embeddingClient;
+
+    // Recently stored answers for the semantic lookup, oldest first
+    private final ArrayDeque<Entry> recent = new ArrayDeque<>();
+
+    // Embeds stored queries off the request thread; when it falls behind, entries stay lexical
+    private final ThreadPoolExecutor embeddingExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(32), r -> {
+            Thread t = new Thread(r, "answer-cache-embed");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private static final class Entry {
+        final String key;
+        final Set<String> queryTerms;
+        // Null until the background embedding arrives, if it has to be computed
+        volatile float[] queryEmbedding;
+        final Set<String> postUrls;
+
+        Entry(String key, Set<String> queryTerms, float[] queryEmbedding, Set<String> postUrls) {
+            this.key = key;
+            this.queryTerms = queryTerms;
+            this.queryEmbedding = queryEmbedding;
+            this.postUrls = postUrls;
+        }
+    }
+
+    /**
+     * Cached answer for the query over these context posts, or null
+     */
+    public String get(String query, List<RedditPost> contextPosts) {
+        String key = key(query, contextPosts);
+        String answer = read(key);
+        if (answer != null) {
+            System.out.println("[AnswerCache] Exact hit");
+            return answer;
+        }
+        return appConfig.getAnswerCache().isSemanticEnabled() ? findSimilar(query, contextPosts) : null;
+    }
+
+    public void put(String query, List<RedditPost> contextPosts, String answer) {
+        String key = key(query, contextPosts);
+        try {
+            cache().put(key, answer);
+        } catch (RuntimeException e) {
+            System.err.println("[AnswerCache] Error storing answer: " + e.getMessage());
+            return;
+        }
+        if (appConfig.getAnswerCache().isSemanticEnabled()) {
+            boolean embeddings = appConfig.getEmbedding().isEnabled();
+            Entry entry = new Entry(key, terms(query), embeddings ? embeddingClient.cachedQueryEmbedding(query) : null,
+                urls(contextPosts));
+            remember(entry);
+            if (embeddings && entry.queryEmbedding == null) {
+                embeddingExecutor.execute(() -> {
+                    List<float[]> embedding = embeddingClient.embed(List.of(query), LlmScheduler.Priority.BACKGROUND);
+                    if (embedding != null && !embedding.isEmpty()) {
+                        entry.queryEmbedding = embedding.get(0);
+                    }
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        embeddingExecutor.shutdownNow();
+    }
+
+    static String key(String query, List<RedditPost> contextPosts) {
+        List<String> sortedUrls = new ArrayList<>(urls(contextPosts));
+        Collections.sort(sortedUrls);
+
+        // 64-bit FNV-1a over the sorted URLs keeps keys short but collision-safe in practice
+        long hash = 0xcbf29ce484222325L;
+        for (String url : sortedUrls) {
+            for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            hash ^= '\n';
+            hash *= 0x100000001b3L;
+        }
+        return KEY_VERSION + ":" + SearchKey.normalizeQuery(query) + ":" + Long.toHexString(hash);
+    }
+
+    private String findSimilar(String query, List<RedditPost> contextPosts) {
+        AnswerCacheSettings settings = appConfig.getAnswerCache();
+        Set<String> postUrls = urls(contextPosts);
+        Set<String> queryTerms = terms(query);
+        float[] queryEmbedding = null;
+        boolean embedded = false;
+
+        List<Entry> candidates;
+        synchronized (recent) {
+            candidates = new ArrayList<>(recent);
+        }
+
+        Entry best = null;
+        double bestSimilarity = 0;
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            Entry entry = candidates.get(i);
+            if (jaccard(postUrls, entry.postUrls) < settings.getMinPostOverlap()) continue;
+            float[] entryEmbedding = entry.queryEmbedding;
+            if (!embedded && entryEmbedding != null) {
+                // Only pay for an embedding once some entry shares enough context posts
+                queryEmbedding = embed(query);
+                embedded = true;
+            }
+
+            double similarity;
+            double threshold;
+            if (queryEmbedding != null && entryEmbedding != null && queryEmbedding.length == entryEmbedding.length) {
+                similarity = cosine(queryEmbedding, entryEmbedding);
+                threshold = settings.getSimilarityThreshold();
+            } else {
+                similarity = jaccard(queryTerms, entry.queryTerms);
+                threshold = settings.getLexicalThreshold();
+            }
+            if (similarity >= threshold && similarity > bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+        if (best == null) return null;
+
+        String answer = read(best.key);
+        if (answer != null) {
+            System.out.println("[AnswerCache] Semantic hit (similarity " + String.format("%.3f", bestSimilarity) + ")");
+        }
+        return answer;
+    }
+
+    private void remember(Entry entry) {
+        synchronized (recent) {
+            recent.removeIf(e -> e.key.equals(entry.key));
+            recent.addLast(entry);
+            while (recent.size() > appConfig.getAnswerCache().getSemanticEntries()) {
+                recent.removeFirst();
+            }
+        }
+    }
+
+    private String read(String key) {
+        try {
+            return cache().get(key, String.class);
+        } catch (RuntimeException e) {
+            System.err.println("[AnswerCache] Error reading answer: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CACHE_NAME);
+    }
+
+    private float[] embed(String query) {
+        return appConfig.getEmbedding().isEnabled() ? embeddingClient.embedQuery(query) : null;
+    }
+
+    private static Set<String> terms(String query) {
+        String normalized = SearchKey.normalizeQuery(query);
+        return normalized.isEmpty() ? Collections.emptySet() : new HashSet<>(Arrays.asList(normalized.split(" ")));
+    }
+
+    private static Set<String> urls(List<RedditPost> posts) {
+        Set<String> urls = new HashSet<>();
+        for (RedditPost post : posts) urls.add(post.getUrl());
+        return urls;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) return 1.0;
+        int shared = 0;
+        for (String s : a) if (b.contains(s)) shared++;
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+}
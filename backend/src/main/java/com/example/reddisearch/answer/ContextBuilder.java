@@ -0,0 +1,194 @@
+package com.example.reddisearch.answer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.ContextSettings;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.index.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the Reddit-posts section of the answer prompt within a token budget.
+ *
+ * Each post's content is split into sentences, and every sentence is scored by the query
+ * terms it contains (denser sentences first, the post's rank as a tiebreak). Sentences are
+ * then taken greedily, best first, while they fit in app.context.max-tokens. A post's
+ * header and title are charged when its first sentence is taken. Spans whose terms mostly
+ * repeat an already chosen span (quotes, cross-posts, "+1 this") are skipped. The chosen
+ * sentences are printed in their original order, with "..." over the gaps.
+ */
+@Component
+public class ContextBuilder {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private Tokenizer tokenizer;
+
+    // The opening sentence usually says what the post is about, even without a query match
+    private static final double LEAD_BONUS = 0.2;
+    private static final double RANK_DECAY = 0.15;
+
+    private static final class Span {
+        final int post;
+        final int index;
+        final String text;
+        final Set<String> terms;
+        final int tokens;
+        final double score;
+
+        Span(int post, int index, String text, Set<String> terms, int tokens, double score) {
+            this.post = post;
+            this.index = index;
+            this.text = text;
+            this.terms = terms;
+            this.tokens = tokens;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Context for the posts (in rank order); never more than the budget by the estimate
+     */
+    public String build(String query, List<RedditPost> posts) {
+        ContextSettings settings = appConfig.getContext();
+        List<String> queryTerms = tokenizer.terms(query);
+
+        List<Span> candidates = new ArrayList<>();
+        for (int p = 0; p < posts.size(); p++) {
+            List<String> sentences = splitSentences(posts.get(p).getContent());
+            for (int s = 0; s < sentences.size(); s++) {
+                String text = clip(sentences.get(s), settings.getMaxSpanTokens());
+                Set<String> terms = new HashSet<>(tokenizer.terms(text));
+                double score = score(terms, queryTerms, s, p);
+                if (score > 0) {
+                    candidates.add(new Span(p, s, text, terms, TokenEstimator.estimate(text), score));
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingDouble((Span span) -> span.score).reversed()
+            .thenComparingInt(span -> span.post)
+            .thenComparingInt(span -> span.index));
+
+        int remaining = settings.getMaxTokens();
+        String[] headers = new String[posts.size()];
+        List<List<Span>> chosen = new ArrayList<>();
+        for (int p = 0; p < posts.size(); p++) {
+            headers[p] = header(posts.get(p));
+            chosen.add(new ArrayList<>());
+        }
+        List<Span> selected = new ArrayList<>();
+        for (Span span : candidates) {
+            boolean opened = !chosen.get(span.post).isEmpty();
+            int cost = span.tokens + 1 + (opened ? 0 : TokenEstimator.estimate(headers[span.post]) + 2);
+            if (cost > remaining || isNearDuplicate(span, selected, settings.getDuplicateSimilarity())) continue;
+            chosen.get(span.post).add(span);
+            selected.add(span);
+            remaining -= cost;
+        }
+
+        List<String> blocks = new ArrayList<>();
+        for (int p = 0; p < posts.size(); p++) {
+            List<Span> spans = chosen.get(p);
+            if (spans.isEmpty()) {
+                // Link and title-only posts still count if their title fits
+                int cost = TokenEstimator.estimate(headers[p]) + 2;
+                if (cost > remaining) continue;
+                remaining -= cost;
+            }
+            spans.sort(Comparator.comparingInt(span -> span.index));
+            blocks.add(headers[p] + joinSpans(spans) + "\n---");
+        }
+        System.out.println("[Context] " + selected.size() + " of " + candidates.size() + " sentences from "
+            + blocks.size() + " posts, ~" + (settings.getMaxTokens() - remaining) + "/" + settings.getMaxTokens() + " tokens");
+        return String.join("\n\n", blocks);
+    }
+
+    private static String header(RedditPost post) {
+        return String.format("Post from r/%s (Score: %d, Comments: %d):\nTitle: %s\nContent: ",
+            post.getSubreddit(), post.getScore(), post.getComments(), post.getTitle());
+    }
+
+    /**
+     * Query terms matched per sqrt(length), so a short sentence that answers the question
+     * beats a long one that mentions a term in passing
+     */
+    private static double score(Set<String> terms, List<String> queryTerms, int index, int postRank) {
+        if (terms.isEmpty()) return 0;
+        int matched = 0;
+        for (String term : queryTerms) {
+            if (terms.contains(term)) matched++;
+        }
+        double score = matched / Math.sqrt(terms.size()) + (index == 0 ? LEAD_BONUS : 0);
+        return score / (1 + RANK_DECAY * postRank);
+    }
+
+    private static boolean isNearDuplicate(Span span, List<Span> selected, double threshold) {
+        for (Span other : selected) {
+            int shared = 0;
+            for (String term : span.terms) {
+                if (other.terms.contains(term)) shared++;
+            }
+            int union = span.terms.size() + other.terms.size() - shared;
+            if (union > 0 && (double) shared / union >= threshold) return true;
+        }
+        return false;
+    }
+
+    private static String joinSpans(List<Span> spans) {
+        StringBuilder text = new StringBuilder();
+        int previous = -1;
+        for (Span span : spans) {
+            if (text.length() > 0) text.append(span.index == previous + 1 ? " " : " ... ");
+            else if (span.index > 0) text.append("... ");
+            text.append(span.text);
+            previous = span.index;
+        }
+        return text.toString();
+    }
+
+    /**
+     * Sentences end at . ! or ? followed by whitespace, and at line breaks
+     */
+    static List<String> splitSentences(String content) {
+        List<String> sentences = new ArrayList<>();
+        if (content == null) return sentences;
+        int start = 0;
+        int n = content.length();
+        for (int i = 0; i < n; i++) {
+            char c = content.charAt(i);
+            boolean end = c == '\n'
+                || ((c == '.' || c == '!' || c == '?') && (i + 1 == n || Character.isWhitespace(content.charAt(i + 1))));
+            if (end) {
+                addSentence(sentences, content, start, i + 1);
+                start = i + 1;
+            }
+        }
+        addSentence(sentences, content, start, n);
+        return sentences;
+    }
+
+    private static void addSentence(List<String> sentences, String content, int start, int end) {
+        String sentence = content.substring(start, end).strip();
+        if (!sentence.isEmpty()) sentences.add(sentence);
+    }
+
+    /**
+     * Cut an over-long "sentence" (walls of text without punctuation) at a word boundary
+     */
+    private static String clip(String sentence, int maxTokens) {
+        if (TokenEstimator.estimate(sentence) <= maxTokens) return sentence;
+        int cut = Math.min(sentence.length(), maxTokens * 4);
+        while (cut > 0 && TokenEstimator.estimate(sentence.substring(0, cut)) > maxTokens - 1) {
+            cut = sentence.lastIndexOf(' ', cut - 1);
+        }
+        return cut > 0 ? sentence.substring(0, cut) + "..." : sentence.substring(0, Math.min(sentence.length(), maxTokens * 2)) + "...";
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.reddisearch.answer;
+
+/**
+ * Approximate LLM token counts without loading a vocabulary. Mirrors how BPE tokenizers
+ * (Llama/Mistral SentencePiece, GPT tiktoken) split text: a common word with its leading
+ * space is one token, longer words cost about one token per five letters, digits are
+ * grouped in threes, punctuation and symbols are a token each, and characters outside
+ * the Latin range cost one token each (CJK) or per two letters (other alphabets).
+ * Meant for budgeting, not billing: it is deliberately simple and a little conservative.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        if (text == null) return 0;
+        int tokens = 0;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                // Single spaces merge into the next word; newlines and runs of spaces do not
+                if (c == '\n' || (i + 1 < n && Character.isWhitespace(text.charAt(i + 1)))) tokens++;
+                i++;
+            } else if (isAsciiLetter(c)) {
+                int start = i;
+                while (i < n && isAsciiLetter(text.charAt(i))) i++;
+                int length = i - start;
+                tokens += length <= 6 ? 1 : (length + 4) / 5;
+            } else if (c >= '0' && c <= '9') {
+                int start = i;
+                while (i < n && text.charAt(i) >= '0' && text.charAt(i) <= '9') i++;
+                tokens += (i - start + 2) / 3;
+            } else if (c < 128) {
+                tokens++;
+                i++;
+            } else {
+                int cp = Character.codePointAt(text, i);
+                i += Character.charCount(cp);
+                if (Character.isIdeographic(cp) || !Character.isLetter(cp)) {
+                    tokens++;
+                } else {
+                    // Accented and non-Latin letters: roughly two per token
+                    int start = i;
+                    while (i < n && text.charAt(i) >= 128 && Character.isLetter(text.charAt(i))
+                            && !Character.isIdeographic(text.charAt(i))) i++;
+                    tokens += 1 + (i - start) / 2;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
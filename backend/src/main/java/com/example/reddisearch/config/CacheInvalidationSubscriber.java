@@ -0,0 +1,89 @@
+package com.example.reddisearch.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+
+import jakarta.annotation.PreDestroy;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Subscribes the two-level cache manager to L1 invalidations from other instances. The
+ * listener container is managed here rather than as a bean, because a container bean
+ * fails context startup when Redis is down; instead the subscription is retried in the
+ * background. Until it succeeds, this instance's L1 can serve entries another instance
+ * has replaced, for at most the L1 TTL.
+ */
+@Component
+public class CacheInvalidationSubscriber {
+
+    private static final long RETRY_DELAY_MS = 30_000;
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private volatile RedisMessageListenerContainer container;
+    private volatile Thread subscriber;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        if (!(cacheManager instanceof TwoLevelCacheManager twoLevel)) return;
+
+        subscriber = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                RedisMessageListenerContainer attempt = new RedisMessageListenerContainer();
+                try {
+                    attempt.setConnectionFactory(connectionFactory);
+                    attempt.addMessageListener(
+                        (message, pattern) -> twoLevel.handleInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                        new ChannelTopic(appConfig.getCache().getInvalidationChannel()));
+                    attempt.afterPropertiesSet();
+                    attempt.start();
+                    container = attempt;
+                    System.out.println("[Cache] Subscribed to L1 invalidations");
+                    return;
+                } catch (Exception e) {
+                    System.err.println("[Cache] Invalidation subscription failed, retrying in "
+                        + RETRY_DELAY_MS / 1000 + "s: " + e.getMessage());
+                    destroy(attempt);
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "cache-invalidation-subscriber");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    @PreDestroy
+    public void close() {
+        Thread t = subscriber;
+        if (t != null) t.interrupt();
+        RedisMessageListenerContainer c = container;
+        if (c != null) destroy(c);
+    }
+
+    private static void destroy(RedisMessageListenerContainer container) {
+        try {
+            container.destroy();
+        } catch (Exception e) {
+            System.err.println("[Cache] Error stopping invalidation listener: " + e.getMessage());
+        }
+    }
+}
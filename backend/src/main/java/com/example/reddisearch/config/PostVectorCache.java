@@ -1,98 +1,295 @@
 package com.example.reddisearch.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.index.TermDictionary;
+import com.example.reddisearch.index.Tokenizer;
+import com.example.reddisearch.vector.SparseVector;
+import com.example.reddisearch.vector.SparseVectorCodec;
+
+import jakarta.annotation.PostConstruct;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Redis-backed cache for post vectors to avoid recomputation.
  * Stores vectorized representations of Reddit posts with configurable TTL.
+ * Vectors are keyed by term id, so keys are scoped by the TermDictionary namespace.
+ * Each key ends in the post's content hash, so an edited post never reads the vector
+ * of its earlier text.
+ * The batch methods read with one MGET and write with one pipelined round of SET ... EX.
+ * Values use SparseVectorCodec; JSON entries written by older versions are still read.
+ *
+ * Size is estimated without touching the keyspace: every write also adds its key to an
+ * hourly HyperLogLog bucket that outlives the vector TTL, and the size is the PFCOUNT
+ * union of the last 24 buckets. Clearing walks the keyspace with SCAN and UNLINKs in batches.
  */
 @Component
 public class PostVectorCache {
     
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private RedisTemplate<String, byte[]> redisTemplate;
+    
+    @Autowired
+    private TermDictionary termDictionary;
+    
+    @Autowired
+    private Tokenizer tokenizer;
     
     private final ObjectMapper objectMapper = new ObjectMapper();
     private static final String CACHE_PREFIX = "post_vector:";
+    // Bumped whenever the meaning of cached weights or of the key changes
+    // (v2: raw term counts, v3: keyed by content hash)
+    private static final String VECTOR_VERSION = "v3";
     private static final long CACHE_TTL_HOURS = 24;
+    private static final String SIZE_SKETCH_PREFIX = "post_vector_hll:";
+    private static final int SCAN_BATCH = 500;
+    private static final long SIZE_REFRESH_MILLIS = 30_000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter hits;
+    private Counter misses;
+
+    // Last PFCOUNT result; refreshed in the background when a scrape finds it stale
+    private final AtomicLong estimatedSize = new AtomicLong();
+    private volatile long sizeRefreshedAt;
+    private final AtomicBoolean sizeRefreshing = new AtomicBoolean(false);
+    private final ExecutorService statsExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "post-vector-cache-stats");
+        t.setDaemon(true);
+        return t;
+    });
+    
+    /**
+     * Legacy JSON shape of a cached vector: parallel arrays sorted by term id
+     */
+    static class CachedVector {
+        public int[] ids;
+        public float[] weights;
+    }
+    
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("reddisearch.vector.cache.size", this, PostVectorCache::cachedSizeEstimate)
+            .description("Approximate number of post vectors cached in Redis")
+            .register(meterRegistry);
+        hits = lookups("hit");
+        misses = lookups("miss");
+    }
+    
+    private Counter lookups(String result) {
+        return Counter.builder("reddisearch.vector.cache.lookups")
+            .description("Post vectors looked up in Redis; failed lookups count as misses")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
     
     /**
-     * Generate a unique key for a post based on its subreddit and title
+     * Cached ids are only meaningful for this dictionary and these tokenizer settings
      */
-    private String generatePostKey(String subreddit, String title) {
-        int hash = Objects.hash(subreddit, title);
-        return CACHE_PREFIX + Math.abs(hash);
+    private String vectorScope() {
+        return termDictionary.getNamespace() + ":" + tokenizer.signature();
+    }
+    
+    /**
+     * Generate a unique key for a post based on its URL and text
+     */
+    private String generatePostKey(RedditPost post) {
+        return CACHE_PREFIX + VECTOR_VERSION + ":" + vectorScope() + ":" + Long.toHexString(post.getContentHash());
     }
     
     /**
      * Store a post vector in Redis with TTL
      */
-    @SuppressWarnings("null")
-    public void cacheVector(String subreddit, String title, Map<String, Double> vector) {
+    public void cacheVector(RedditPost post, SparseVector vector) {
+        writeVectors(Collections.singletonMap(generatePostKey(post), vector));
+    }
+    
+    /**
+     * Store many post vectors in one pipelined round trip
+     */
+    public void cacheVectors(Map<RedditPost, SparseVector> vectors) {
+        Map<String, SparseVector> byKey = new LinkedHashMap<>();
+        vectors.forEach((post, vector) -> byKey.put(generatePostKey(post), vector));
+        writeVectors(byKey);
+    }
+    
+    /**
+     * SET ... EX for each vector plus the PFADD that tracks cache size, all in one pipeline
+     */
+    private void writeVectors(Map<String, SparseVector> vectors) {
+        if (vectors.isEmpty()) return;
         try {
-            String key = generatePostKey(subreddit, title);
-            String vectorJson = objectMapper.writeValueAsString(vector);
-            if (redisTemplate.hasKey(key)) {
-                redisTemplate.delete(key);
-            }
-            Boolean result = redisTemplate.opsForValue().setIfAbsent(key, vectorJson);
-            if (Boolean.TRUE.equals(result)) {
-                redisTemplate.expire(key, CACHE_TTL_HOURS, TimeUnit.HOURS);
-            }
+            RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+            Map<byte[], byte[]> entries = new LinkedHashMap<>();
+            vectors.forEach((key, vector) -> entries.put(serializer.serialize(key), SparseVectorCodec.encode(vector)));
+
+            Expiration ttl = Expiration.from(CACHE_TTL_HOURS, TimeUnit.HOURS);
+            byte[] sketch = serializer.serialize(sizeSketchKey(System.currentTimeMillis()));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                entries.forEach((key, value) -> connection.stringCommands().set(key, value, ttl, SetOption.upsert()));
+                connection.hyperLogLogCommands().pfAdd(sketch, entries.keySet().toArray(new byte[0][]));
+                connection.keyCommands().expire(sketch, TimeUnit.HOURS.toSeconds(CACHE_TTL_HOURS + 1));
+                return null;
+            });
         } catch (Exception e) {
-            System.err.println("Error caching vector: " + e.getMessage());
+            System.err.println("Error caching vectors: " + e.getMessage());
         }
     }
     
     /**
      * Retrieve a cached vector from Redis, returns null if not found
      */
-    @SuppressWarnings("null")
-    public Map<String, Double> getVector(String subreddit, String title) {
+    public SparseVector getVector(RedditPost post) {
+        SparseVector vector = null;
         try {
-            String key = generatePostKey(subreddit, title);
-            String vectorJson = redisTemplate.opsForValue().get(key);
-            if (vectorJson != null && !vectorJson.isEmpty()) {
-                TypeReference<Map<String, Double>> typeRef = new TypeReference<Map<String, Double>>() {};
-                return objectMapper.readValue(vectorJson, typeRef);
-            }
+            vector = decode(redisTemplate.opsForValue().get(generatePostKey(post)));
         } catch (Exception e) {
             System.err.println("Error retrieving cached vector: " + e.getMessage());
         }
-        return null;
+        (vector != null ? hits : misses).increment();
+        return vector;
     }
     
     /**
-     * Clear all cached vectors (useful for testing)
+     * Retrieve cached vectors for many posts with one MGET. The result lines up with the
+     * input; misses (or every entry, if Redis is unavailable) are null.
      */
-    public void clearAll() {
+    public List<SparseVector> getVectors(List<RedditPost> posts) {
+        List<SparseVector> vectors = new ArrayList<>(Collections.nCopies(posts.size(), (SparseVector) null));
+        if (posts.isEmpty()) return vectors;
+        try {
+            List<String> keys = new ArrayList<>(posts.size());
+            for (RedditPost post : posts) {
+                keys.add(generatePostKey(post));
+            }
+            List<byte[]> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values != null) {
+                for (int i = 0; i < values.size(); i++) {
+                    vectors.set(i, decode(values.get(i)));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error retrieving cached vectors: " + e.getMessage());
+        }
+        int found = (int) vectors.stream().filter(Objects::nonNull).count();
+        hits.increment(found);
+        misses.increment(posts.size() - found);
+        return vectors;
+    }
+    
+    private SparseVector decode(byte[] value) {
+        if (value == null || value.length == 0) return null;
         try {
-            Set<String> keys = redisTemplate.keys(CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
+            if (value[0] == '{') {
+                CachedVector cached = objectMapper.readValue(value, CachedVector.class);
+                return SparseVector.ofSorted(cached.ids, cached.weights);
             }
+            return SparseVectorCodec.decode(value);
+        } catch (Exception e) {
+            System.err.println("Error decoding cached vector: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Hourly HyperLogLog bucket that keys written at the given time are counted in
+     */
+    private String sizeSketchKey(long timeMillis) {
+        return SIZE_SKETCH_PREFIX + VECTOR_VERSION + ":" + vectorScope() + ":" + TimeUnit.MILLISECONDS.toHours(timeMillis);
+    }
+    
+    /**
+     * Clear all cached vectors (useful for testing). Walks the keyspace with SCAN and
+     * UNLINKs in batches, so Redis is never blocked for the whole keyspace.
+     */
+    public void clearAll() {
+        try {
+            long removed = redisTemplate.execute((RedisCallback<Long>) connection ->
+                unlinkMatching(connection, CACHE_PREFIX + "*") + unlinkMatching(connection, SIZE_SKETCH_PREFIX + "*"));
+            estimatedSize.set(0);
+            System.out.println("[VectorCache] Cleared " + removed + " keys");
         } catch (Exception e) {
             System.err.println("Error clearing vector cache: " + e.getMessage());
         }
     }
     
+    private static long unlinkMatching(RedisConnection connection, String pattern) {
+        long removed = 0;
+        List<byte[]> batch = new ArrayList<>(SCAN_BATCH);
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH).build();
+        try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == SCAN_BATCH) {
+                    removed += unlink(connection, batch);
+                }
+            }
+        }
+        return removed + unlink(connection, batch);
+    }
+    
+    private static long unlink(RedisConnection connection, List<byte[]> batch) {
+        if (batch.isEmpty()) return 0;
+        Long removed = connection.keyCommands().unlink(batch.toArray(new byte[0][]));
+        batch.clear();
+        return removed != null ? removed : 0;
+    }
+    
     /**
-     * Get cache statistics
+     * Approximate number of vectors cached in the last TTL window (HyperLogLog, ~0.8% error)
      */
     public int getCacheSize() {
         try {
-            Set<String> keys = redisTemplate.keys(CACHE_PREFIX + "*");
-            return keys != null ? keys.size() : 0;
+            long now = System.currentTimeMillis();
+            String[] buckets = new String[(int) CACHE_TTL_HOURS];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = sizeSketchKey(now - TimeUnit.HOURS.toMillis(i));
+            }
+            Long size = redisTemplate.opsForHyperLogLog().size(buckets);
+            estimatedSize.set(size != null ? size : 0);
+            sizeRefreshedAt = now;
+            return (int) estimatedSize.get();
         } catch (Exception e) {
             System.err.println("Error getting cache size: " + e.getMessage());
             return 0;
         }
     }
+    
+    /**
+     * Gauge value: never blocks a metrics scrape on Redis, a stale estimate is refreshed in the background
+     */
+    private double cachedSizeEstimate() {
+        if (System.currentTimeMillis() - sizeRefreshedAt > SIZE_REFRESH_MILLIS && sizeRefreshing.compareAndSet(false, true)) {
+            statsExecutor.execute(() -> {
+                try {
+                    getCacheSize();
+                } finally {
+                    sizeRefreshedAt = System.currentTimeMillis();
+                    sizeRefreshing.set(false);
+                }
+            });
+        }
+        return estimatedSize.get();
+    }
 }
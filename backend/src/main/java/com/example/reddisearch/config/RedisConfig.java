@@ -5,11 +5,17 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.*;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.CacheSettings;
+import com.example.reddisearch.VectorSearchService;
+import com.example.reddisearch.answer.AnswerCache;
 
 import java.time.Duration;
 
@@ -43,16 +49,53 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Raw byte values under String keys, for entries with their own binary encoding
+     */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, byte[]> binaryRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * Spring cache: Redis as the shared L2, wrapped with a per-instance Caffeine L1 unless
+     * app.cache.l1-enabled is false. Values carry their type so hits deserialize to the
+     * cached class rather than a Map. Without L1, Redis cache statistics are bound to the
+     * meter registry by Spring Boot for the caches declared here.
+     */
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, AppConfig appConfig,
+                                     StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+        CacheSettings settings = appConfig.getCache();
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-            .entryTtl(Duration.ofMinutes(10)) // default TTL 10 minutes
+            .entryTtl(Duration.ofMinutes(settings.getL2TtlMinutes()))
+            // v2: typed JSON values; entries written untyped by older versions are never read
+            .computePrefixWith(cacheName -> cacheName + ":v2::")
             .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-            .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new Jackson2JsonRedisSerializer<>(Object.class)));
+            .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                .withCacheConfiguration(VectorSearchService.SEARCH_RESULTS_CACHE, config)
+                .withCacheConfiguration(AnswerCache.CACHE_NAME,
+                    config.entryTtl(Duration.ofMinutes(appConfig.getAnswerCache().getTtlMinutes())))
                 .transactionAware()
+                .enableStatistics()
                 .build();
+        redisCacheManager.afterPropertiesSet();
+        if (!settings.isL1Enabled()) {
+            return redisCacheManager;
+        }
+
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, settings);
+        cacheManager.setMeterRegistry(meterRegistry);
+        cacheManager.setInvalidationPublisher(message ->
+            stringRedisTemplate.convertAndSend(settings.getInvalidationChannel(), message));
+        return cacheManager;
     }
 }
@@ -0,0 +1,196 @@
+package com.example.reddisearch.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * A Spring Cache that checks a bounded in-process L1 (Caffeine, W-TinyLFU eviction) before
+ * the shared L2 (Redis). L2 hits are copied into L1; writes and evictions go to both tiers
+ * and are announced so other instances drop their now-stale L1 entry.
+ *
+ * L1 is keyed by the key's string form, matching how RedisCache builds its keys, so an
+ * invalidation message can name the key. L2 failures are logged and treated as misses.
+ * Lookups are counted per tier as reddisearch.cache.gets: an L1 miss goes on to L2.
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> l1;
+    private final Cache l2;
+    // Receives the key that changed, or null when the whole cache was cleared
+    private final Consumer<String> invalidationPublisher;
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> l1, Cache l2,
+                         Consumer<String> invalidationPublisher, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.invalidationPublisher = invalidationPublisher;
+        this.l1Hits = gets(meterRegistry, "l1", "hit");
+        this.l1Misses = gets(meterRegistry, "l1", "miss");
+        this.l2Hits = gets(meterRegistry, "l2", "hit");
+        this.l2Misses = gets(meterRegistry, "l2", "miss");
+    }
+
+    private Counter gets(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("reddisearch.cache.gets")
+            .description("Spring cache lookups per tier")
+            .tag("cache", name)
+            .tag("tier", tier)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = String.valueOf(key);
+        ValueWrapper local = l1.getIfPresent(localKey);
+        if (local != null) {
+            l1Hits.increment();
+            return local;
+        }
+        l1Misses.increment();
+        ValueWrapper remote = l2Get(key);
+        if (remote != null) {
+            l1.put(localKey, new SimpleValueWrapper(remote.get()));
+        }
+        return remote;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * Loads through L1 so concurrent callers on this instance share a single load
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = String.valueOf(key);
+        boolean[] loaded = {false};
+        ValueWrapper wrapper = l1.get(localKey, k -> {
+            loaded[0] = true;
+            l1Misses.increment();
+            ValueWrapper remote = l2Get(key);
+            if (remote != null) {
+                return new SimpleValueWrapper(remote.get());
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            l2Put(key, value);
+            publish(k);
+            return new SimpleValueWrapper(value);
+        });
+        if (!loaded[0]) {
+            l1Hits.increment();
+        }
+        return (T) wrapper.get();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String localKey = String.valueOf(key);
+        l1.put(localKey, new SimpleValueWrapper(value));
+        l2Put(key, value);
+        publish(localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = String.valueOf(key);
+        l1.invalidate(localKey);
+        try {
+            l2.evict(key);
+        } catch (RuntimeException e) {
+            logL2Failure("evict", e);
+        }
+        publish(localKey);
+    }
+
+    @Override
+    public void clear() {
+        l1.invalidateAll();
+        try {
+            l2.clear();
+        } catch (RuntimeException e) {
+            logL2Failure("clear", e);
+        }
+        publish(null);
+    }
+
+    /**
+     * Drop an L1 entry because another instance changed it
+     */
+    void evictLocal(String key) {
+        l1.invalidate(key);
+    }
+
+    void clearLocal() {
+        l1.invalidateAll();
+    }
+
+    private ValueWrapper l2Get(Object key) {
+        ValueWrapper remote = null;
+        try {
+            remote = l2.get(key);
+        } catch (RuntimeException e) {
+            logL2Failure("get", e);
+        }
+        (remote != null ? l2Hits : l2Misses).increment();
+        return remote;
+    }
+
+    private void l2Put(Object key, Object value) {
+        try {
+            l2.put(key, value);
+        } catch (RuntimeException e) {
+            logL2Failure("put", e);
+        }
+    }
+
+    private void publish(String key) {
+        try {
+            invalidationPublisher.accept(key);
+        } catch (RuntimeException e) {
+            System.err.println("[Cache] Could not publish invalidation for " + name + ": " + e.getMessage());
+        }
+    }
+
+    private void logL2Failure(String operation, RuntimeException e) {
+        System.err.println("[Cache] L2 " + operation + " failed for " + name + ", using L1 only: " + e.getMessage());
+    }
+}
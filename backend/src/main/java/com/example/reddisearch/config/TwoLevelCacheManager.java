@@ -0,0 +1,97 @@
+package com.example.reddisearch.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.CacheSettings;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Wraps the Redis cache manager so every cache gets an in-process L1 sized and expired per
+ * app.cache.specs. Instances tell each other about writes through a publisher (Redis
+ * pub/sub in production): a message carries the sender's instance id, the cache name and
+ * the key (or a clear marker), and receivers evict just that L1 entry.
+ * Caches created after setMeterRegistry report their hit/miss counts to that registry.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private static final String CLEAR_MARKER = "*";
+    private static final String KEY_MARKER = "k";
+
+    private final CacheManager l2;
+    private final CacheSettings settings;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private volatile Consumer<String> invalidationPublisher = message -> { };
+    private volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    public TwoLevelCacheManager(CacheManager l2, CacheSettings settings) {
+        this.l2 = l2;
+        this.settings = settings;
+    }
+
+    public void setInvalidationPublisher(Consumer<String> invalidationPublisher) {
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remote = l2.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> {
+            CacheSettings.Spec spec = settings.specFor(n);
+            com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> l1 = Caffeine.newBuilder()
+                .maximumSize(spec.getMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(spec.getTtlSeconds()))
+                .build();
+            return new TwoLevelCache(n, l1, remote, key -> invalidationPublisher.accept(message(n, key)),
+                meterRegistry);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(l2.getCacheNames());
+        names.addAll(caches.keySet());
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Apply an invalidation published by another instance; our own messages are ignored
+     */
+    public void handleInvalidation(String message) {
+        String[] parts = message.split("\n", 3);
+        if (parts.length < 3 || parts[0].equals(instanceId)) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts[2].equals(CLEAR_MARKER)) {
+            cache.clearLocal();
+        } else if (parts[2].startsWith(KEY_MARKER)) {
+            cache.evictLocal(parts[2].substring(KEY_MARKER.length()));
+        }
+    }
+
+    private String message(String cacheName, String key) {
+        return instanceId + "\n" + cacheName + "\n" + (key == null ? CLEAR_MARKER : KEY_MARKER + key);
+    }
+}
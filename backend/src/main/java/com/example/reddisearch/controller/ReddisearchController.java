@@ -2,17 +2,42 @@ package com.example.reddisearch.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
 import com.example.reddisearch.VectorSearchService;
+import com.example.reddisearch.search.SearchCoalescer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class ReddisearchController {
 
+    // Long enough for a slow local model to finish a full answer
+    private static final long STREAM_TIMEOUT_MS = 180_000;
+
+    @Autowired
+    private SearchCoalescer searchCoalescer;
+
     @Autowired
-    private VectorSearchService vectorSearchService;
+    private AppConfig appConfig;
+
+    // Streams hold a thread for the whole search and answer, so they get their own bounded
+    // pool rather than the shared applicationTaskExecutor and its unbounded queue
+    private ThreadPoolExecutor streamExecutor;
 
     public static class QueryRequest {
         private String query;
@@ -52,6 +77,23 @@ public class ReddisearchController {
         public void setPostsFound(int postsFound) { this.postsFound = postsFound; }
     }
 
+    @PostConstruct
+    public void startStreamExecutor() {
+        AppConfig.Stream settings = appConfig.getStream();
+        AtomicInteger threads = new AtomicInteger();
+        streamExecutor = new ThreadPoolExecutor(settings.getMaxConcurrent(), settings.getMaxConcurrent(),
+            0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, settings.getMaxQueued())), r -> {
+                Thread t = new Thread(r, "search-stream-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+    }
+
+    @PreDestroy
+    public void stopStreamExecutor() {
+        streamExecutor.shutdownNow();
+    }
+
     @PostMapping("/search")
     public ResponseEntity<QueryResponse> searchQuestion(@RequestBody QueryRequest request) {
         // Validate input
@@ -63,7 +105,7 @@ public class ReddisearchController {
         long startTime = System.currentTimeMillis();
         
         try {
-            VectorSearchService.SearchResult result = vectorSearchService.answerQueryWithDetails(
+            VectorSearchService.SearchResult result = searchCoalescer.search(
                 request.getQuery(), request.getSubreddit());
             
             long processingTime = System.currentTimeMillis() - startTime;
@@ -95,7 +137,7 @@ public class ReddisearchController {
         long startTime = System.currentTimeMillis();
         
         try {
-            VectorSearchService.SearchResult result = vectorSearchService.answerQueryWithDetails(q, subreddit);
+            VectorSearchService.SearchResult result = searchCoalescer.search(q, subreddit);
             
             long processingTime = System.currentTimeMillis() - startTime;
             QueryResponse response = new QueryResponse(q, result.getAnswer(), processingTime);
@@ -115,6 +157,84 @@ public class ReddisearchController {
         }
     }
 
+    /**
+     * Server-Sent Events version of GET /search. Events, all with JSON data:
+     * "stage" {stage, description} as the pipeline progresses, "token" {text} for each chunk
+     * of the LLM answer, then "done" with the same body as /search (its answer is
+     * authoritative, e.g. when served from cache or synthesized without the LLM) or "error".
+     */
+    @GetMapping(value = "/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter searchQuestionStream(@RequestParam String q, @RequestParam(required = false) String subreddit) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        if (q == null || q.trim().isEmpty()) {
+            sendEvent(emitter, "error", new QueryResponse("", "Query parameter 'q' cannot be empty"));
+            emitter.complete();
+            return emitter;
+        }
+
+        AtomicBoolean disconnected = new AtomicBoolean();
+        emitter.onTimeout(() -> disconnected.set(true));
+        emitter.onError(e -> disconnected.set(true));
+        long startTime = System.currentTimeMillis();
+
+        try {
+            streamExecutor.execute(() -> {
+                try {
+                    VectorSearchService.SearchResult result = searchCoalescer.searchStreaming(q, subreddit,
+                        new VectorSearchService.ProgressListener() {
+                            @Override
+                            public void onStage(int stage, String description) {
+                                send("stage", Map.of("stage", stage, "description", description));
+                            }
+
+                            @Override
+                            public void onToken(String token) {
+                                send("token", Map.of("text", token));
+                            }
+
+                            @Override
+                            public boolean isCancelled() {
+                                return disconnected.get();
+                            }
+
+                            private void send(String name, Object data) {
+                                if (!disconnected.get() && !sendEvent(emitter, name, data)) {
+                                    disconnected.set(true);
+                                }
+                            }
+                        });
+
+                    QueryResponse response = new QueryResponse(q, result.getAnswer(), System.currentTimeMillis() - startTime);
+                    response.setPostsFound(result.getPostsFound());
+                    sendEvent(emitter, "done", response);
+                    emitter.complete();
+                } catch (Exception e) {
+                    System.err.println("Error in searchQuestionStream: " + e.getMessage());
+                    sendEvent(emitter, "error", new QueryResponse(q,
+                        "Sorry, I encountered an error while processing your query. Please try again."));
+                    emitter.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("[Stream] All stream workers busy, turning away \"" + q + "\"");
+            sendEvent(emitter, "error", new QueryResponse(q, "The server is busy right now. Please try again in a moment."));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * False once the client has gone away
+     */
+    private static boolean sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("ReddiSearch Application is running! 🚀");
@@ -154,24 +274,33 @@ public class ReddisearchController {
                "  const resultDiv = document.getElementById('result');" +
                "  resultDiv.style.display = 'block';" +
                "  resultDiv.innerHTML = '<p style=\"color: #007bff;\">🔍 Searching Reddit...</p>';" +
-               "  const url = subreddit ? '/api/search?q=' + encodeURIComponent(query) + '&subreddit=' + encodeURIComponent(subreddit) : '/api/search?q=' + encodeURIComponent(query);" +
-               "  fetch(url)" +
-               "    .then(r => r.json())" +
-               "    .then(data => {" +
-               "      if (data.error) {" +
-               "        resultDiv.innerHTML = '<p style=\"color: red;\">Error: ' + data.error + '</p>';" +
-               "      } else {" +
-               "        const postsInfo = data.postsFound > 0 ? ' (Found ' + data.postsFound + ' relevant posts)' : '';" +
-               "        resultDiv.innerHTML = '<h3 style=\"color: #2c3e50;\">Question: ' + data.query + '</h3>' +" +
-               "                             '<div style=\"padding: 15px; background-color: #f8f9fa; border-left: 4px solid #007bff; margin: 15px 0;\">' +" +
-               "                             data.answer.replace(/\\n/g, '<br>') + '</div>' +" +
-               "                             '<small style=\"color: #6c757d;\">Processed in ' + data.processingTimeMs + 'ms' + postsInfo + '</small>';" +
-               "      }" +
-               "    })" +
-               "    .catch(err => {" +
-               "      console.error('Fetch error:', err);" +
-               "      resultDiv.innerHTML = '<p style=\"color: red;\">Error: Unable to connect to the server. Please try again.</p>';" +
-               "    });" +
+               "  const url = '/api/search/stream?q=' + encodeURIComponent(query) + (subreddit ? '&subreddit=' + encodeURIComponent(subreddit) : '');" +
+               "  const source = new EventSource(url);" +
+               "  let streamed = '';" +
+               "  const render = (answer, footer) => {" +
+               "    resultDiv.innerHTML = '<h3 style=\"color: #2c3e50;\">Question: ' + query + '</h3>' +" +
+               "                         '<div style=\"padding: 15px; background-color: #f8f9fa; border-left: 4px solid #007bff; margin: 15px 0;\">' +" +
+               "                         answer.replace(/\\n/g, '<br>') + '</div>' + footer;" +
+               "  };" +
+               "  source.addEventListener('stage', e => {" +
+               "    const stage = JSON.parse(e.data);" +
+               "    resultDiv.innerHTML = '<p style=\"color: #007bff;\">🔍 Step ' + stage.stage + '/3: ' + stage.description + '...</p>';" +
+               "  });" +
+               "  source.addEventListener('token', e => {" +
+               "    streamed += JSON.parse(e.data).text;" +
+               "    render(streamed, '<small style=\"color: #6c757d;\">Generating...</small>');" +
+               "  });" +
+               "  source.addEventListener('done', e => {" +
+               "    source.close();" +
+               "    const data = JSON.parse(e.data);" +
+               "    const postsInfo = data.postsFound > 0 ? ' (Found ' + data.postsFound + ' relevant posts)' : '';" +
+               "    render(data.answer, '<small style=\"color: #6c757d;\">Processed in ' + data.processingTimeMs + 'ms' + postsInfo + '</small>');" +
+               "  });" +
+               "  source.addEventListener('error', e => {" +
+               "    source.close();" +
+               "    const message = e.data ? JSON.parse(e.data).error : 'Unable to connect to the server. Please try again.';" +
+               "    resultDiv.innerHTML = '<p style=\"color: red;\">Error: ' + message + '</p>';" +
+               "  });" +
                "}" +
                "</script>" +
                "</body></html>";
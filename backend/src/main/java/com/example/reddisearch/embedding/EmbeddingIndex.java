@@ -0,0 +1,270 @@
+package com.example.reddisearch.embedding;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.index.LocalPostIndex;
+import com.example.reddisearch.index.LocalPostIndex.IndexedDocument;
+import com.example.reddisearch.llm.LlmScheduler;
+import com.example.reddisearch.vector.HnswIndex;
+import com.example.reddisearch.vector.MappedVectorStore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Dense retrieval over the local corpus: post embeddings from Ollama in an HNSW graph.
+ * Graph node ids are LocalPostIndex doc ids, so kNN hits resolve straight back to posts
+ * and can be filtered by subreddit during the graph walk.
+ *
+ * With the vector store enabled the embedding rows live in memory-mapped segment files
+ * (one store per model) rather than on the heap. On startup the graph is rebuilt from
+ * those rows in the background, so a restart never has to call Ollama again.
+ *
+ * Doc ids are only durable once LocalPostIndex writes a snapshot, so after an unclean
+ * shutdown an id can come back attached to a different post, and an edited post keeps its
+ * id. The content hash of the post each row was embedded from is stored next to it; rows
+ * whose hash does not match their post are not restored, and addPosts embeds them again.
+ */
+@Component
+public class EmbeddingIndex {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private OllamaEmbeddingClient embeddingClient;
+
+    @Autowired
+    private LocalPostIndex localPostIndex;
+
+    // Rows of the content hash store: one 8-byte hash each
+    private static final int HASH_SEGMENT_BYTES = 1 << 20;
+
+    // Created on first insert, once the embedding model's dimension is known
+    private volatile HnswIndex hnsw;
+    private volatile MappedVectorStore rowStore;
+    private volatile MappedVectorStore hashStore;
+    // Content hashes when rows are kept on the heap
+    private final Map<Integer, Long> heapHashes = new ConcurrentHashMap<>();
+
+    /**
+     * A post found by vector search and its cosine similarity to the query
+     */
+    public static class Hit {
+        private final RedditPost post;
+        private final float similarity;
+
+        public Hit(RedditPost post, float similarity) {
+            this.post = post;
+            this.similarity = similarity;
+        }
+
+        public RedditPost getPost() { return post; }
+        public float getSimilarity() { return similarity; }
+    }
+
+    /**
+     * Reopen stored embeddings and rebuild the graph from them on a background thread
+     */
+    @PostConstruct
+    public void restore() {
+        if (!isEnabled() || !appConfig.getVectorStore().isEnabled()) return;
+
+        MappedVectorStore store = openRowStore();
+        if (store == null || store.size() == 0) return;
+
+        int[] firstId = {-1};
+        store.forEachId(id -> { if (firstId[0] < 0) firstId[0] = id; });
+        HnswIndex index = indexFor(store.getFloats(firstId[0]).remaining());
+        if (index == null) return;
+
+        Thread rebuild = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            int[] stale = {0};
+            store.forEachId(docId -> {
+                FloatBuffer row = store.getFloats(docId);
+                IndexedDocument doc = localPostIndex.document(docId);
+                if (doc == null || row.remaining() != index.dimension()) return;
+                if (!embeddedFrom(docId, doc.getPost())) {
+                    // Embedded for another post, or an earlier version of this one; addPosts re-embeds it
+                    stale[0]++;
+                    return;
+                }
+                index.addStored(docId);
+            });
+            System.out.println("[Embedding] Rebuilt HNSW graph from " + index.size() + " stored embeddings in "
+                + (System.currentTimeMillis() - start) + "ms" + (stale[0] > 0 ? ", skipped " + stale[0] + " stale rows" : ""));
+        }, "embedding-index-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    @PreDestroy
+    public void close() {
+        MappedVectorStore store = rowStore;
+        if (store != null) {
+            store.close();
+        }
+        MappedVectorStore hashes = hashStore;
+        if (hashes != null) {
+            hashes.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        // Node ids come from the local index, so dense retrieval needs it
+        return appConfig.getEmbedding().isEnabled() && appConfig.getIndex().isEnabled();
+    }
+
+    public int size() {
+        HnswIndex index = hnsw;
+        return index != null ? index.size() : 0;
+    }
+
+    /**
+     * Embed every post that is not in the graph yet, or was edited since it was embedded
+     * (batched), and insert or replace it
+     */
+    public void addPosts(Collection<RedditPost> posts) {
+        addPosts(posts, LlmScheduler.Priority.INTERACTIVE);
+    }
+
+    /**
+     * As addPosts, queuing the embedding calls behind interactive LLM work when BACKGROUND
+     */
+    public void addPosts(Collection<RedditPost> posts, LlmScheduler.Priority priority) {
+        if (!isEnabled() || posts.isEmpty()) return;
+
+        List<Integer> docIds = new ArrayList<>();
+        List<RedditPost> embedded = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (RedditPost post : posts) {
+            int docId = localPostIndex.docIdOf(post);
+            HnswIndex index = hnsw;
+            if (docId < 0 || (index != null && index.contains(docId) && embeddedFrom(docId, post))) continue;
+
+            docIds.add(docId);
+            embedded.add(post);
+            texts.add(truncate(post.getCombinedText()));
+        }
+        if (docIds.isEmpty()) return;
+
+        List<float[]> embeddings = embeddingClient.embed(texts, priority);
+        if (embeddings == null) return;
+
+        for (int i = 0; i < docIds.size(); i++) {
+            HnswIndex index = indexFor(embeddings.get(i).length);
+            if (index == null) return;
+            index.add(docIds.get(i), embeddings.get(i));
+            recordContent(docIds.get(i), embedded.get(i));
+        }
+        System.out.println("[Embedding] Indexed " + docIds.size() + " new or edited posts (" + size() + " total)");
+    }
+
+    /**
+     * k nearest posts to the query, optionally restricted to one subreddit
+     */
+    public List<Hit> search(String query, int k, String subreddit) {
+        HnswIndex index = hnsw;
+        if (!isEnabled() || index == null) return Collections.emptyList();
+
+        float[] queryEmbedding = embeddingClient.embedQuery(truncate(query));
+        if (queryEmbedding == null || queryEmbedding.length != index.dimension()) return Collections.emptyList();
+
+        IntPredicate filter = null;
+        if (subreddit != null && !subreddit.equalsIgnoreCase("all")) {
+            filter = docId -> {
+                IndexedDocument doc = localPostIndex.document(docId);
+                return doc != null && subreddit.equalsIgnoreCase(doc.getPost().getSubreddit());
+            };
+        }
+
+        int ef = Math.max(appConfig.getEmbedding().getEfSearch(), k);
+        List<Hit> hits = new ArrayList<>();
+        for (HnswIndex.Neighbor neighbor : index.search(queryEmbedding, k, ef, filter)) {
+            IndexedDocument doc = localPostIndex.document(neighbor.getId());
+            if (doc != null) {
+                hits.add(new Hit(doc.getPost(), neighbor.getSimilarity()));
+            }
+        }
+        return hits;
+    }
+
+    private HnswIndex indexFor(int dimension) {
+        HnswIndex index = hnsw;
+        if (index == null) {
+            synchronized (this) {
+                if (hnsw == null) {
+                    hnsw = new HnswIndex(dimension, appConfig.getEmbedding().getHnswM(),
+                        appConfig.getEmbedding().getEfConstruction(), openRowStore());
+                }
+                index = hnsw;
+            }
+        }
+        if (index.dimension() != dimension) {
+            System.err.println("[Embedding] Model returned dimension " + dimension + " but the index uses " + index.dimension());
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * Store for this model's embedding rows, or null to keep them on the heap
+     */
+    private synchronized MappedVectorStore openRowStore() {
+        if (rowStore == null && appConfig.getVectorStore().isEnabled()) {
+            String name = "embeddings-" + appConfig.getEmbedding().getModel().replaceAll("[^A-Za-z0-9]", "_");
+            Path dir = Paths.get(appConfig.getIndex().getDirectory(), "vectors");
+            try {
+                // Named for its first layout, which hashed the URL alone
+                hashStore = new MappedVectorStore(dir, name + "-urls", HASH_SEGMENT_BYTES,
+                    appConfig.getVectorStore().getCompactionRatio());
+                rowStore = new MappedVectorStore(dir, name,
+                    appConfig.getVectorStore().getSegmentSizeMb() << 20, appConfig.getVectorStore().getCompactionRatio());
+            } catch (IOException e) {
+                System.err.println("[Embedding] Could not open vector store, keeping embeddings on the heap: " + e.getMessage());
+            }
+        }
+        return rowStore;
+    }
+
+    /**
+     * Note which post the row under this doc id was embedded from. Written after the row, so
+     * a crash in between leaves a hash that does not match and the row is re-embedded.
+     */
+    private void recordContent(int docId, RedditPost post) {
+        MappedVectorStore hashes = hashStore;
+        if (hashes != null) {
+            hashes.put(docId, ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, post.getContentHash()));
+        } else {
+            heapHashes.put(docId, post.getContentHash());
+        }
+    }
+
+    private boolean embeddedFrom(int docId, RedditPost post) {
+        MappedVectorStore hashes = hashStore;
+        if (hashes == null) {
+            Long stored = heapHashes.get(docId);
+            return stored != null && stored == post.getContentHash();
+        }
+        ByteBuffer stored = hashes.get(docId);
+        return stored != null && stored.remaining() == Long.BYTES && stored.getLong(0) == post.getContentHash();
+    }
+
+    private String truncate(String text) {
+        int maxChars = appConfig.getEmbedding().getMaxChars();
+        return text.length() > maxChars ? text.substring(0, maxChars) : text;
+    }
+}
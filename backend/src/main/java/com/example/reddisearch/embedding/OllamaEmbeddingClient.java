@@ -0,0 +1,167 @@
+package com.example.reddisearch.embedding;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.llm.LlmScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fetches embeddings from the local Ollama server. Texts are sent in batches through
+ * /api/embed; servers that predate it get one /api/embeddings call per text instead.
+ */
+@Component
+public class OllamaEmbeddingClient {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private LlmScheduler llmScheduler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile boolean batchEndpointSupported = true;
+
+    // One search embeds its query for dense retrieval and the answer cache; only the first pays
+    private final Cache<String, float[]> queryEmbeddings = Caffeine.newBuilder()
+        .maximumSize(256)
+        .expireAfterWrite(Duration.ofMinutes(10))
+        .build();
+
+    /**
+     * Embed texts in order. Returns null if Ollama is unreachable or returns a malformed response.
+     */
+    public List<float[]> embed(List<String> texts) {
+        return embed(texts, LlmScheduler.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Embed texts in order, taking an LLM slot per batch so interactive calls can get in
+     * between the batches of a large background job. Null also when no slot frees up in time.
+     */
+    public List<float[]> embed(List<String> texts, LlmScheduler.Priority priority) {
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        int batchSize = Math.max(1, appConfig.getEmbedding().getBatchSize());
+
+        for (int start = 0; start < texts.size(); start += batchSize) {
+            List<String> batch = texts.subList(start, Math.min(start + batchSize, texts.size()));
+            List<float[]> batchEmbeddings = llmScheduler.call(priority, () -> embedScheduled(batch), () -> null);
+            if (batchEmbeddings == null || batchEmbeddings.size() != batch.size()) {
+                return null;
+            }
+            embeddings.addAll(batchEmbeddings);
+        }
+        return embeddings;
+    }
+
+    private List<float[]> embedScheduled(List<String> batch) {
+        try {
+            return batchEndpointSupported ? embedBatch(batch) : embedOneByOne(batch);
+        } catch (RestClientException e) {
+            System.err.println("[Embedding] Connection error: " + e.getMessage());
+            System.err.println("[Embedding] Make sure the model is available: ollama pull " + appConfig.getEmbedding().getModel());
+            return null;
+        } catch (Exception e) {
+            System.err.println("[Embedding] Error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public float[] embed(String text) {
+        List<float[]> embeddings = embed(List.of(text));
+        return embeddings != null && !embeddings.isEmpty() ? embeddings.get(0) : null;
+    }
+
+    /**
+     * Embedding of a search query, reusing the one computed for the same text in the last few minutes
+     */
+    public float[] embedQuery(String query) {
+        float[] cached = queryEmbeddings.getIfPresent(query);
+        if (cached != null) return cached;
+
+        float[] embedding = embed(query);
+        if (embedding != null) {
+            queryEmbeddings.put(query, embedding);
+        }
+        return embedding;
+    }
+
+    /**
+     * A query embedding embedQuery already has, or null; never calls Ollama
+     */
+    public float[] cachedQueryEmbedding(String query) {
+        return queryEmbeddings.getIfPresent(query);
+    }
+
+    private List<float[]> embedBatch(List<String> batch) throws Exception {
+        ObjectNode requestBody = objectMapper.createObjectNode();
+        requestBody.put("model", appConfig.getEmbedding().getModel());
+        ArrayNode input = requestBody.putArray("input");
+        batch.forEach(input::add);
+
+        JsonNode root;
+        try {
+            root = post("/api/embed", requestBody);
+        } catch (HttpClientErrorException.NotFound e) {
+            System.out.println("[Embedding] /api/embed not available, falling back to /api/embeddings");
+            batchEndpointSupported = false;
+            return embedOneByOne(batch);
+        }
+
+        List<float[]> embeddings = new ArrayList<>(batch.size());
+        for (JsonNode embedding : root.path("embeddings")) {
+            embeddings.add(toFloats(embedding));
+        }
+        return embeddings;
+    }
+
+    private List<float[]> embedOneByOne(List<String> batch) throws Exception {
+        List<float[]> embeddings = new ArrayList<>(batch.size());
+        for (String text : batch) {
+            ObjectNode requestBody = objectMapper.createObjectNode();
+            requestBody.put("model", appConfig.getEmbedding().getModel());
+            requestBody.put("prompt", text);
+
+            JsonNode embedding = post("/api/embeddings", requestBody).path("embedding");
+            if (!embedding.isArray() || embedding.isEmpty()) {
+                return null;
+            }
+            embeddings.add(toFloats(embedding));
+        }
+        return embeddings;
+    }
+
+    private JsonNode post(String path, ObjectNode requestBody) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<String> entity = new HttpEntity<>(requestBody.toString(), headers);
+
+        ResponseEntity<String> response = restTemplate.exchange(
+            appConfig.getOllamaBaseUrl() + path, HttpMethod.POST, entity, String.class);
+        return objectMapper.readTree(response.getBody());
+    }
+
+    private static float[] toFloats(JsonNode array) {
+        float[] values = new float[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) array.get(i).asDouble();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.reddisearch.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.HttpClientConfig;
+
+import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The one HTTP client for Reddit and Ollama: a shared java.net.http.HttpClient, so
+ * connections (and TLS sessions) are pooled and kept alive across requests.
+ *
+ * HTTPS requests negotiate HTTP/2 via ALPN, which multiplexes a search's parallel Reddit
+ * requests over a single connection. Plain-http requests (a local Ollama) stay on HTTP/1.1.
+ * Buffered responses ask for gzip and are decoded transparently. Connect and read timeouts
+ * come from http.client.*; the read timeout bounds the wait for response headers.
+ *
+ * Every exchange is timed as reddisearch.http.client.requests, tagged with host, method and
+ * status: up to the full body for buffered requests, up to the headers for streamed ones.
+ */
+@Component
+public class OutboundHttpClient {
+
+    /**
+     * Status, headers and decoded body of a buffered response
+     */
+    public static final class Response {
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final String body;
+
+        Response(int statusCode, HttpHeaders headers, String body) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int getStatusCode() { return statusCode; }
+        public HttpHeaders getHeaders() { return headers; }
+        public String getBody() { return body; }
+        public boolean isSuccessful() { return statusCode >= 200 && statusCode < 300; }
+
+        /** First value of a response header, or null */
+        public String header(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+    }
+
+    /**
+     * A response whose (gzip-decoded) body is read straight off the connection; close it when done
+     */
+    public static final class StreamResponse implements Closeable {
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final InputStream body;
+
+        StreamResponse(int statusCode, HttpHeaders headers, InputStream body) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int getStatusCode() { return statusCode; }
+        public HttpHeaders getHeaders() { return headers; }
+        public InputStream getBody() { return body; }
+        public boolean isSuccessful() { return statusCode >= 200 && statusCode < 300; }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    /**
+     * Non-2xx status on a streamed request
+     */
+    public static class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        public HttpStatusException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() { return statusCode; }
+    }
+
+    @Autowired
+    private HttpClientConfig config;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(config.getConnectionTimeout()))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    /**
+     * The shared client, for adapters such as the RestTemplate request factory
+     */
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public CompletableFuture<Response> getAsync(String url, Map<String, String> headers) {
+        return sendAsync(request(url, headers).GET().build());
+    }
+
+    public CompletableFuture<Response> postJsonAsync(String url, String json) {
+        return sendAsync(request(url, Map.of("Content-Type", "application/json"))
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build());
+    }
+
+    /**
+     * Blocking GET for callers already on their own (fetch) thread
+     */
+    public Response get(String url, Map<String, String> headers) throws IOException {
+        return await(getAsync(url, headers));
+    }
+
+    public Response postJson(String url, String json) throws IOException {
+        return await(postJsonAsync(url, json));
+    }
+
+    /**
+     * GET without buffering the body, so it can be decoded as it arrives instead of as one String
+     */
+    public StreamResponse getStream(String url, Map<String, String> headers) throws IOException {
+        HttpResponse<InputStream> response = await(send(
+            request(url, headers).GET().build(), HttpResponse.BodyHandlers.ofInputStream()));
+        InputStream body = response.body();
+        if (isGzipped(response.headers())) {
+            try {
+                body = new GZIPInputStream(body);
+            } catch (EOFException e) {
+                // Empty body (e.g. a 204) still labelled gzip
+                body = InputStream.nullInputStream();
+            } catch (IOException e) {
+                response.body().close();
+                throw e;
+            }
+        }
+        return new StreamResponse(response.statusCode(), response.headers(), body);
+    }
+
+    /**
+     * POST and return the response body as it arrives, for NDJSON/SSE style streams. Not
+     * gzip-negotiated, so each chunk is readable as soon as it is received; closing the
+     * stream early abandons the exchange.
+     */
+    public InputStream postJsonStream(String url, String json) throws IOException {
+        HttpRequest request = builder(url)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+        HttpResponse<InputStream> response = await(send(request, HttpResponse.BodyHandlers.ofInputStream()));
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            response.body().close();
+            throw new HttpStatusException(response.statusCode(), "HTTP " + response.statusCode() + " from " + url);
+        }
+        return response.body();
+    }
+
+    private CompletableFuture<Response> sendAsync(HttpRequest request) {
+        return send(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> new Response(response.statusCode(), response.headers(), decode(response)));
+    }
+
+    /**
+     * sendAsync with the exchange timed before the returned future completes; cancelling that
+     * future still aborts the exchange
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<T>> exchange = httpClient.sendAsync(request, bodyHandler);
+        CompletableFuture<HttpResponse<T>> timed = exchange.whenComplete((response, error) -> Timer.builder("reddisearch.http.client.requests")
+            .description("Outbound HTTP exchanges")
+            .tag("host", String.valueOf(request.uri().getHost()))
+            .tag("method", request.method())
+            .tag("status", response != null ? String.valueOf(response.statusCode()) : "CLIENT_ERROR")
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        timed.exceptionally(error -> {
+            if (error instanceof CancellationException) exchange.cancel(true);
+            return null;
+        });
+        return timed;
+    }
+
+    private HttpRequest.Builder request(String url, Map<String, String> headers) {
+        HttpRequest.Builder builder = builder(url).header("Accept-Encoding", "gzip");
+        headers.forEach(builder::header);
+        return builder;
+    }
+
+    private HttpRequest.Builder builder(String url) {
+        URI uri = URI.create(url);
+        return HttpRequest.newBuilder(uri)
+            .version("https".equalsIgnoreCase(uri.getScheme()) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .timeout(Duration.ofMillis(config.getReadTimeout()));
+    }
+
+    private static String decode(HttpResponse<byte[]> response) {
+        byte[] body = response.body();
+        if (!isGzipped(response.headers()) || body.length == 0) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed gzip body from " + response.uri(), e);
+        }
+    }
+
+    private static boolean isGzipped(HttpHeaders headers) {
+        return headers.firstValue("Content-Encoding")
+            .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+            .orElse(false);
+    }
+
+    /**
+     * Wait for a response, unwrapping failures to the IOException the exchange failed with
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for HTTP response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package com.example.reddisearch.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.ranking.CorpusStatistics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local inverted index of every post we have scraped from Reddit.
+ * Postings (term id -> doc ids with term frequency) are partitioned per subreddit so
+ * subreddit-scoped queries only touch that subreddit's terms. The index lives in memory
+ * and is snapshotted to a single binary file, which is reloaded on startup.
+ *
+ * The index also maintains corpus-wide document frequencies and lengths incrementally as
+ * posts are ingested, which the relevance scorers use for IDF and length normalisation.
+ */
+@Component
+public class LocalPostIndex implements CorpusStatistics {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private TermDictionary termDictionary;
+
+    @Autowired
+    private Tokenizer tokenizer;
+
+    private static final int MAGIC = 0x52534958; // "RSIX"
+    // v3: tokenizer signature after the version
+    private static final int FORMAT_VERSION = 3;
+    private static final String SNAPSHOT_FILE = "posts.idx";
+    private static final String ALL_SUBREDDITS = "all";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<IndexedDocument> documents = new ArrayList<>();
+    private final Map<String, Integer> docIdsByUrl = new HashMap<>();
+    private final Map<String, Partition> partitions = new HashMap<>();
+
+    // Corpus statistics, read without the lock by scorers (a slightly stale count is fine)
+    private volatile int[] documentFrequencies = new int[1024];
+    private volatile int statsDocumentCount;
+    private volatile long statsTotalLength;
+
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "post-index-flush");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private int changesSinceFlush = 0;
+
+    /**
+     * A post as stored in the index, with its token count and when we last scraped it
+     */
+    public static class IndexedDocument {
+        private final int docId;
+        private final RedditPost post;
+        private final int length;
+        private final long ingestedAtMillis;
+
+        IndexedDocument(int docId, RedditPost post, int length, long ingestedAtMillis) {
+            this.docId = docId;
+            this.post = post;
+            this.length = length;
+            this.ingestedAtMillis = ingestedAtMillis;
+        }
+
+        public int getDocId() { return docId; }
+        public RedditPost getPost() { return post; }
+        public int getLength() { return length; }
+        public long getIngestedAtMillis() { return ingestedAtMillis; }
+    }
+
+    /**
+     * Growable parallel arrays of doc ids and term frequencies for one term
+     */
+    static class PostingList {
+        private int[] docIds = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void add(int docId, int freq) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docIds[size] = docId;
+            freqs[size] = freq;
+            size++;
+        }
+
+        /**
+         * Drop the entry for a doc id; false if it has none
+         */
+        boolean remove(int docId) {
+            for (int i = 0; i < size; i++) {
+                if (docIds[i] == docId) {
+                    System.arraycopy(docIds, i + 1, docIds, i, size - i - 1);
+                    System.arraycopy(freqs, i + 1, freqs, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() { return size; }
+        int docId(int i) { return docIds[i]; }
+        int freq(int i) { return freqs[i]; }
+    }
+
+    /**
+     * Postings and length statistics for a single subreddit
+     */
+    static class Partition {
+        private final Map<Integer, PostingList> postings = new HashMap<>();
+        private int documentCount;
+        private long totalLength;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!appConfig.getIndex().isEnabled()) {
+            return;
+        }
+        Path file = snapshotPath();
+        if (!Files.exists(file)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readSnapshot(in);
+            rebuildStatistics();
+            System.out.println("[Index] Loaded " + documents.size() + " posts across " + partitions.size() + " subreddits");
+        } catch (Exception e) {
+            System.err.println("[Index] Could not load snapshot, starting empty: " + e.getMessage());
+            documents.clear();
+            docIdsByUrl.clear();
+            partitions.clear();
+            rebuildStatistics();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flushExecutor.shutdown();
+        boolean dirty;
+        lock.readLock().lock();
+        try {
+            dirty = changesSinceFlush > 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (dirty) {
+            flush();
+        }
+    }
+
+    /**
+     * Add scraped posts to the index. Posts we already know (by URL) get their score,
+     * comment count and freshness updated, and are re-indexed if their text was edited.
+     */
+    public void ingest(Collection<RedditPost> posts) {
+        if (!appConfig.getIndex().isEnabled() || posts == null || posts.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        boolean shouldFlush;
+
+        lock.writeLock().lock();
+        try {
+            for (RedditPost post : posts) {
+                if (post.getUrl() == null) continue;
+
+                Integer existing = docIdsByUrl.get(post.getUrl());
+                if (existing != null) {
+                    IndexedDocument old = documents.get(existing);
+                    if (old.getPost().getCombinedText().equals(post.getCombinedText())) {
+                        documents.set(existing, new IndexedDocument(existing, post, old.getLength(), now));
+                    } else {
+                        // Edited since we last saw it: its old terms and length must leave the statistics first
+                        removeDocument(old);
+                        indexDocument(existing, post, now);
+                    }
+                } else {
+                    addDocument(post, now);
+                }
+                changesSinceFlush++;
+            }
+            shouldFlush = changesSinceFlush >= appConfig.getIndex().getFlushEvery();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (shouldFlush && flushScheduled.compareAndSet(false, true)) {
+            flushExecutor.submit(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Find indexed posts matching at least half of the query's significant terms,
+     * restricted to posts scraped within the configured freshness window.
+     * Results are ordered by a simple tf-idf score.
+     */
+    public List<RedditPost> searchFresh(String query, String subreddit, int limit) {
+        if (!appConfig.getIndex().isEnabled()) {
+            return Collections.emptyList();
+        }
+        long maxAgeMillis = appConfig.getIndex().getMaxAgeMinutes() * 60_000L;
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+
+        List<String> queryTerms = tokenizer.terms(query);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int requiredMatches = Math.max(1, queryTerms.size() / 2);
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = new HashMap<>();
+            Map<Integer, Integer> matches = new HashMap<>();
+            int totalDocs = documents.size();
+
+            for (Partition partition : partitionsFor(subreddit)) {
+                for (String term : queryTerms) {
+                    int termId = termDictionary.lookup(term);
+                    if (termId == TermDictionary.UNKNOWN) continue;
+
+                    PostingList postings = partition.postings.get(termId);
+                    if (postings == null) continue;
+
+                    double idf = Math.log(1.0 + (double) totalDocs / postings.size());
+                    for (int i = 0; i < postings.size(); i++) {
+                        IndexedDocument doc = documents.get(postings.docId(i));
+                        if (doc.getIngestedAtMillis() < cutoff) continue;
+
+                        double tf = (double) postings.freq(i) / Math.max(1, doc.getLength());
+                        scores.merge(doc.getDocId(), tf * idf, Double::sum);
+                        matches.merge(doc.getDocId(), 1, Integer::sum);
+                    }
+                }
+            }
+
+            List<RedditPost> results = new ArrayList<>();
+            scores.entrySet().stream()
+                .filter(e -> matches.get(e.getKey()) >= requiredMatches)
+                .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
+                .limit(limit)
+                .forEach(e -> results.add(documents.get(e.getKey()).getPost()));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int documentCount() {
+        return statsDocumentCount;
+    }
+
+    @Override
+    public int documentFrequency(int termId) {
+        int[] df = documentFrequencies;
+        return termId >= 0 && termId < df.length ? df[termId] : 0;
+    }
+
+    @Override
+    public double averageDocumentLength() {
+        int n = statsDocumentCount;
+        return n > 0 ? (double) statsTotalLength / n : 0.0;
+    }
+
+    /**
+     * Doc id of an indexed post, or -1 if it has not been ingested
+     */
+    public int docIdOf(RedditPost post) {
+        lock.readLock().lock();
+        try {
+            Integer docId = docIdsByUrl.get(post.getUrl());
+            return docId != null ? docId : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public IndexedDocument document(int docId) {
+        lock.readLock().lock();
+        try {
+            return docId >= 0 && docId < documents.size() ? documents.get(docId) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write the whole index to disk. The snapshot is written to a temp file and
+     * atomically moved into place so a crash never leaves a half-written index.
+     */
+    public synchronized void flush() {
+        if (!appConfig.getIndex().isEnabled()) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            // The snapshot refers to term ids, so the dictionary must be durable first. Under
+            // the read lock no ingest can intern a term the snapshot has and the dictionary lacks.
+            termDictionary.flush();
+
+            Path file = snapshotPath();
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(SNAPSHOT_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writeSnapshot(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            changesSinceFlush = 0;
+            System.out.println("[Index] Snapshot written (" + documents.size() + " posts)");
+        } catch (IOException e) {
+            System.err.println("[Index] Error writing snapshot: " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addDocument(RedditPost post, long ingestedAt) {
+        indexDocument(documents.size(), post, ingestedAt);
+    }
+
+    /**
+     * Index a post under a new doc id (the next one) or one freed by removeDocument
+     */
+    private void indexDocument(int docId, RedditPost post, long ingestedAt) {
+        int[] ids = sortedTermIds(post);
+        int length = ids.length;
+
+        IndexedDocument doc = new IndexedDocument(docId, post, length, ingestedAt);
+        if (docId == documents.size()) {
+            documents.add(doc);
+        } else {
+            documents.set(docId, doc);
+        }
+        docIdsByUrl.put(post.getUrl(), docId);
+
+        Partition partition = partitions.computeIfAbsent(partitionKey(post.getSubreddit()), k -> new Partition());
+        partition.documentCount++;
+        partition.totalLength += length;
+        // Runs of equal ids in the sorted array are one term and its frequency
+        for (int start = 0, end; start < length; start = end) {
+            int termId = ids[start];
+            end = start + 1;
+            while (end < length && ids[end] == termId) end++;
+            partition.postings.computeIfAbsent(termId, k -> new PostingList()).add(docId, end - start);
+            incrementDocumentFrequency(termId, 1);
+        }
+        statsTotalLength += length;
+        statsDocumentCount++;
+    }
+
+    /**
+     * Take an indexed post's postings, length and document frequencies back out. The doc
+     * id stays assigned; the caller re-indexes the post under it.
+     */
+    private void removeDocument(IndexedDocument doc) {
+        Partition partition = partitions.get(partitionKey(doc.getPost().getSubreddit()));
+        if (partition == null) return;
+
+        int[] ids = sortedTermIds(doc.getPost());
+        for (int start = 0, end; start < ids.length; start = end) {
+            int termId = ids[start];
+            end = start + 1;
+            while (end < ids.length && ids[end] == termId) end++;
+            PostingList postings = partition.postings.get(termId);
+            if (postings != null && postings.remove(doc.getDocId())) {
+                if (postings.size() == 0) partition.postings.remove(termId);
+                incrementDocumentFrequency(termId, -1);
+            }
+        }
+        partition.documentCount--;
+        partition.totalLength -= doc.getLength();
+        statsTotalLength -= doc.getLength();
+        statsDocumentCount--;
+    }
+
+    private int[] sortedTermIds(RedditPost post) {
+        Tokenizer.TermIds termIds = tokenizer.termIds(post.getCombinedText(), termDictionary, true);
+        int[] ids = Arrays.copyOf(termIds.ids(), termIds.size());
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    // Callers hold the write lock, so there is a single writer
+    private void incrementDocumentFrequency(int termId, int by) {
+        int[] df = documentFrequencies;
+        if (termId >= df.length) {
+            df = Arrays.copyOf(df, Math.max(df.length * 2, termId + 1));
+        }
+        df[termId] += by;
+        documentFrequencies = df;
+    }
+
+    private void rebuildStatistics() {
+        documentFrequencies = new int[Math.max(1024, termDictionary.size())];
+        long totalLength = 0;
+        for (Partition partition : partitions.values()) {
+            for (Map.Entry<Integer, PostingList> entry : partition.postings.entrySet()) {
+                incrementDocumentFrequency(entry.getKey(), entry.getValue().size());
+            }
+            totalLength += partition.totalLength;
+        }
+        statsTotalLength = totalLength;
+        statsDocumentCount = documents.size();
+    }
+
+    private Collection<Partition> partitionsFor(String subreddit) {
+        String key = partitionKey(subreddit);
+        if (key.equals(ALL_SUBREDDITS)) {
+            return partitions.values();
+        }
+        Partition partition = partitions.get(key);
+        return partition != null ? List.of(partition) : Collections.emptyList();
+    }
+
+    private String partitionKey(String subreddit) {
+        if (subreddit == null || subreddit.trim().isEmpty()) {
+            return ALL_SUBREDDITS;
+        }
+        return subreddit.trim().replaceAll("^r/", "").toLowerCase();
+    }
+
+    private Path snapshotPath() {
+        return Paths.get(appConfig.getIndex().getDirectory(), SNAPSHOT_FILE);
+    }
+
+    private void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, tokenizer.signature());
+
+        out.writeInt(documents.size());
+        for (IndexedDocument doc : documents) {
+            RedditPost post = doc.getPost();
+            writeString(out, post.getTitle());
+            writeString(out, post.getContent());
+            writeString(out, post.getUrl());
+            writeString(out, post.getSubreddit());
+            out.writeInt(post.getScore());
+            out.writeInt(post.getComments());
+            out.writeInt(doc.getLength());
+            out.writeLong(doc.getIngestedAtMillis());
+        }
+
+        out.writeInt(partitions.size());
+        for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+            Partition partition = entry.getValue();
+            writeString(out, entry.getKey());
+            out.writeInt(partition.documentCount);
+            out.writeLong(partition.totalLength);
+            out.writeInt(partition.postings.size());
+            for (Map.Entry<Integer, PostingList> term : partition.postings.entrySet()) {
+                PostingList postings = term.getValue();
+                out.writeInt(term.getKey());
+                out.writeInt(postings.size());
+                for (int i = 0; i < postings.size(); i++) {
+                    out.writeInt(postings.docId(i));
+                    out.writeInt(postings.freq(i));
+                }
+            }
+        }
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not an index snapshot");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        String signature = version >= 3 ? readString(in) : null;
+
+        int docCount = in.readInt();
+        for (int docId = 0; docId < docCount; docId++) {
+            String title = readString(in);
+            String content = readString(in);
+            String url = readString(in);
+            String subreddit = readString(in);
+            int score = in.readInt();
+            int comments = in.readInt();
+            int length = in.readInt();
+            long ingestedAt = in.readLong();
+
+            RedditPost post = new RedditPost(title, content, url, subreddit, score, comments);
+            documents.add(new IndexedDocument(docId, post, length, ingestedAt));
+            docIdsByUrl.put(url, docId);
+        }
+
+        if (!tokenizer.signature().equals(signature)) {
+            retokenize("Tokenizer settings changed");
+            return;
+        }
+
+        boolean termsKnown = true;
+        int partitionCount = in.readInt();
+        for (int p = 0; p < partitionCount; p++) {
+            String name = readString(in);
+            Partition partition = new Partition();
+            partition.documentCount = in.readInt();
+            partition.totalLength = in.readLong();
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                // Only reached for v3+ snapshots; older ones are re-tokenized above
+                int termId = in.readInt();
+                int size = in.readInt();
+                PostingList postings = new PostingList();
+                for (int i = 0; i < size; i++) {
+                    postings.add(in.readInt(), in.readInt());
+                }
+                partition.postings.put(termId, postings);
+                termsKnown &= termId < termDictionary.size();
+            }
+            partitions.put(name, partition);
+        }
+
+        if (!termsKnown) {
+            // Written by a flush that beat the dictionary to disk; the terms are lost
+            retokenize("Snapshot has term ids the dictionary does not");
+        }
+    }
+
+    /**
+     * Rebuild the postings from the stored post text after the tokenizer settings changed or
+     * the snapshot's term ids could not be trusted. Posts keep their doc ids, so anything
+     * keyed by doc id only needs its terms refreshed.
+     */
+    private void retokenize(String reason) {
+        List<IndexedDocument> stored = new ArrayList<>(documents);
+        documents.clear();
+        docIdsByUrl.clear();
+        partitions.clear();
+        for (IndexedDocument doc : stored) {
+            addDocument(doc.getPost(), doc.getIngestedAtMillis());
+        }
+        changesSinceFlush = stored.size();
+        System.out.println("[Index] " + reason + ", re-tokenized " + stored.size() + " posts");
+    }
+
+    // writeUTF caps strings at 64KB, which long selftext can exceed
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
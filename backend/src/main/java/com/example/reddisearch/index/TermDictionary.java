@@ -0,0 +1,239 @@
+package com.example.reddisearch.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Global, append-only mapping of terms to dense int ids, shared by every request thread.
+ * Lookups of known terms are a single lock-free ConcurrentHashMap read; new terms are
+ * interned with computeIfAbsent, which only locks the hash bin being written. Ids are
+ * never reused or reassigned, and new terms are appended to a file so ids stay stable
+ * across restarts (the index snapshot and cached vectors depend on that).
+ *
+ * Ids are only meaningful to the dictionary that assigned them, so anything stored outside
+ * this process (the Redis vector cache) is scoped by {@link #getNamespace()}. The namespace
+ * survives a clean shutdown and is regenerated after a crash, when terms interned since the
+ * last flush may have been lost and their ids could be handed out again.
+ */
+@Component
+public class TermDictionary {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    public static final int UNKNOWN = -1;
+
+    private static final String DICTIONARY_FILE = "terms.dict";
+    private static final String NAMESPACE_FILE = "terms.id";
+    private static final String CLEAN_SHUTDOWN_FILE = "terms.clean";
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int FLUSH_THRESHOLD = 1024;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private volatile String namespace = Long.toHexString(new Random().nextLong());
+
+    // Reverse lookup table, grown in fixed chunks so readers never observe a resize
+    private volatile String[][] chunks = new String[16][];
+    private final Object growLock = new Object();
+
+    private final ConcurrentLinkedQueue<Integer> unpersisted = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger unpersistedCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "term-dictionary-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void load() {
+        if (!appConfig.getIndex().isEnabled()) {
+            return;
+        }
+        loadNamespace();
+
+        Path file = dictionaryPath();
+        if (!Files.exists(file)) {
+            return;
+        }
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int id;
+                String term;
+                try {
+                    id = in.readInt();
+                    byte[] bytes = new byte[in.readUnsignedShort()];
+                    in.readFully(bytes);
+                    term = new String(bytes, StandardCharsets.UTF_8);
+                } catch (EOFException e) {
+                    break;
+                }
+                ids.put(term, id);
+                store(id, term);
+                nextId.accumulateAndGet(id + 1, Math::max);
+                validBytes += 4 + 2 + term.getBytes(StandardCharsets.UTF_8).length;
+            }
+            System.out.println("[Dictionary] Loaded " + ids.size() + " terms");
+        } catch (IOException e) {
+            System.err.println("[Dictionary] Error loading terms: " + e.getMessage());
+        }
+
+        // Drop a partially written trailing record so later appends stay aligned
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > validBytes) {
+                channel.truncate(validBytes);
+            }
+        } catch (IOException e) {
+            System.err.println("[Dictionary] Error truncating terms file: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flushExecutor.shutdown();
+        flush();
+
+        if (appConfig.getIndex().isEnabled() && Files.exists(dictionaryPath())) {
+            try {
+                Path dir = dictionaryPath().getParent();
+                Files.writeString(dir.resolve(NAMESPACE_FILE), namespace);
+                Files.writeString(dir.resolve(CLEAN_SHUTDOWN_FILE), "");
+            } catch (IOException e) {
+                System.err.println("[Dictionary] Error recording clean shutdown: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Identifies this id assignment; changes whenever previously issued ids may have been lost
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Return the id for a term, assigning the next free id if the term is new
+     */
+    public int intern(String term) {
+        Integer id = ids.get(term);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(term, t -> {
+            int newId = nextId.getAndIncrement();
+            store(newId, t);
+            unpersisted.add(newId);
+            if (unpersistedCount.incrementAndGet() >= FLUSH_THRESHOLD && flushScheduled.compareAndSet(false, true)) {
+                flushExecutor.submit(() -> {
+                    flushScheduled.set(false);
+                    flush();
+                });
+            }
+            return newId;
+        });
+    }
+
+    /**
+     * Return the id for a known term, or {@link #UNKNOWN} without growing the dictionary
+     */
+    public int lookup(String term) {
+        Integer id = ids.get(term);
+        return id != null ? id : UNKNOWN;
+    }
+
+    public String term(int id) {
+        String[][] table = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        if (id < 0 || chunk >= table.length || table[chunk] == null) {
+            return null;
+        }
+        return table[chunk][id & (CHUNK_SIZE - 1)];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Append terms interned since the last flush to the dictionary file
+     */
+    public synchronized void flush() {
+        if (!appConfig.getIndex().isEnabled() || unpersisted.isEmpty()) {
+            return;
+        }
+        Path file = dictionaryPath();
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                Integer id;
+                while ((id = unpersisted.poll()) != null) {
+                    unpersistedCount.decrementAndGet();
+                    byte[] bytes = term(id).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(id);
+                    out.writeShort(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Dictionary] Error persisting terms: " + e.getMessage());
+        }
+    }
+
+    private void store(int id, String term) {
+        int chunk = id >>> CHUNK_BITS;
+        String[][] table = chunks;
+        if (chunk >= table.length || table[chunk] == null) {
+            synchronized (growLock) {
+                table = chunks;
+                if (chunk >= table.length) {
+                    String[][] grown = new String[Math.max(table.length * 2, chunk + 1)][];
+                    System.arraycopy(table, 0, grown, 0, table.length);
+                    table = grown;
+                }
+                if (table[chunk] == null) {
+                    table[chunk] = new String[CHUNK_SIZE];
+                }
+                chunks = table;
+            }
+        }
+        table[chunk][id & (CHUNK_SIZE - 1)] = term;
+    }
+
+    private void loadNamespace() {
+        Path dir = dictionaryPath().getParent();
+        Path marker = dir.resolve(CLEAN_SHUTDOWN_FILE);
+        Path namespaceFile = dir.resolve(NAMESPACE_FILE);
+        try {
+            if (Files.exists(marker) && Files.exists(namespaceFile)) {
+                namespace = Files.readString(namespaceFile).trim();
+            }
+            Files.deleteIfExists(marker);
+        } catch (IOException e) {
+            System.err.println("[Dictionary] Error reading namespace: " + e.getMessage());
+        }
+    }
+
+    private Path dictionaryPath() {
+        return Paths.get(appConfig.getIndex().getDirectory(), DICTIONARY_FILE);
+    }
+}
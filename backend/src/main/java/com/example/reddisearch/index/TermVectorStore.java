@@ -0,0 +1,152 @@
+package com.example.reddisearch.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.vector.MappedVectorStore;
+import com.example.reddisearch.vector.SparseVector;
+import com.example.reddisearch.vector.SparseVectorCodec;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.stream.Stream;
+
+/**
+ * Local tier for per-post term vectors, keyed by LocalPostIndex doc id and kept off-heap in
+ * a MappedVectorStore. It sits in front of the Redis vector cache so posts this instance
+ * has already vectorised never cost a network round trip.
+ *
+ * Term ids are only valid for the dictionary namespace and tokenizer settings they were
+ * written under, so the store is discarded when either changes. An edited post keeps its
+ * doc id, so each record also carries the post's content hash and a mismatch reads as absent.
+ */
+@Component
+public class TermVectorStore {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private TermDictionary termDictionary;
+
+    @Autowired
+    private Tokenizer tokenizer;
+
+    // Records are the post's content hash then a SparseVectorCodec value; "terms" held a raw
+    // int/float layout and "term-vectors" the codec value without a hash
+    private static final String STORE_NAME = "term-vectors-v2";
+    private static final String[] LEGACY_STORE_NAMES = { "terms", "term-vectors" };
+    private static final String NAMESPACE_FILE = "terms.ns";
+
+    private volatile MappedVectorStore store;
+    private volatile boolean unavailable;
+
+    public boolean isEnabled() {
+        return appConfig.getIndex().isEnabled() && appConfig.getVectorStore().isEnabled() && !unavailable;
+    }
+
+    /**
+     * Stored vector for the doc id, or null if there is none or it was computed from
+     * different text
+     */
+    public SparseVector get(int docId, long contentHash) {
+        if (docId < 0 || !isEnabled()) return null;
+        MappedVectorStore s = open();
+        if (s == null) return null;
+
+        ByteBuffer record = s.get(docId);
+        if (record == null || record.remaining() < Long.BYTES || record.getLong(record.position()) != contentHash) {
+            return null;
+        }
+        try {
+            return SparseVectorCodec.decode(record.position(record.position() + Long.BYTES));
+        } catch (RuntimeException e) {
+            System.err.println("[VectorStore] Unreadable term vector for doc " + docId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(int docId, long contentHash, SparseVector vector) {
+        if (docId < 0 || !isEnabled()) return;
+        MappedVectorStore s = open();
+        if (s == null) return;
+
+        byte[] encoded = SparseVectorCodec.encode(vector);
+        s.put(docId, ByteBuffer.allocate(Long.BYTES + encoded.length).order(ByteOrder.LITTLE_ENDIAN)
+            .putLong(contentHash).put(encoded).flip());
+    }
+
+    public int size() {
+        MappedVectorStore s = store;
+        return s != null ? s.size() : 0;
+    }
+
+    @PreDestroy
+    public void close() {
+        MappedVectorStore s = store;
+        if (s != null) {
+            s.close();
+        }
+    }
+
+    private MappedVectorStore open() {
+        MappedVectorStore s = store;
+        if (s != null) return s;
+
+        synchronized (this) {
+            if (store == null && !unavailable) {
+                try {
+                    Path dir = Paths.get(appConfig.getIndex().getDirectory(), "vectors");
+                    discardIfStale(dir);
+                    for (String legacy : LEGACY_STORE_NAMES) {
+                        deleteSegments(dir, legacy);
+                    }
+                    store = new MappedVectorStore(dir, STORE_NAME,
+                        appConfig.getVectorStore().getSegmentSizeMb() << 20,
+                        appConfig.getVectorStore().getCompactionRatio());
+                    if (store.size() == 0) {
+                        Files.createDirectories(dir);
+                        Files.writeString(dir.resolve(NAMESPACE_FILE), vectorScope());
+                    }
+                    System.out.println("[VectorStore] Opened term vector store with " + store.size() + " posts");
+                } catch (IOException e) {
+                    System.err.println("[VectorStore] Term vectors disabled: " + e.getMessage());
+                    unavailable = true;
+                }
+            }
+            return store;
+        }
+    }
+
+    private void discardIfStale(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+
+        Path namespaceFile = dir.resolve(NAMESPACE_FILE);
+        String namespace = Files.exists(namespaceFile) ? Files.readString(namespaceFile, StandardCharsets.UTF_8).trim() : null;
+        if (vectorScope().equals(namespace)) return;
+
+        deleteSegments(dir, STORE_NAME);
+        Files.deleteIfExists(namespaceFile);
+        System.out.println("[VectorStore] Term dictionary or tokenizer changed, discarded stored term vectors");
+    }
+
+    private String vectorScope() {
+        return termDictionary.getNamespace() + ":" + tokenizer.signature();
+    }
+
+    private static void deleteSegments(Path dir, String storeName) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().matches(storeName + "-\\d{6}\\.seg")) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
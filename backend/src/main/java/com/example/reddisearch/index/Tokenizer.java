@@ -0,0 +1,249 @@
+package com.example.reddisearch.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.TokenizerSettings;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * The one place text becomes terms: the index, the vectorizer and the query filters all
+ * tokenize through here, so a post and a query always agree on what a term is.
+ *
+ * Text is scanned a code point at a time (no regex, no lowercased copy, no split array).
+ * A token is a run of letters, digits and combining marks in any script, lowercased with
+ * Character.toLowerCase, optionally plural-stemmed, and kept if it is within the length
+ * bounds and not a stop word. Each thread keeps its scratch buffers and a small cache of
+ * term Strings, so the common (repeated) term costs no allocation at all; term ids are
+ * written into a reusable per-thread buffer.
+ *
+ * {@link #signature()} changes whenever the settings would produce different terms;
+ * anything that stores terms or term ids keys its data by it.
+ */
+@Component
+public class Tokenizer {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    // Bump when the scanning or stemming rules change
+    private static final int ALGORITHM_VERSION = 1;
+    private static final int TERM_CACHE_SIZE = 4096;
+
+    private boolean stemming;
+    private int minTermLength;
+    private int maxTermLength;
+    private Set<String> stopWords;
+    private String signature;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Term ids of one text in document order, duplicates included. The buffer belongs to
+     * the calling thread and is overwritten by its next {@link #termIds} call.
+     */
+    public static final class TermIds {
+        private int[] ids = new int[64];
+        private int size;
+
+        public int[] ids() { return ids; }
+        public int size() { return size; }
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    private final class Scratch {
+        char[] token = new char[Math.max(16, maxTermLength + 2)];
+        final String[] terms = new String[TERM_CACHE_SIZE];
+        final TermIds termIds = new TermIds();
+    }
+
+    @PostConstruct
+    public void init() {
+        TokenizerSettings settings = appConfig.getTokenizer();
+        stemming = settings.isStemming();
+        minTermLength = Math.max(1, settings.getMinTermLength());
+        maxTermLength = Math.max(minTermLength, settings.getMaxTermLength());
+        stopWords = new HashSet<>();
+        for (String word : settings.getStopWords()) {
+            stopWords.add(word.toLowerCase());
+        }
+        signature = "t" + ALGORITHM_VERSION + (stemming ? "s" : "") + "-" + minTermLength + "-" + maxTermLength
+            + "-" + Integer.toHexString(new TreeSet<>(stopWords).hashCode());
+    }
+
+    /**
+     * Identifies the settings; equal signatures produce equal terms for the same text
+     */
+    public String signature() {
+        return signature;
+    }
+
+    /**
+     * Feed every term of the text, in order and with duplicates, to the sink
+     */
+    public void forEachTerm(CharSequence text, Consumer<String> sink) {
+        scan(text, stemming, sink);
+    }
+
+    /**
+     * Distinct terms of the text in first-seen order, e.g. the terms of a query
+     */
+    public List<String> terms(CharSequence text) {
+        List<String> terms = new ArrayList<>();
+        forEachTerm(text, term -> {
+            if (!terms.contains(term)) terms.add(term);
+        });
+        return terms;
+    }
+
+    /**
+     * Distinct unstemmed words minus stop words, for handing to an external search engine
+     */
+    public List<String> keywords(CharSequence text) {
+        List<String> keywords = new ArrayList<>();
+        scan(text, false, word -> {
+            if (!keywords.contains(word)) keywords.add(word);
+        });
+        return keywords;
+    }
+
+    /**
+     * Ids of the text's terms in the calling thread's buffer. With intern, new terms are
+     * added to the dictionary; otherwise unknown terms are left out.
+     */
+    public TermIds termIds(CharSequence text, TermDictionary dictionary, boolean intern) {
+        TermIds out = scratch.get().termIds;
+        out.size = 0;
+        forEachTerm(text, term -> {
+            int id = intern ? dictionary.intern(term) : dictionary.lookup(term);
+            if (id != TermDictionary.UNKNOWN) out.add(id);
+        });
+        return out;
+    }
+
+    private void scan(CharSequence text, boolean stem, Consumer<String> sink) {
+        if (text == null) return;
+        Scratch s = scratch.get();
+        char[] token = s.token;
+        int length = 0;
+        // A token longer than the buffer is consumed but never emitted
+        boolean overflow = false;
+
+        int n = text.length();
+        for (int i = 0; i <= n; ) {
+            int cp;
+            if (i < n) {
+                cp = Character.codePointAt(text, i);
+                i += Character.charCount(cp);
+            } else {
+                cp = ' ';
+                i++;
+            }
+
+            if (isTokenChar(cp)) {
+                if (overflow) continue;
+                int lower = Character.toLowerCase(cp);
+                int width = Character.charCount(lower);
+                if (length + width > token.length) {
+                    overflow = true;
+                    continue;
+                }
+                if (width == 1) {
+                    token[length++] = (char) lower;
+                } else {
+                    length += Character.toChars(lower, token, length);
+                }
+                continue;
+            }
+
+            if (length > 0 && !overflow) {
+                emit(s, token, length, stem, sink);
+            }
+            length = 0;
+            overflow = false;
+        }
+    }
+
+    private void emit(Scratch s, char[] token, int length, boolean stem, Consumer<String> sink) {
+        if (length < minTermLength || length > maxTermLength) return;
+
+        // Stop words are matched before stemming ("this" is not the plural of "thi")
+        String term = cached(s, token, length);
+        if (stopWords.contains(term)) return;
+        if (stem) {
+            int stemmed = stemPlural(token, length);
+            if (stemmed != length) {
+                if (stemmed < minTermLength) return;
+                term = cached(s, token, stemmed);
+            }
+        }
+        sink.accept(term);
+    }
+
+    /**
+     * The token as a String, reusing the one from the thread's cache when it is the same term
+     */
+    private static String cached(Scratch s, char[] token, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + token[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (TERM_CACHE_SIZE - 1);
+        String term = s.terms[slot];
+        if (term == null || !sameChars(term, token, length)) {
+            term = new String(token, 0, length);
+            s.terms[slot] = term;
+        }
+        return term;
+    }
+
+    private static boolean sameChars(String term, char[] token, int length) {
+        if (term.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (term.charAt(i) != token[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isTokenChar(int cp) {
+        if (cp < 128) {
+            return (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z') || (cp >= '0' && cp <= '9');
+        }
+        if (Character.isLetterOrDigit(cp)) return true;
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    /**
+     * Harman's "S" stemmer: conservative plural folding that never touches non-plurals
+     * like "class" or "virus". Returns the new length.
+     */
+    static int stemPlural(char[] t, int length) {
+        if (length < 4 || t[length - 1] != 's') return length;
+        char c2 = t[length - 2];
+        if (c2 == 'u' || c2 == 's') return length;
+        if (length > 4 && c2 == 'e' && t[length - 3] == 'i' && t[length - 4] != 'e' && t[length - 4] != 'a') {
+            t[length - 3] = 'y';
+            return length - 2;
+        }
+        if (c2 == 'e' && (t[length - 3] == 'a' || t[length - 3] == 'e' || t[length - 3] == 'o')) {
+            return length;
+        }
+        return length - 1;
+    }
+}
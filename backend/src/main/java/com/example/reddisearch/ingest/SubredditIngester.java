@@ -0,0 +1,209 @@
+package com.example.reddisearch.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.Ingestion;
+import com.example.reddisearch.RedditScraperService;
+import com.example.reddisearch.RedditScraperService.Listing;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.VectorSearchService;
+import com.example.reddisearch.index.LocalPostIndex;
+import com.example.reddisearch.search.SearchKey;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls app.ingestion.subreddits' new.json in the background and feeds new posts into the
+ * local index, with term vectors (and embeddings) computed in batches off the request path.
+ *
+ * The first poll of a subreddit backfills up to max-pages-per-poll pages with "after"
+ * cursors. After that each poll asks only for posts newer than the newest one seen
+ * ("before" cursor). Each subreddit's interval tracks its post rate (an EWMA of new posts
+ * per second) so a poll returns about target-posts-per-poll posts: busy subreddits are
+ * polled often, quiet ones back off towards max-interval-seconds.
+ */
+@Component
+public class SubredditIngester {
+
+    private static final int PAGE_SIZE = 100;
+    // A cursor post that gets deleted makes "before" queries come back empty forever
+    private static final int IDLE_POLLS_BEFORE_RESEED = 3;
+
+    @Autowired
+    private RedditScraperService redditScraperService;
+
+    @Autowired
+    private LocalPostIndex localPostIndex;
+
+    @Autowired
+    private VectorSearchService vectorSearchService;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * Polling state of one subreddit; only touched by the scheduler thread
+     */
+    static final class Feed {
+        final String subreddit;
+        String newestFullname;
+        long newestCreatedUtc;
+        double postsPerSecond = -1;
+        long intervalMs;
+        long lastPollAt;
+        int idlePolls;
+
+        Feed(String subreddit, long intervalMs) {
+            this.subreddit = subreddit;
+            this.intervalMs = intervalMs;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Ingestion settings = appConfig.getIngestion();
+        if (!settings.isEnabled() || settings.getSubreddits().isEmpty()) return;
+
+        Set<String> subreddits = new LinkedHashSet<>();
+        for (String subreddit : settings.getSubreddits()) {
+            subreddits.add(SearchKey.normalizeSubreddit(subreddit));
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "subreddit-ingest");
+            t.setDaemon(true);
+            return t;
+        });
+        int i = 0;
+        for (String subreddit : subreddits) {
+            Feed feed = new Feed(subreddit, settings.getMinIntervalSeconds() * 1000);
+            // Stagger the initial backfills so they don't all hit Reddit at once
+            scheduler.schedule(() -> poll(feed), i++ * 2L, TimeUnit.SECONDS);
+        }
+        System.out.println("[Ingest] Polling " + subreddits.size() + " subreddits: " + subreddits);
+    }
+
+    private void poll(Feed feed) {
+        try {
+            pollOnce(feed);
+        } catch (RuntimeException e) {
+            System.err.println("[Ingest] Poll of r/" + feed.subreddit + " failed: " + e.getMessage());
+        } finally {
+            ScheduledExecutorService current = scheduler;
+            if (current != null && !current.isShutdown()) {
+                current.schedule(() -> poll(feed), feed.intervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Fetch, index and warm everything new since the last poll; returns the number of new posts
+     */
+    int pollOnce(Feed feed) {
+        Ingestion settings = appConfig.getIngestion();
+        long now = System.currentTimeMillis();
+        List<RedditPost> fresh = new ArrayList<>();
+        boolean complete = feed.newestFullname == null ? backfill(feed, settings, fresh) : fetchNewer(feed, settings, fresh);
+        if (!complete && fresh.isEmpty()) {
+            // Request failed or was rate limited; try again after the current interval
+            return 0;
+        }
+
+        for (int start = 0; start < fresh.size(); start += settings.getBatchSize()) {
+            List<RedditPost> batch = fresh.subList(start, Math.min(start + settings.getBatchSize(), fresh.size()));
+            localPostIndex.ingest(batch);
+            vectorSearchService.warmPosts(batch);
+        }
+
+        adaptInterval(feed, settings, fresh.size(), now);
+        if (!fresh.isEmpty()) {
+            System.out.println("[Ingest] r/" + feed.subreddit + ": " + fresh.size() + " new posts, next poll in "
+                + feed.intervalMs / 1000 + "s");
+        }
+        return fresh.size();
+    }
+
+    /**
+     * Newest pages via "after" cursors; stops at posts we already have (when reseeding)
+     */
+    private boolean backfill(Feed feed, Ingestion settings, List<RedditPost> fresh) {
+        long knownUntil = feed.newestCreatedUtc;
+        String after = null;
+        for (int page = 0; page < settings.getMaxPagesPerPoll(); page++) {
+            Listing listing = redditScraperService.fetchNewListing(feed.subreddit, null, after, PAGE_SIZE);
+            if (listing == null) return false;
+            if (page == 0 && listing.getNewestFullname() != null) {
+                feed.newestFullname = listing.getNewestFullname();
+                feed.newestCreatedUtc = Math.max(feed.newestCreatedUtc, listing.getNewestCreatedUtc());
+            }
+            for (RedditPost post : listing.getPosts()) {
+                if (post.getCreatedUtc() > knownUntil) fresh.add(post);
+            }
+            after = listing.getAfter();
+            if (after == null || listing.getRawCount() < PAGE_SIZE || listing.getOldestCreatedUtc() <= knownUntil) break;
+        }
+        feed.idlePolls = 0;
+        return true;
+    }
+
+    /**
+     * Pages of posts newer than the newest one seen, walking towards the present with "before"
+     */
+    private boolean fetchNewer(Feed feed, Ingestion settings, List<RedditPost> fresh) {
+        int seen = 0;
+        for (int page = 0; page < settings.getMaxPagesPerPoll(); page++) {
+            Listing listing = redditScraperService.fetchNewListing(feed.subreddit, feed.newestFullname, null, PAGE_SIZE);
+            if (listing == null) return seen > 0;
+            if (listing.getRawCount() == 0) break;
+
+            seen += listing.getRawCount();
+            fresh.addAll(listing.getPosts());
+            feed.newestFullname = listing.getNewestFullname();
+            feed.newestCreatedUtc = Math.max(feed.newestCreatedUtc, listing.getNewestCreatedUtc());
+            if (listing.getRawCount() < PAGE_SIZE) break;
+        }
+
+        if (seen > 0) {
+            feed.idlePolls = 0;
+        } else if (++feed.idlePolls >= IDLE_POLLS_BEFORE_RESEED) {
+            // Next poll re-reads the first page and keeps only posts newer than newestCreatedUtc
+            feed.newestFullname = null;
+        }
+        return true;
+    }
+
+    private static void adaptInterval(Feed feed, Ingestion settings, int newPosts, long now) {
+        long minMs = settings.getMinIntervalSeconds() * 1000;
+        long maxMs = Math.max(minMs, settings.getMaxIntervalSeconds() * 1000);
+        if (feed.lastPollAt > 0) {
+            double elapsedSeconds = Math.max(1, (now - feed.lastPollAt) / 1000.0);
+            double rate = newPosts / elapsedSeconds;
+            feed.postsPerSecond = feed.postsPerSecond < 0 ? rate : 0.5 * feed.postsPerSecond + 0.5 * rate;
+            long target = feed.postsPerSecond > 0
+                ? (long) (settings.getTargetPostsPerPoll() / feed.postsPerSecond * 1000)
+                : maxMs;
+            feed.intervalMs = Math.max(minMs, Math.min(maxMs, target));
+        }
+        feed.lastPollAt = now;
+    }
+
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService current = scheduler;
+        scheduler = null;
+        if (current != null) current.shutdownNow();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.reddisearch.llm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.Llm;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead in front of Ollama. At most app.llm.max-concurrent calls run at once (match it
+ * to OLLAMA_NUM_PARALLEL); everyone else waits in a bounded queue, interactive searches
+ * ahead of background work, first come first served within a priority.
+ *
+ * A caller that is not admitted within its priority's queue timeout, or finds the queue
+ * full, gets its fallback instead, so a burst of cache misses degrades to synthesized
+ * answers rather than every request timing out behind a serialized model. Work runs on
+ * the caller's own thread, which keeps streaming callbacks where they were.
+ */
+@Component
+public class LlmScheduler {
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    private enum Outcome { ADMITTED, TIMED_OUT, REJECTED }
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+    private final int[] queued = new int[Priority.values().length];
+    private long nextSequence;
+    private int active;
+
+    private static final class Ticket implements Comparable<Ticket> {
+        final Priority priority;
+        final long sequence;
+
+        Ticket(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("reddisearch.llm.queue.depth", this, s -> s.queuedCount(priority))
+                .description("LLM calls waiting for a slot")
+                .tag("priority", tag(priority))
+                .register(meterRegistry);
+        }
+        Gauge.builder("reddisearch.llm.active", this, LlmScheduler::activeCount)
+            .description("LLM calls currently running")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Run work once a slot is free, or return fallback's result if that takes longer than the
+     * priority's queue timeout or the queue is full
+     */
+    public <T> T call(Priority priority, Supplier<T> work, Supplier<T> fallback) {
+        Llm settings = appConfig.getLlm();
+        long timeoutMs = priority == Priority.INTERACTIVE
+            ? settings.getInteractiveQueueTimeoutMs()
+            : settings.getBackgroundQueueTimeoutMs();
+
+        long start = System.nanoTime();
+        Outcome outcome;
+        try {
+            outcome = acquire(priority, TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = Outcome.TIMED_OUT;
+        }
+        long waited = System.nanoTime() - start;
+        timer("reddisearch.llm.queue.wait", priority, outcome).record(waited, TimeUnit.NANOSECONDS);
+
+        if (outcome != Outcome.ADMITTED) {
+            System.out.println("[LLM] " + (outcome == Outcome.REJECTED ? "Queue full" : "No slot within " + timeoutMs + "ms")
+                + " for " + tag(priority) + " call, using fallback");
+            return fallback.get();
+        }
+        long runStart = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            release();
+            timer("reddisearch.llm.execution", priority, null).record(System.nanoTime() - runStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public int queuedCount(Priority priority) {
+        lock.lock();
+        try {
+            return queued[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int activeCount() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Outcome acquire(Priority priority, long timeoutNanos) throws InterruptedException {
+        Llm settings = appConfig.getLlm();
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && active < settings.getMaxConcurrent()) {
+                active++;
+                return Outcome.ADMITTED;
+            }
+            if (waiting.size() >= settings.getMaxQueued()) {
+                return Outcome.REJECTED;
+            }
+
+            Ticket ticket = new Ticket(priority, nextSequence++);
+            waiting.add(ticket);
+            queued[priority.ordinal()]++;
+            try {
+                long remaining = timeoutNanos;
+                // Only the head of the queue may take a free slot
+                while (waiting.peek() != ticket || active >= settings.getMaxConcurrent()) {
+                    if (remaining <= 0) return Outcome.TIMED_OUT;
+                    remaining = changed.awaitNanos(remaining);
+                }
+                active++;
+                return Outcome.ADMITTED;
+            } finally {
+                waiting.remove(ticket);
+                queued[priority.ordinal()]--;
+                // A new head (or the one behind a timed-out ticket) may now be able to go
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            active--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Timer timer(String name, Priority priority, Outcome outcome) {
+        Timer.Builder builder = Timer.builder(name).tag("priority", tag(priority));
+        if (outcome != null) {
+            builder.tag("outcome", outcome.name().toLowerCase());
+        }
+        return builder.register(meterRegistry);
+    }
+
+    private static String tag(Priority priority) {
+        return priority.name().toLowerCase();
+    }
+}
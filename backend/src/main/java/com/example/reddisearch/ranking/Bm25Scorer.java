@@ -0,0 +1,53 @@
+package com.example.reddisearch.ranking;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.vector.SparseVector;
+
+/**
+ * Okapi BM25 with the usual saturating term frequency and document length normalisation
+ */
+@Component("bm25")
+public class Bm25Scorer implements RelevanceScorer {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Override
+    public PreparedQuery prepare(SparseVector query, CorpusStatistics stats) {
+        double k1 = appConfig.getRanking().getK1();
+        double b = appConfig.getRanking().getB();
+        int n = stats.documentCount();
+        double avgLength = stats.averageDocumentLength();
+
+        float[] queryWeights = new float[query.size()];
+        for (int i = 0; i < query.size(); i++) {
+            int df = Math.min(stats.documentFrequency(query.termId(i)), n);
+            double idf = Math.log(1.0 + (n - df + 0.5) / (df + 0.5));
+            queryWeights[i] = (float) (idf * query.weight(i));
+        }
+
+        return document -> {
+            double length = document.weightSum();
+            double lengthNorm = avgLength > 0 ? 1.0 - b + b * length / avgLength : 1.0;
+            double score = 0.0;
+
+            int i = 0, j = 0;
+            while (i < query.size() && j < document.size()) {
+                int qt = query.termId(i), dt = document.termId(j);
+                if (qt == dt) {
+                    double tf = document.weight(j);
+                    score += queryWeights[i] * tf * (k1 + 1) / (tf + k1 * lengthNorm);
+                    i++;
+                    j++;
+                } else if (qt < dt) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return score;
+        };
+    }
+}
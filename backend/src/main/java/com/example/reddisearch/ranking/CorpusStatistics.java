@@ -0,0 +1,14 @@
+package com.example.reddisearch.ranking;
+
+/**
+ * Corpus-wide term statistics used to weight terms by rarity.
+ * Implementations may return slightly stale values while documents are being ingested.
+ */
+public interface CorpusStatistics {
+
+    int documentCount();
+
+    int documentFrequency(int termId);
+
+    double averageDocumentLength();
+}
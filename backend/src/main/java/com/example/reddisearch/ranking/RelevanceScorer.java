@@ -0,0 +1,20 @@
+package com.example.reddisearch.ranking;
+
+import com.example.reddisearch.vector.SparseVector;
+
+/**
+ * Scores documents against a query. Both vectors hold raw term frequencies keyed by term id.
+ * Implementations are registered as Spring beans and selected by name via app.ranking.scorer.
+ */
+public interface RelevanceScorer {
+
+    /**
+     * Resolve per-query state (e.g. IDF weights of the query terms) once, so that each
+     * candidate document is then scored in a single pass.
+     */
+    PreparedQuery prepare(SparseVector query, CorpusStatistics stats);
+
+    interface PreparedQuery {
+        double score(SparseVector document);
+    }
+}
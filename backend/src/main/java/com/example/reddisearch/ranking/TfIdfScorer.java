@@ -0,0 +1,51 @@
+package com.example.reddisearch.ranking;
+
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.vector.SparseVector;
+
+/**
+ * Cosine similarity of sublinear TF-IDF vectors: (1 + ln tf) * (ln((N + 1) / (df + 1)) + 1)
+ */
+@Component("tfidf")
+public class TfIdfScorer implements RelevanceScorer {
+
+    @Override
+    public PreparedQuery prepare(SparseVector query, CorpusStatistics stats) {
+        int n = stats.documentCount();
+
+        float[] queryWeights = new float[query.size()];
+        double queryNormSq = 0.0;
+        for (int i = 0; i < query.size(); i++) {
+            queryWeights[i] = (float) (tf(query.weight(i)) * idf(stats.documentFrequency(query.termId(i)), n));
+            queryNormSq += (double) queryWeights[i] * queryWeights[i];
+        }
+        double queryNorm = Math.sqrt(queryNormSq);
+
+        return document -> {
+            if (queryNorm == 0.0) return 0.0;
+
+            double dot = 0.0;
+            double docNormSq = 0.0;
+            int i = 0;
+            for (int j = 0; j < document.size(); j++) {
+                int dt = document.termId(j);
+                double w = tf(document.weight(j)) * idf(stats.documentFrequency(dt), n);
+                docNormSq += w * w;
+
+                while (i < query.size() && query.termId(i) < dt) i++;
+                if (i < query.size() && query.termId(i) == dt) {
+                    dot += queryWeights[i] * w;
+                }
+            }
+            return docNormSq == 0.0 ? 0.0 : dot / (queryNorm * Math.sqrt(docNormSq));
+        };
+    }
+
+    private static double tf(float rawFrequency) {
+        return rawFrequency > 0 ? 1.0 + Math.log(rawFrequency) : 0.0;
+    }
+
+    private static double idf(int documentFrequency, int documentCount) {
+        return Math.log((documentCount + 1.0) / (Math.min(documentFrequency, documentCount) + 1.0)) + 1.0;
+    }
+}
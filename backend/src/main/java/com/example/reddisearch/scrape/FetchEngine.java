@@ -0,0 +1,129 @@
+package com.example.reddisearch.scrape;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent outbound requests concurrently and gathers whatever finished by a deadline.
+ *
+ * Each request names its host. At most app.fetch.max-concurrent-per-host requests run against
+ * one host at a time, counted across all callers. Nested fan-outs pass their deadline down
+ * unchanged, so an inner search never outlives the outer one. Requests run on virtual
+ * threads when the JVM has them (21+); otherwise they use a daemon thread pool.
+ */
+@Component
+public class FetchEngine {
+
+    /**
+     * A unit of work against one host; a null host is not rate limited (e.g. a nested fan-out)
+     */
+    public static final class Request<T> {
+        private final String host;
+        private final Callable<T> call;
+
+        private Request(String host, Callable<T> call) {
+            this.host = host;
+            this.call = call;
+        }
+
+        public static <T> Request<T> of(String host, Callable<T> call) {
+            return new Request<>(host, call);
+        }
+
+        public String getHost() { return host; }
+    }
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private final ExecutorService executor = newExecutor();
+    private final ConcurrentHashMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    /**
+     * Deadline (System.nanoTime based) timeoutMs from now
+     */
+    public static long deadline(long timeoutMs) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * Run all requests concurrently. Results are returned in request order. A request that
+     * failed or missed the deadline gets null; late ones are cancelled.
+     */
+    public <T> List<T> fetchAll(List<Request<T>> requests, long deadlineNanos) {
+        List<Future<T>> futures = new ArrayList<>(requests.size());
+        for (Request<T> request : requests) {
+            futures.add(executor.submit(() -> run(request, deadlineNanos)));
+        }
+
+        List<T> results = new ArrayList<>(requests.size());
+        int missed = 0;
+        for (Future<T> future : futures) {
+            T result = null;
+            try {
+                result = future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                missed++;
+            } catch (ExecutionException e) {
+                missed++;
+                System.err.println("[Fetch] Request failed: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                missed++;
+            } catch (CancellationException e) {
+                missed++;
+            }
+            results.add(result);
+        }
+
+        for (Future<T> future : futures) {
+            future.cancel(true);
+        }
+        if (missed > 0) {
+            System.out.println("[Fetch] " + (requests.size() - missed) + "/" + requests.size() + " requests completed before the deadline");
+        }
+        return results;
+    }
+
+    private <T> T run(Request<T> request, long deadlineNanos) throws Exception {
+        Semaphore permits = request.host == null ? null
+            : hostPermits.computeIfAbsent(request.host, h -> new Semaphore(appConfig.getFetch().getMaxConcurrentPerHost()));
+        if (permits != null && !permits.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException("No free slot for " + request.host + " before the deadline");
+        }
+        try {
+            if (System.nanoTime() >= deadlineNanos) {
+                throw new TimeoutException("Deadline passed before the request started");
+            }
+            return request.call.call();
+        } finally {
+            if (permits != null) permits.release();
+        }
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            // Java 21+: one cheap virtual thread per request
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "reddit-fetch-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
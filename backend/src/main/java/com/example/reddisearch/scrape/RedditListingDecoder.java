@@ -0,0 +1,145 @@
+package com.example.reddisearch.scrape;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.example.reddisearch.RedditScraperService.Listing;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a Reddit listing (search.json, new.json, ...) token by token off the response stream.
+ *
+ * A listing page is mostly fields we never read (preview images, awardings, media embeds,
+ * flair), so instead of materializing the whole JsonNode tree only the handful of post
+ * fields are kept and every other value is skipped in place. Filtering matches what the
+ * search path has always done: deleted/removed posts and empty zero-engagement posts are
+ * dropped, but still count towards the page's raw size and cursors.
+ */
+public final class RedditListingDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private RedditListingDecoder() {
+    }
+
+    /**
+     * Decode one listing page; post urls are baseUrl + permalink
+     */
+    public static Listing decode(InputStream in, String defaultSubreddit, String baseUrl) throws IOException {
+        try (JsonParser parser = JSON.createParser(in)) {
+            PageState page = new PageState();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a listing object, got " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("data".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    readListingData(parser, page, defaultSubreddit, baseUrl);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new Listing(page.posts, page.rawCount, page.newestFullname,
+                page.newestCreatedUtc, page.oldestCreatedUtc, page.after);
+        }
+    }
+
+    private static final class PageState {
+        final List<RedditPost> posts = new ArrayList<>();
+        int rawCount;
+        String newestFullname;
+        long newestCreatedUtc;
+        long oldestCreatedUtc;
+        String after;
+    }
+
+    private static void readListingData(JsonParser parser, PageState page, String defaultSubreddit,
+                                        String baseUrl) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("after".equals(field)) {
+                page.after = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+            } else if ("children".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readChild(parser, page, defaultSubreddit, baseUrl);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * One {"kind": "t3", "data": {...}} element; leaves the parser on its END_OBJECT
+     */
+    private static void readChild(JsonParser parser, PageState page, String defaultSubreddit,
+                                  String baseUrl) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("data".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                readPost(parser, page, defaultSubreddit, baseUrl);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readPost(JsonParser parser, PageState page, String defaultSubreddit,
+                                 String baseUrl) throws IOException {
+        String title = "";
+        String content = "";
+        String permalink = "";
+        String subreddit = defaultSubreddit;
+        int score = 0;
+        int comments = 0;
+        String fullname = null;
+        long createdUtc = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            if (value == JsonToken.VALUE_NULL) continue;
+            switch (field) {
+                case "title": title = parser.getText(); break;
+                case "selftext": content = parser.getText(); break;
+                case "permalink": permalink = parser.getText(); break;
+                case "subreddit": subreddit = parser.getText(); break;
+                case "score": score = parser.getValueAsInt(0); break;
+                case "num_comments": comments = parser.getValueAsInt(0); break;
+                case "name": fullname = parser.getText(); break;
+                case "created_utc": createdUtc = parser.getValueAsLong(0); break;
+                default: break;
+            }
+        }
+
+        if (page.rawCount++ == 0) {
+            page.newestFullname = fullname;
+            page.newestCreatedUtc = createdUtc;
+        }
+        page.oldestCreatedUtc = createdUtc;
+
+        // Skip deleted or removed posts
+        if (title.equals("[deleted]") || title.equals("[removed]") ||
+            content.equals("[deleted]") || content.equals("[removed]")) {
+            return;
+        }
+
+        // Only include posts with some content or reasonable engagement
+        if (!title.trim().isEmpty() && (score > 0 || comments > 0 || !content.trim().isEmpty())) {
+            page.posts.add(new RedditPost(title, content, baseUrl + permalink, subreddit, score, comments,
+                fullname, createdUtc));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.reddisearch.scrape;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.RateLimit;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Token bucket in front of every outbound Reddit request. Callers wait only as long as the
+ * bucket requires, and nothing at all while tokens are available.
+ *
+ * The bucket lives in Redis, updated atomically by a Lua script on Redis' clock, so the
+ * limit holds across instances. If Redis is unreachable, an equivalent in-JVM bucket is
+ * used for a while before retrying Redis. Reddit's X-Ratelimit-Remaining/Reset headers
+ * (and 429s) can pause the bucket until the reported reset, for every instance.
+ */
+@Component
+public class RedditRateLimiter {
+
+    private static final String BUCKET_KEY = "reddit_rate_limit";
+    private static final String PAUSE_KEY = "reddit_rate_limit:paused";
+    private static final long REDIS_RETRY_MS = 30_000;
+    private static final long DEFAULT_PAUSE_MS = 60_000;
+
+    // Returns 0 if a token was taken, otherwise ms until one is available (nothing is taken)
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+        "local paused = redis.call('PTTL', KEYS[2])\n" +
+        "if paused > 0 then return paused end\n" +
+        "local capacity = tonumber(ARGV[1])\n" +
+        "local rate = tonumber(ARGV[2])\n" +
+        "local time = redis.call('TIME')\n" +
+        "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+        "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n" +
+        "local tokens = tonumber(state[1]) or capacity\n" +
+        "local ts = tonumber(state[2]) or now\n" +
+        "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)\n" +
+        "local wait = 0\n" +
+        "if tokens >= 1 then tokens = tokens - 1 else wait = math.ceil((1 - tokens) / rate) end\n" +
+        "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))\n" +
+        "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000)\n" +
+        "return wait", Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private final List<String> keys = Arrays.asList(BUCKET_KEY, PAUSE_KEY);
+
+    // Local bucket, used when not distributed or while Redis is unreachable
+    private double localTokens = -1;
+    private long localRefilledAt;
+    private volatile long localPausedUntil;
+    private volatile long redisRetryAt;
+
+    /**
+     * Take a token, sleeping as long as needed. False if that would exceed app.rate-limit.max-wait-ms
+     * or the thread is interrupted; the caller should then skip the request.
+     */
+    public boolean acquire() {
+        RateLimit settings = appConfig.getRateLimit();
+        if (!settings.isEnabled()) return true;
+
+        long waited = 0;
+        while (true) {
+            long wait = tryAcquire(settings);
+            if (wait <= 0) {
+                if (waited > 0) System.out.println("[RateLimit] Waited " + waited + "ms for a Reddit token");
+                return true;
+            }
+            if (waited + wait > settings.getMaxWaitMs()) {
+                System.err.println("[RateLimit] Next Reddit token in " + wait + "ms, skipping request");
+                return false;
+            }
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            waited += wait;
+        }
+    }
+
+    /**
+     * Apply Reddit's view of our quota: pause everyone until the reset once it is used up
+     */
+    public void observe(int statusCode, HttpHeaders headers) {
+        double remaining = parseHeader(headers.firstValue("X-Ratelimit-Remaining").orElse(null));
+        double resetSeconds = parseHeader(headers.firstValue("X-Ratelimit-Reset").orElse(null));
+
+        if (statusCode == 429) {
+            pause(resetSeconds > 0 ? (long) (resetSeconds * 1000) : DEFAULT_PAUSE_MS);
+        } else if (remaining >= 0 && remaining < 1 && resetSeconds > 0) {
+            pause((long) (resetSeconds * 1000));
+        }
+    }
+
+    private long tryAcquire(RateLimit settings) {
+        double ratePerMs = settings.getRequestsPerMinute() / 60_000.0;
+        int capacity = Math.max(1, settings.getBurst());
+
+        if (settings.isDistributed() && System.currentTimeMillis() >= redisRetryAt) {
+            try {
+                Long wait = redisTemplate.execute(ACQUIRE_SCRIPT, keys, String.valueOf(capacity), String.valueOf(ratePerMs));
+                if (wait != null) return wait;
+            } catch (RuntimeException e) {
+                redisRetryAt = System.currentTimeMillis() + REDIS_RETRY_MS;
+                System.err.println("[RateLimit] Redis unavailable, using the local bucket: " + e.getMessage());
+            }
+        }
+        return tryAcquireLocal(capacity, ratePerMs);
+    }
+
+    private synchronized long tryAcquireLocal(int capacity, double ratePerMs) {
+        long now = System.currentTimeMillis();
+        if (now < localPausedUntil) return localPausedUntil - now;
+
+        if (localTokens < 0) {
+            localTokens = capacity;
+        } else {
+            localTokens = Math.min(capacity, localTokens + (now - localRefilledAt) * ratePerMs);
+        }
+        localRefilledAt = now;
+        if (localTokens >= 1) {
+            localTokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - localTokens) / ratePerMs);
+    }
+
+    private void pause(long millis) {
+        System.out.println("[RateLimit] Reddit quota exhausted, pausing requests for " + millis + "ms");
+        localPausedUntil = Math.max(localPausedUntil, System.currentTimeMillis() + millis);
+        if (appConfig.getRateLimit().isDistributed() && System.currentTimeMillis() >= redisRetryAt) {
+            try {
+                redisTemplate.opsForValue().set(PAUSE_KEY, "1", Duration.ofMillis(millis));
+            } catch (RuntimeException e) {
+                redisRetryAt = System.currentTimeMillis() + REDIS_RETRY_MS;
+            }
+        }
+    }
+
+    /**
+     * Reddit sends these as decimal strings ("598.0"); -1 if absent or malformed
+     */
+    private static double parseHeader(String value) {
+        if (value == null) return -1;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
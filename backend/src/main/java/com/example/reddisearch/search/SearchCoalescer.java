@@ -0,0 +1,217 @@
+package com.example.reddisearch.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.Coalescing;
+import com.example.reddisearch.VectorSearchService;
+import com.example.reddisearch.VectorSearchService.ProgressListener;
+import com.example.reddisearch.VectorSearchService.SearchResult;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-flight in front of VectorSearchService.answerQueryWithDetails: concurrent requests
+ * with the same SearchKey share one computation.
+ *
+ * Within the JVM the first caller registers a future and the rest join it; streaming
+ * searches register and join the same way. Across instances the leader also takes a Redis
+ * lease (SET NX PX). An instance that finds the lease held waits for the holder's result
+ * to appear in the vectorSearchResults cache. It computes the result itself if the lease
+ * goes away without one, or after followerWaitMs, which is far shorter than the lease so a
+ * slow holder never parks request threads for minutes. Any Redis failure degrades to
+ * local-only coalescing.
+ */
+@Component
+public class SearchCoalescer {
+
+    private static final String LEASE_PREFIX = "search_lease:";
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    @Autowired
+    private VectorSearchService vectorSearchService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<SearchKey, CompletableFuture<SearchResult>> inFlight = new ConcurrentHashMap<>();
+
+    public SearchResult search(String query, String subreddit) {
+        if (!appConfig.getCoalescing().isEnabled()) {
+            return vectorSearchService.answerQueryWithDetails(query, subreddit);
+        }
+
+        SearchKey key = SearchKey.of(query, subreddit);
+        CompletableFuture<SearchResult> mine = new CompletableFuture<>();
+        CompletableFuture<SearchResult> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            System.out.println("[Coalesce] Joining in-flight search for \"" + key.getQuery() + "\"");
+            try {
+                return leader.join();
+            } catch (CancellationException e) {
+                // A streaming leader whose client went away has no full answer to share
+                return computeOnce(key, query, subreddit);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            SearchResult result = computeOnce(key, query, subreddit);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Streaming variant: cached results and identical in-flight searches are reused (with no
+     * token events); otherwise the pipeline runs with the listener and its result is cached
+     * for later searches. A streamed search is registered in-flight so identical searches,
+     * streamed or not, join it; it takes no cross-instance lease, since its listener cannot
+     * be shared with another instance.
+     */
+    public SearchResult searchStreaming(String query, String subreddit, ProgressListener listener) {
+        SearchKey key = SearchKey.of(query, subreddit);
+        SearchResult cached = cachedResult(key);
+        if (cached != null) return cached;
+
+        CompletableFuture<SearchResult> mine = null;
+        if (appConfig.getCoalescing().isEnabled()) {
+            mine = new CompletableFuture<>();
+            CompletableFuture<SearchResult> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                mine = null;
+                System.out.println("[Coalesce] Stream joining in-flight search for \"" + key.getQuery() + "\"");
+                try {
+                    return running.join();
+                } catch (CancellationException | CompletionException e) {
+                    // The other request failed or was abandoned; try on our own
+                }
+            }
+        }
+
+        try {
+            SearchResult result = vectorSearchService.answerQueryStreaming(query, subreddit, listener);
+            if (listener.isCancelled()) {
+                if (mine != null) mine.cancel(false);
+                return result;
+            }
+            if (mine != null) mine.complete(result);
+            if (result.getPostsFound() > 0) {
+                Cache cache = cacheManager.getCache(VectorSearchService.SEARCH_RESULTS_CACHE);
+                try {
+                    if (cache != null) cache.put(key.toString(), result);
+                } catch (RuntimeException e) {
+                    System.err.println("[Coalesce] Error caching streamed result: " + e.getMessage());
+                }
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (mine != null) mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (mine != null) inFlight.remove(key, mine);
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Cache hit, else compute under the cross-instance lease (or wait for its holder)
+     */
+    private SearchResult computeOnce(SearchKey key, String query, String subreddit) {
+        SearchResult cached = cachedResult(key);
+        if (cached != null) return cached;
+
+        Coalescing settings = appConfig.getCoalescing();
+        if (!settings.isDistributed()) {
+            return vectorSearchService.answerQueryWithDetails(query, subreddit);
+        }
+
+        String leaseKey = LEASE_PREFIX + key;
+        long deadline = System.currentTimeMillis() + Math.min(settings.getFollowerWaitMs(), settings.getLeaseMs());
+        while (true) {
+            Boolean acquired = tryAcquire(leaseKey, settings.getLeaseMs());
+            if (acquired == null || acquired) {
+                // Lease held (or Redis unavailable, in which case there is nothing to coordinate)
+                try {
+                    return vectorSearchService.answerQueryWithDetails(query, subreddit);
+                } finally {
+                    if (acquired != null) release(leaseKey);
+                }
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                System.out.println("[Coalesce] Lease holder for \"" + key.getQuery() + "\" too slow, computing locally");
+                return vectorSearchService.answerQueryWithDetails(query, subreddit);
+            }
+            try {
+                Thread.sleep(settings.getPollIntervalMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return vectorSearchService.answerQueryWithDetails(query, subreddit);
+            }
+            cached = cachedResult(key);
+            if (cached != null) {
+                System.out.println("[Coalesce] Reused result computed by another instance");
+                return cached;
+            }
+        }
+    }
+
+    private SearchResult cachedResult(SearchKey key) {
+        Cache cache = cacheManager.getCache(VectorSearchService.SEARCH_RESULTS_CACHE);
+        if (cache == null) return null;
+        try {
+            return cache.get(key.toString(), SearchResult.class);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * True if acquired, false if another holder has it, null if Redis is unavailable
+     */
+    private Boolean tryAcquire(String leaseKey, long leaseMs) {
+        try {
+            return Boolean.TRUE.equals(
+                redisTemplate.opsForValue().setIfAbsent(leaseKey, instanceId, Duration.ofMillis(leaseMs)));
+        } catch (RuntimeException e) {
+            System.err.println("[Coalesce] Lease unavailable, coalescing locally only: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void release(String leaseKey) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(leaseKey), instanceId);
+        } catch (RuntimeException e) {
+            System.err.println("[Coalesce] Error releasing lease: " + e.getMessage());
+        }
+    }
+}
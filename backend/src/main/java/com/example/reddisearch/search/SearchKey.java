@@ -0,0 +1,75 @@
+package com.example.reddisearch.search;
+
+import java.util.Locale;
+
+/**
+ * Normalized identity of a search: requests with equal keys get the same answer, so the
+ * key is shared by the vectorSearchResults cache, request coalescing and the answer cache.
+ */
+public final class SearchKey {
+
+    private final String query;
+    private final String subreddit;
+
+    private SearchKey(String query, String subreddit) {
+        this.query = query;
+        this.subreddit = subreddit;
+    }
+
+    public static SearchKey of(String query, String subreddit) {
+        return new SearchKey(normalizeQuery(query), normalizeSubreddit(subreddit));
+    }
+
+    /**
+     * Lowercase, punctuation stripped, whitespace collapsed
+     */
+    public static String normalizeQuery(String query) {
+        if (query == null) return "";
+        StringBuilder normalized = new StringBuilder(query.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) normalized.append(' ');
+                normalized.append(Character.toLowerCase(c));
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Subreddit names are case-insensitive; no subreddit means r/all
+     */
+    public static String normalizeSubreddit(String subreddit) {
+        if (subreddit == null || subreddit.isBlank()) return "all";
+        String name = subreddit.trim().toLowerCase(Locale.ROOT);
+        return name.startsWith("r/") ? name.substring(2) : name;
+    }
+
+    public String getQuery() { return query; }
+    public String getSubreddit() { return subreddit; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SearchKey)) return false;
+        SearchKey other = (SearchKey) o;
+        return query.equals(other.query) && subreddit.equals(other.subreddit);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * query.hashCode() + subreddit.hashCode();
+    }
+
+    /**
+     * Stable string form, used as the cache key
+     */
+    @Override
+    public String toString() {
+        return subreddit + "|" + query;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.reddisearch.search;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage timing of the search pipeline, so a latency regression can be pinned on one stage.
+ *
+ * reddisearch.search.stage is tagged by stage, reddisearch.search.duration by how the search
+ * ended; reddisearch.search.posts counts what each retrieval stage produced. Percentile
+ * histograms are switched on in application.yml and scraped from /actuator/prometheus.
+ */
+@Component
+public class SearchMetrics {
+
+    public enum Stage { STAGE1_SCRAPE, FILTER, SUBREDDIT_SELECTION, STAGE3_SCRAPE, VECTORIZATION, RANKING, LLM }
+
+    public enum Outcome { ANSWERED, NO_POSTS, NO_MATCH, ERROR }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<Stage, DistributionSummary> postCounts = new EnumMap<>(Stage.class);
+    private DistributionSummary promptTokens;
+
+    @PostConstruct
+    public void registerMetrics() {
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("reddisearch.search.stage")
+                .description("Time spent in one stage of the search pipeline")
+                .tag("stage", tag(stage))
+                .register(meterRegistry));
+            postCounts.put(stage, DistributionSummary.builder("reddisearch.search.posts")
+                .description("Posts a search stage produced")
+                .baseUnit("posts")
+                .tag("stage", tag(stage))
+                .register(meterRegistry));
+        }
+        promptTokens = DistributionSummary.builder("reddisearch.llm.prompt.tokens")
+            .description("Estimated tokens in each answer prompt")
+            .baseUnit("tokens")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Run one stage, recording its duration whether it returns or throws
+     */
+    public <T> T time(Stage stage, Supplier<T> work) {
+        return stageTimers.get(stage).record(work);
+    }
+
+    public void recordPosts(Stage stage, int count) {
+        postCounts.get(stage).record(count);
+    }
+
+    public void recordPromptTokens(int tokens) {
+        promptTokens.record(tokens);
+    }
+
+    /**
+     * End-to-end time of a search that started at startNanos (System.nanoTime)
+     */
+    public void recordSearch(long startNanos, Outcome outcome) {
+        Timer.builder("reddisearch.search.duration")
+            .description("End-to-end time of an uncached search")
+            .tag("outcome", outcome.name().toLowerCase())
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String tag(Stage stage) {
+        return stage.name().toLowerCase();
+    }
+}
@@ -0,0 +1,513 @@
+package com.example.reddisearch.vector;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest-neighbour search over
+ * dense embeddings, using cosine similarity (vectors are L2-normalised on insert).
+ * Supports incremental inserts and replacing a node's vector; searches run concurrently
+ * under a read lock while each insert briefly takes the write lock.
+ *
+ * Vector rows live on the heap by default, or in a MappedVectorStore keyed by id so that
+ * only the graph links stay on the heap and the rows can be reloaded after a restart.
+ */
+public class HnswIndex {
+
+    private final int dimension;
+    private final int maxConnections;
+    private final int maxConnectionsLayer0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Integer> nodesById = new HashMap<>();
+    private final MappedVectorStore rowStore;
+    private FloatBuffer[] vectors = new FloatBuffer[1024];
+    private int[] ids = new int[1024];
+    // neighbors[node][layer] = neighbour node indexes; neighborCounts[node][layer] = how many are used
+    private int[][][] neighbors = new int[1024][][];
+    private int[][] neighborCounts = new int[1024][];
+    private int size;
+    private int entryPoint = -1;
+    private int topLayer = -1;
+
+    private final ThreadLocal<VisitedSet> visited = ThreadLocal.withInitial(VisitedSet::new);
+
+    /**
+     * A search result: caller-supplied id and cosine similarity to the query
+     */
+    public static final class Neighbor {
+        private final int id;
+        private final float similarity;
+
+        Neighbor(int id, float similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public int getId() { return id; }
+        public float getSimilarity() { return similarity; }
+    }
+
+    public HnswIndex(int dimension, int maxConnections, int efConstruction) {
+        this(dimension, maxConnections, efConstruction, null);
+    }
+
+    public HnswIndex(int dimension, int maxConnections, int efConstruction, MappedVectorStore rowStore) {
+        this.dimension = dimension;
+        this.rowStore = rowStore;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsLayer0 = maxConnections * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(maxConnections);
+    }
+
+    public int dimension() { return dimension; }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return nodesById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert a vector under the given id, or replace the vector of a known id and relink
+     * its node. With a row store, the vector replaces any row already stored under the id.
+     */
+    public void add(int id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("expected dimension " + dimension + " but got " + vector.length);
+        }
+        insert(id, normalize(vector), true);
+    }
+
+    /**
+     * Insert the row the row store already holds for the id (after a restart), without
+     * appending it again
+     */
+    public void addStored(int id) {
+        FloatBuffer row = rowStore != null ? rowStore.getFloats(id) : null;
+        if (row == null || row.remaining() != dimension) {
+            throw new IllegalArgumentException("no stored row of dimension " + dimension + " for id " + id);
+        }
+        // Stored rows are already normalized
+        float[] normalized = new float[dimension];
+        row.get(normalized);
+        insert(id, normalized, false);
+    }
+
+    private void insert(int id, float[] normalized, boolean writeRow) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesById.get(id);
+            if (existing != null) {
+                // A stored row is the one the node already has
+                if (writeRow) relink(existing, id, normalized);
+                return;
+            }
+
+            int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+            int node = allocate(id, storeRow(id, normalized, writeRow), level);
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                topLayer = level;
+                return;
+            }
+
+            int current = entryPoint;
+            for (int layer = topLayer; layer > level; layer--) {
+                current = greedyClosest(normalized, current, layer);
+            }
+
+            for (int layer = Math.min(level, topLayer); layer >= 0; layer--) {
+                NodeHeap candidates = searchLayer(normalized, current, efConstruction, layer, null, Integer.MAX_VALUE);
+                int maxConn = layer == 0 ? maxConnectionsLayer0 : maxConnections;
+                int[] selected = selectNeighbors(candidates, maxConnections);
+
+                for (int neighbor : selected) {
+                    link(node, neighbor, layer, maxConn);
+                    link(neighbor, node, layer, maxConn);
+                }
+                current = candidates.best();
+            }
+
+            if (level > topLayer) {
+                topLayer = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Give a node a new vector and choose its neighbours again on every layer it is on.
+     * Links other nodes hold to it are kept and get pruned by distance as usual.
+     */
+    private void relink(int node, int id, float[] normalized) {
+        vectors[node] = storeRow(id, normalized, true);
+        int level = neighbors[node].length - 1;
+        IntPredicate others = other -> other != id;
+
+        int current = entryPoint;
+        for (int layer = topLayer; layer > level; layer--) {
+            current = greedyClosest(normalized, current, layer);
+        }
+
+        for (int layer = level; layer >= 0; layer--) {
+            NodeHeap candidates = searchLayer(normalized, current, efConstruction, layer, others, Integer.MAX_VALUE);
+            if (candidates.isEmpty()) continue;
+            int maxConn = layer == 0 ? maxConnectionsLayer0 : maxConnections;
+            int[] selected = selectNeighbors(candidates, maxConnections);
+
+            neighborCounts[node][layer] = 0;
+            for (int neighbor : selected) {
+                link(node, neighbor, layer, maxConn);
+                link(neighbor, node, layer, maxConn);
+            }
+            current = candidates.best();
+        }
+    }
+
+    /**
+     * Approximate k nearest neighbours of the query, best first. Only ids accepted by the
+     * filter (if any) are returned; rejected nodes are still traversed.
+     */
+    public List<Neighbor> search(float[] query, int k, int ef, IntPredicate filter) {
+        float[] normalized = normalize(query);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) return new ArrayList<>();
+
+            int current = entryPoint;
+            for (int layer = topLayer; layer > 0; layer--) {
+                current = greedyClosest(normalized, current, layer);
+            }
+
+            // With a selective filter the result heap fills slowly; bound the walk
+            int maxVisits = filter == null ? Integer.MAX_VALUE : Math.max(ef * 20, 2000);
+            NodeHeap results = searchLayer(normalized, current, Math.max(ef, k), 0, filter, maxVisits);
+
+            int[] order = results.sortedDescending();
+            List<Neighbor> neighbors = new ArrayList<>(Math.min(k, order.length));
+            for (int i = 0; i < order.length && neighbors.size() < k; i++) {
+                neighbors.add(new Neighbor(ids[results.nodeAt(order[i])], results.scoreAt(order[i])));
+            }
+            return neighbors;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private FloatBuffer storeRow(int id, float[] normalized, boolean write) {
+        if (rowStore == null) {
+            return FloatBuffer.wrap(normalized);
+        }
+        if (write) {
+            rowStore.putFloats(id, normalized);
+        }
+        return rowStore.getFloats(id);
+    }
+
+    private int allocate(int id, FloatBuffer vector, int level) {
+        if (size == vectors.length) {
+            int capacity = size * 2;
+            vectors = Arrays.copyOf(vectors, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            neighbors = Arrays.copyOf(neighbors, capacity);
+            neighborCounts = Arrays.copyOf(neighborCounts, capacity);
+        }
+        int node = size++;
+        vectors[node] = vector;
+        ids[node] = id;
+        neighbors[node] = new int[level + 1][];
+        neighborCounts[node] = new int[level + 1];
+        for (int layer = 0; layer <= level; layer++) {
+            neighbors[node][layer] = new int[(layer == 0 ? maxConnectionsLayer0 : maxConnections) + 1];
+        }
+        nodesById.put(id, node);
+        return node;
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float best = dot(query, vectors[current]);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] links = neighbors[current][layer];
+            int count = neighborCounts[current][layer];
+            for (int i = 0; i < count; i++) {
+                float similarity = dot(query, vectors[links[i]]);
+                if (similarity > best) {
+                    best = similarity;
+                    current = links[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer. Returns up to ef accepted nodes in a min-heap.
+     */
+    private NodeHeap searchLayer(float[] query, int entry, int ef, int layer, IntPredicate filter, int maxVisits) {
+        VisitedSet seen = visited.get();
+        seen.reset(size);
+
+        NodeHeap candidates = new NodeHeap(ef * 2, false);
+        NodeHeap results = new NodeHeap(ef, true);
+
+        float entrySimilarity = dot(query, vectors[entry]);
+        seen.mark(entry);
+        candidates.push(entry, entrySimilarity);
+        if (filter == null || filter.test(ids[entry])) {
+            results.push(entry, entrySimilarity);
+        }
+
+        int visits = 1;
+        while (!candidates.isEmpty() && visits < maxVisits) {
+            float candidateSimilarity = candidates.topScore();
+            if (results.size() >= ef && candidateSimilarity < results.topScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+
+            int[] links = neighbors[candidate][layer];
+            int count = neighborCounts[candidate][layer];
+            for (int i = 0; i < count; i++) {
+                int neighbor = links[i];
+                if (!seen.mark(neighbor)) continue;
+                visits++;
+
+                float similarity = dot(query, vectors[neighbor]);
+                if (results.size() < ef || similarity > results.topScore()) {
+                    candidates.push(neighbor, similarity);
+                    if (filter == null || filter.test(ids[neighbor])) {
+                        results.push(neighbor, similarity);
+                        if (results.size() > ef) results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: prefer candidates closer to the new node than to any
+     * already selected neighbour, which keeps links spread across clusters.
+     */
+    private int[] selectNeighbors(NodeHeap candidates, int m) {
+        int[] ordered = candidates.sortedDescending();
+        int[] selected = new int[Math.min(m, ordered.length)];
+        int count = 0;
+        for (int position : ordered) {
+            if (count == selected.length) break;
+            int candidate = candidates.nodeAt(position);
+            float toQuery = candidates.scoreAt(position);
+            boolean keep = true;
+            for (int i = 0; i < count; i++) {
+                if (dot(vectors[candidate], vectors[selected[i]]) > toQuery) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) selected[count++] = candidate;
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void link(int from, int to, int layer, int maxConn) {
+        int[] links = neighbors[from][layer];
+        int count = neighborCounts[from][layer];
+        for (int i = 0; i < count; i++) {
+            if (links[i] == to) return;
+        }
+        links[count++] = to;
+
+        if (count > maxConn) {
+            // Over capacity: keep the closest neighbours of 'from' by the same heuristic
+            NodeHeap pool = new NodeHeap(count, true);
+            for (int i = 0; i < count; i++) {
+                pool.push(links[i], dot(vectors[from], vectors[links[i]]));
+            }
+            int[] kept = selectNeighbors(pool, maxConn);
+            System.arraycopy(kept, 0, links, 0, kept.length);
+            count = kept.length;
+        }
+        neighborCounts[from][layer] = count;
+    }
+
+    private float[] normalize(float[] vector) {
+        double sumOfSquares = 0.0;
+        for (float v : vector) sumOfSquares += (double) v * v;
+        float[] normalized = new float[vector.length];
+        if (sumOfSquares == 0.0) return normalized;
+
+        float inverse = (float) (1.0 / Math.sqrt(sumOfSquares));
+        for (int i = 0; i < vector.length; i++) normalized[i] = vector[i] * inverse;
+        return normalized;
+    }
+
+    private static float dot(float[] a, FloatBuffer b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b.get(i);
+        return sum;
+    }
+
+    private static float dot(FloatBuffer a, FloatBuffer b) {
+        float sum = 0f;
+        for (int i = 0, n = a.limit(); i < n; i++) sum += a.get(i) * b.get(i);
+        return sum;
+    }
+
+    /**
+     * Binary heap of (node, score). A min-heap keeps the worst result on top so it can be
+     * evicted; a max-heap pops the most promising candidate first.
+     */
+    private static final class NodeHeap {
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+        private final boolean minHeap;
+
+        NodeHeap(int capacity, boolean minHeap) {
+            this.nodes = new int[Math.max(capacity, 4)];
+            this.scores = new float[Math.max(capacity, 4)];
+            this.minHeap = minHeap;
+        }
+
+        int size() { return size; }
+        boolean isEmpty() { return size == 0; }
+        float topScore() { return scores[0]; }
+        int nodeAt(int position) { return nodes[position]; }
+        float scoreAt(int position) { return scores[position]; }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            nodes[size] = node;
+            scores[size] = score;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(i, parent)) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            nodes[0] = nodes[size];
+            scores[0] = scores[size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) break;
+                int right = left + 1;
+                int child = right < size && before(right, left) ? right : left;
+                if (!before(child, i)) break;
+                swap(i, child);
+                i = child;
+            }
+            return top;
+        }
+
+        /**
+         * Highest-scoring node currently in the heap
+         */
+        int best() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (scores[i] > scores[best]) best = i;
+            }
+            return nodes[best];
+        }
+
+        /**
+         * Heap positions ordered by descending score (resolve with nodeAt/scoreAt)
+         */
+        int[] sortedDescending() {
+            // Sort (score, position) pairs packed into longs to avoid boxing. The bit trick maps
+            // floats to ints with the same ordering; subtracting from MAX_VALUE reverses it.
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                int bits = Float.floatToIntBits(scores[i]);
+                int ordered = bits ^ ((bits >> 31) & 0x7fffffff);
+                long descendingKey = (long) Integer.MAX_VALUE - ordered;
+                packed[i] = (descendingKey << 31) | i;
+            }
+            Arrays.sort(packed);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) result[i] = (int) (packed[i] & 0x7fffffff);
+            return result;
+        }
+
+        private boolean before(int a, int b) {
+            return minHeap ? scores[a] < scores[b] : scores[a] > scores[b];
+        }
+
+        private void swap(int a, int b) {
+            int n = nodes[a]; nodes[a] = nodes[b]; nodes[b] = n;
+            float s = scores[a]; scores[a] = scores[b]; scores[b] = s;
+        }
+    }
+
+    /**
+     * Per-thread visited marks reused across searches: a node is visited in the current
+     * search when its mark equals the current epoch, so resetting is O(1).
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[1024];
+        private int epoch;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                epoch = 0;
+            }
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * Returns true if the node had not been seen yet in this search
+         */
+        boolean mark(int node) {
+            if (marks[node] == epoch) return false;
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.reddisearch.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Off-heap vector storage in memory-mapped, append-only segment files.
+ *
+ * Each record is [int length][int id][payload], written payload-first so a torn write
+ * reads as end-of-segment. An id -> (segment, offset) table is rebuilt by scanning the
+ * segments on open; the latest record for an id wins. Reads return read-only views of
+ * the mapped file (no copy, no heap). Rewritten ids leave garbage behind, which a
+ * background task compacts into fresh segments once it exceeds the configured ratio.
+ *
+ * Writers are serialised; readers never lock. The segment list is published through a
+ * volatile state reference before any slot of the id table points into a new segment, and
+ * slots are written with volatile semantics, so a reader that sees a slot can always find
+ * its segment by re-reading the state. The table is only copied when it has to grow.
+ */
+public class MappedVectorStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x52535653; // "RSVS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final Path directory;
+    private final String name;
+    private final int segmentBytes;
+    private final double compactionRatio;
+
+    private volatile State state = new State(new Segment[0], new AtomicLongArray(0), 0);
+    private final List<Segment> segments = new ArrayList<>();
+    private int nextSequence = 1;
+    private long liveBytes;
+    private long totalBytes;
+
+    private final ScheduledExecutorService compactor;
+
+    // Times put() had to copy the id table to grow it
+    private int tableCopies;
+
+    private static final class Segment {
+        final int sequence;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int writePosition;
+
+        Segment(int sequence, Path path, MappedByteBuffer buffer, int writePosition) {
+            this.sequence = sequence;
+            this.path = path;
+            this.buffer = buffer;
+            this.writePosition = writePosition;
+        }
+    }
+
+    /**
+     * View for readers. locations[id] = ((segment index << 32) | offset) + 1, 0 = absent.
+     * Later states share the table until it grows, so a slot may point into a segment
+     * that only a newer state lists.
+     */
+    private static final class State {
+        final Segment[] segments;
+        final AtomicLongArray locations;
+        final int size;
+
+        State(Segment[] segments, AtomicLongArray locations, int size) {
+            this.segments = segments;
+            this.locations = locations;
+            this.size = size;
+        }
+    }
+
+    public MappedVectorStore(Path directory, String name, int segmentBytes, double compactionRatio) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.compactionRatio = compactionRatio;
+        open();
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vector-store-compactor-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, 1, 1, TimeUnit.MINUTES);
+    }
+
+    public int size() {
+        return state.size;
+    }
+
+    public boolean contains(int id) {
+        State s = state;
+        return id >= 0 && id < s.locations.length() && s.locations.get(id) != 0;
+    }
+
+    /**
+     * Zero-copy, read-only view of the payload stored for an id, or null
+     */
+    public ByteBuffer get(int id) {
+        if (id < 0) return null;
+        State s;
+        long location;
+        while (true) {
+            s = state;
+            if (id >= s.locations.length()) return null;
+            location = s.locations.get(id) - 1;
+            if (location < 0) return null;
+            // A slot written after this state was read can point into a segment that only a
+            // newer state lists; that state is already published, so look again from it
+            if ((int) (location >>> 32) < s.segments.length) break;
+        }
+        Segment segment = s.segments[(int) (location >>> 32)];
+        int offset = (int) location;
+
+        ByteBuffer view = segment.buffer.duplicate();
+        int length = view.order(ORDER).getInt(offset);
+        view.limit(offset + length).position(offset + RECORD_HEADER_BYTES);
+        return view.slice().asReadOnlyBuffer().order(ORDER);
+    }
+
+    public FloatBuffer getFloats(int id) {
+        ByteBuffer bytes = get(id);
+        return bytes != null ? bytes.asFloatBuffer() : null;
+    }
+
+    public void putFloats(int id, float[] row) {
+        ByteBuffer payload = ByteBuffer.allocate(row.length * Float.BYTES).order(ORDER);
+        payload.asFloatBuffer().put(row);
+        put(id, payload);
+    }
+
+    /**
+     * Append a record for the id, superseding any earlier one
+     */
+    public synchronized void put(int id, ByteBuffer payload) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ids must be non-negative");
+        }
+        int recordBytes = align(RECORD_HEADER_BYTES + payload.remaining());
+        if (recordBytes > segmentBytes - SEGMENT_HEADER_BYTES) {
+            throw new IllegalArgumentException("record of " + recordBytes + " bytes does not fit in a segment");
+        }
+
+        try {
+            Segment segment = activeSegment(recordBytes);
+            int offset = segment.writePosition;
+            writeRecord(segment.buffer, offset, id, payload, recordBytes);
+            segment.writePosition += recordBytes;
+
+            State s = state;
+            AtomicLongArray locations = s.locations;
+            if (id >= locations.length()) {
+                locations = grow(locations, Math.max(id + 1, Math.max(16, locations.length() * 2)));
+                tableCopies++;
+            }
+            Segment[] published = segments.size() == s.segments.length
+                ? s.segments
+                : segments.toArray(new Segment[0]);
+            long previous = locations.get(id);
+            int size = s.size;
+            if (previous != 0) {
+                liveBytes -= recordLength(published, previous);
+            } else {
+                size++;
+            }
+            liveBytes += recordBytes;
+            totalBytes += recordBytes;
+
+            // Segments first, then the slot that may point into a new one
+            state = new State(published, locations, size);
+            locations.set(id, (((long) segments.indexOf(segment)) << 32 | offset) + 1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error appending to vector store " + name, e);
+        }
+    }
+
+    public void forEachId(IntConsumer action) {
+        State s = state;
+        for (int id = 0; id < s.locations.length(); id++) {
+            if (s.locations.get(id) != 0) action.accept(id);
+        }
+    }
+
+    /**
+     * Share of segment bytes taken by superseded records
+     */
+    public synchronized double garbageRatio() {
+        return totalBytes == 0 ? 0.0 : 1.0 - (double) liveBytes / totalBytes;
+    }
+
+    /**
+     * Copy every live record into fresh segments and drop the old ones. Readers keep using
+     * the old mappings until they pick up the new state; the unlinked files stay readable
+     * until those mappings are garbage collected.
+     */
+    public synchronized void compact() throws IOException {
+        State old = state;
+        List<Segment> oldSegments = new ArrayList<>(segments);
+        segments.clear();
+        liveBytes = 0;
+        totalBytes = 0;
+
+        long[] locations = new long[old.locations.length()];
+        for (int id = 0; id < locations.length; id++) {
+            long encoded = old.locations.get(id);
+            if (encoded == 0) continue;
+
+            long location = encoded - 1;
+            Segment from = old.segments[(int) (location >>> 32)];
+            int offset = (int) location;
+            int recordBytes = from.buffer.duplicate().order(ORDER).getInt(offset);
+
+            ByteBuffer payload = from.buffer.duplicate();
+            payload.limit(offset + recordBytes).position(offset + RECORD_HEADER_BYTES);
+
+            int alignedBytes = align(recordBytes);
+            Segment to = activeSegment(alignedBytes);
+            writeRecord(to.buffer, to.writePosition, id, payload.slice(), alignedBytes);
+            locations[id] = (((long) segments.indexOf(to)) << 32 | to.writePosition) + 1;
+            to.writePosition += alignedBytes;
+            liveBytes += alignedBytes;
+            totalBytes += alignedBytes;
+        }
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        state = new State(segments.toArray(new Segment[0]), new AtomicLongArray(locations), old.size);
+
+        // The compacted copies have higher sequence numbers, so a crash before this point
+        // still reopens to the same content
+        for (Segment segment : oldSegments) {
+            Files.deleteIfExists(segment.path);
+        }
+        System.out.println("[VectorStore] Compacted " + name + ": " + oldSegments.size() + " -> " + segments.size() + " segments");
+    }
+
+    public synchronized void flush() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        flush();
+    }
+
+    private synchronized void compactIfNeeded() {
+        try {
+            if (segments.size() > 1 && garbageRatio() > compactionRatio) {
+                compact();
+            }
+        } catch (Exception e) {
+            System.err.println("[VectorStore] Compaction of " + name + " failed: " + e.getMessage());
+        }
+    }
+
+    private void open() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                .filter(p -> p.getFileName().toString().matches(Pattern.quote(name) + "-\\d{6}\\.seg"))
+                .sorted()
+                .toList();
+        }
+
+        long[] locations = new long[16];
+        int size = 0;
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            int sequence = Integer.parseInt(fileName.substring(name.length() + 1, fileName.length() - 4));
+            if (Files.size(file) < SEGMENT_HEADER_BYTES) {
+                Files.delete(file);
+                continue;
+            }
+            MappedByteBuffer buffer = map(file, Files.size(file));
+            if (buffer.order(ORDER).getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                System.err.println("[VectorStore] Skipping unrecognised segment " + file);
+                continue;
+            }
+
+            Segment segment = new Segment(sequence, file, buffer, SEGMENT_HEADER_BYTES);
+            segments.add(segment);
+            int segmentIndex = segments.size() - 1;
+
+            int position = SEGMENT_HEADER_BYTES;
+            while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length < RECORD_HEADER_BYTES || position + length > buffer.capacity()) break;
+
+                int id = buffer.getInt(position + 4);
+                if (id >= locations.length) {
+                    locations = Arrays.copyOf(locations, Math.max(id + 1, locations.length * 2));
+                }
+                if (locations[id] != 0) {
+                    liveBytes -= recordLength(segments.toArray(new Segment[0]), locations[id]);
+                } else {
+                    size++;
+                }
+                locations[id] = (((long) segmentIndex) << 32 | position) + 1;
+                liveBytes += length;
+                totalBytes += length;
+                position += length;
+            }
+            segment.writePosition = position;
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+        state = new State(segments.toArray(new Segment[0]), new AtomicLongArray(locations), size);
+    }
+
+    private Segment activeSegment(int recordBytes) throws IOException {
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            if (last.writePosition + recordBytes <= last.buffer.capacity()) {
+                return last;
+            }
+        }
+        Files.createDirectories(directory);
+        int sequence = nextSequence++;
+        Path path = directory.resolve(String.format("%s-%06d.seg", name, sequence));
+        MappedByteBuffer buffer = map(path, segmentBytes);
+        buffer.order(ORDER).putInt(0, MAGIC).putInt(4, FORMAT_VERSION);
+
+        Segment segment = new Segment(sequence, path, buffer, SEGMENT_HEADER_BYTES);
+        segments.add(segment);
+        return segment;
+    }
+
+    private static void writeRecord(MappedByteBuffer buffer, int offset, int id, ByteBuffer payload, int recordBytes) {
+        ByteBuffer target = buffer.duplicate().order(ORDER);
+        target.position(offset + RECORD_HEADER_BYTES);
+        target.put(payload.duplicate());
+        target.putInt(offset + 4, id);
+        // Length goes last: until it is set the record reads as end-of-segment
+        target.putInt(offset, recordBytes);
+    }
+
+    synchronized int tableCopies() {
+        return tableCopies;
+    }
+
+    private static AtomicLongArray grow(AtomicLongArray table, int length) {
+        AtomicLongArray grown = new AtomicLongArray(length);
+        for (int i = 0; i < table.length(); i++) {
+            grown.set(i, table.get(i));
+        }
+        return grown;
+    }
+
+    private static int recordLength(Segment[] segments, long encodedLocation) {
+        long location = encodedLocation - 1;
+        Segment segment = segments[(int) (location >>> 32)];
+        return segment.buffer.duplicate().order(ORDER).getInt((int) location);
+    }
+
+    private static MappedByteBuffer map(Path path, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+}
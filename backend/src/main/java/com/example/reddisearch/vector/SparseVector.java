@@ -0,0 +1,124 @@
+package com.example.reddisearch.vector;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse vector over term ids from the global TermDictionary.
+ * Term ids are kept sorted and unique so the dot product is a single merge-join over two
+ * primitive arrays with no allocation and no hashing. The L2 norm and the weight sum
+ * (document length, for raw term-frequency vectors) are computed once at construction.
+ */
+public final class SparseVector {
+
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new float[0]);
+
+    private final int[] termIds;
+    private final float[] weights;
+    private final float norm;
+    private final float weightSum;
+
+    private SparseVector(int[] termIds, float[] weights) {
+        this.termIds = termIds;
+        this.weights = weights;
+
+        double sumOfSquares = 0.0;
+        double sum = 0.0;
+        for (float w : weights) {
+            sumOfSquares += (double) w * w;
+            sum += w;
+        }
+        this.norm = (float) Math.sqrt(sumOfSquares);
+        this.weightSum = (float) sum;
+    }
+
+    /**
+     * Build a vector from unordered parallel arrays. Duplicate term ids are summed.
+     * The arrays are copied, so callers may reuse them.
+     */
+    public static SparseVector of(int[] termIds, float[] weights, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+
+        // Sort positions by term id without boxing: pack (termId, position) into longs
+        long[] order = new long[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = ((long) termIds[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        int[] ids = new int[length];
+        float[] ws = new float[length];
+        int n = 0;
+        for (long packed : order) {
+            int id = (int) (packed >>> 32);
+            float w = weights[(int) packed];
+            if (n > 0 && ids[n - 1] == id) {
+                ws[n - 1] += w;
+            } else {
+                ids[n] = id;
+                ws[n] = w;
+                n++;
+            }
+        }
+        return n == length ? new SparseVector(ids, ws) : new SparseVector(Arrays.copyOf(ids, n), Arrays.copyOf(ws, n));
+    }
+
+    /**
+     * Wrap arrays that are already sorted by strictly increasing term id (e.g. decoded from storage)
+     */
+    public static SparseVector ofSorted(int[] termIds, float[] weights) {
+        if (termIds.length != weights.length) {
+            throw new IllegalArgumentException("termIds and weights differ in length");
+        }
+        for (int i = 1; i < termIds.length; i++) {
+            if (termIds[i] <= termIds[i - 1]) {
+                throw new IllegalArgumentException("termIds must be strictly increasing");
+            }
+        }
+        return termIds.length == 0 ? EMPTY : new SparseVector(termIds, weights);
+    }
+
+    public int size() { return termIds.length; }
+    public boolean isEmpty() { return termIds.length == 0; }
+    public int termId(int i) { return termIds[i]; }
+    public float weight(int i) { return weights[i]; }
+    public float norm() { return norm; }
+    public float weightSum() { return weightSum; }
+
+    public double dot(SparseVector other) {
+        int[] a = termIds, b = other.termIds;
+        float[] wa = weights, wb = other.weights;
+        int i = 0, j = 0;
+        double sum = 0.0;
+        while (i < a.length && j < b.length) {
+            int ta = a[i], tb = b[j];
+            if (ta == tb) {
+                sum += (double) wa[i++] * wb[j++];
+            } else if (ta < tb) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    public double cosine(SparseVector other) {
+        if (norm == 0.0f || other.norm == 0.0f) return 0.0;
+        return dot(other) / ((double) norm * other.norm);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SparseVector)) return false;
+        SparseVector that = (SparseVector) o;
+        return Arrays.equals(termIds, that.termIds) && Arrays.equals(weights, that.weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(termIds) + Arrays.hashCode(weights);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.reddisearch.vector;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Versioned binary encoding of a SparseVector, shared by the Redis cache and the local
+ * vector store.
+ *
+ * Layout: [magic][version][flags][varint count][body], where the body is the term ids as
+ * varint deltas followed by the weights as little-endian float16 or float32. Weights are
+ * written as float16 only when every one of them survives the round trip exactly (raw
+ * term counts up to 2048 do), so encoding is lossless. Bodies of DEFLATE_THRESHOLD bytes
+ * or more are deflated when that makes them smaller, prefixed by their raw length.
+ *
+ * The magic byte is never '{', so callers can tell these values from legacy JSON ones.
+ */
+public final class SparseVectorCodec {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int FLAG_FLOAT16 = 1;
+    private static final int FLAG_DEFLATE = 2;
+    private static final int DEFLATE_THRESHOLD = 512;
+    private static final int MAX_TERMS = 1 << 24;
+
+    private SparseVectorCodec() {
+    }
+
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length >= 3 && bytes[0] == MAGIC;
+    }
+
+    public static byte[] encode(SparseVector vector) {
+        int count = vector.size();
+        boolean float16 = true;
+        for (int i = 0; i < count && float16; i++) {
+            float weight = vector.weight(i);
+            float16 = halfToFloat(floatToHalf(weight)) == weight;
+        }
+
+        byte[] body = new byte[count * (5 + (float16 ? 2 : 4))];
+        int position = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int termId = vector.termId(i);
+            position = writeVarint(body, position, termId - previous);
+            previous = termId;
+        }
+        for (int i = 0; i < count; i++) {
+            int bits = float16 ? floatToHalf(vector.weight(i)) : Float.floatToIntBits(vector.weight(i));
+            body[position++] = (byte) bits;
+            body[position++] = (byte) (bits >>> 8);
+            if (!float16) {
+                body[position++] = (byte) (bits >>> 16);
+                body[position++] = (byte) (bits >>> 24);
+            }
+        }
+
+        int flags = float16 ? FLAG_FLOAT16 : 0;
+        byte[] compressed = position >= DEFLATE_THRESHOLD ? deflate(body, position) : null;
+        if (compressed != null) {
+            flags |= FLAG_DEFLATE;
+        }
+
+        byte[] out = new byte[3 + 5 + 5 + (compressed != null ? compressed.length : position)];
+        out[0] = MAGIC;
+        out[1] = (byte) FORMAT_VERSION;
+        out[2] = (byte) flags;
+        int length = writeVarint(out, 3, count);
+        if (compressed != null) {
+            length = writeVarint(out, length, position);
+            System.arraycopy(compressed, 0, out, length, compressed.length);
+            length += compressed.length;
+        } else {
+            System.arraycopy(body, 0, out, length, position);
+            length += position;
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    public static SparseVector decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decode from the buffer's position to its limit (the buffer's own position is untouched)
+     */
+    public static SparseVector decode(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate();
+        if (in.remaining() < 3 || in.get() != MAGIC) {
+            throw new IllegalArgumentException("not an encoded sparse vector");
+        }
+        int version = in.get() & 0xff;
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("unsupported sparse vector format version " + version);
+        }
+        int flags = in.get() & 0xff;
+        int count = readVarint(in);
+        boolean float16 = (flags & FLAG_FLOAT16) != 0;
+        if (count < 0 || count > MAX_TERMS) {
+            throw new IllegalArgumentException("corrupt sparse vector header");
+        }
+
+        if ((flags & FLAG_DEFLATE) != 0) {
+            int rawLength = readVarint(in);
+            in = ByteBuffer.wrap(inflate(in, rawLength));
+        }
+
+        int[] ids = new int[count];
+        float[] weights = new float[count];
+        int termId = 0;
+        for (int i = 0; i < count; i++) {
+            termId += readVarint(in);
+            ids[i] = termId;
+        }
+        for (int i = 0; i < count; i++) {
+            int bits = (in.get() & 0xff) | (in.get() & 0xff) << 8;
+            if (float16) {
+                weights[i] = halfToFloat(bits);
+            } else {
+                bits |= (in.get() & 0xff) << 16 | (in.get() & 0xff) << 24;
+                weights[i] = Float.intBitsToFloat(bits);
+            }
+        }
+        return SparseVector.ofSorted(ids, weights);
+    }
+
+    /**
+     * IEEE 754 binary16 bits for a float, rounding to nearest even
+     */
+    static int floatToHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int rawExponent = (bits >>> 23) & 0xff;
+        int mantissa = bits & 0x7fffff;
+
+        if (rawExponent == 0xff) {
+            return sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0);
+        }
+        int exponent = rawExponent - 127 + 15;
+        if (exponent >= 0x1f) {
+            return sign | 0x7c00;
+        }
+        if (exponent <= 0) {
+            if (exponent < -10) return sign;
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) half++;
+            return sign | half;
+        }
+        int half = (exponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1fff;
+        // A carry out of the mantissa correctly bumps the exponent (up to infinity)
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) half++;
+        return sign | half;
+    }
+
+    static float halfToFloat(int half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            float subnormal = mantissa * 0x1p-24f;
+            return sign != 0 ? -subnormal : subnormal;
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+
+    private static int writeVarint(byte[] out, int position, int value) {
+        while ((value & ~0x7f) != 0) {
+            out[position++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static byte[] deflate(byte[] body, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+            byte[] chunk = new byte[Math.min(length, 4096)];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+                if (out.size() >= length) return null;
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(ByteBuffer in, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(in);
+            byte[] raw = new byte[rawLength];
+            int filled = 0;
+            while (filled < rawLength) {
+                int n = inflater.inflate(raw, filled, rawLength - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+                filled += n;
+            }
+            if (filled != rawLength) {
+                throw new IllegalArgumentException("truncated sparse vector body");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("corrupt sparse vector body", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
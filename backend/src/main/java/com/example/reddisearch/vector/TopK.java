@@ -0,0 +1,119 @@
+package com.example.reddisearch.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the k highest-scoring items seen so far in a bounded min-heap.
+ * Each candidate is scored once by the caller and offered in O(log k), instead of sorting
+ * the whole candidate list with a comparator. Ties keep the earlier offer, which matches a
+ * stable sort. Instances can be reused via {@link #clear()}.
+ */
+public final class TopK<T> {
+
+    private final int k;
+    private final double[] scores;
+    private final long[] sequence;
+    private final Object[] items;
+    private int size;
+    private long offered;
+
+    /**
+     * An item together with the score it was ranked by
+     */
+    public static final class Scored<T> {
+        private final T item;
+        private final double score;
+
+        Scored(T item, double score) {
+            this.item = item;
+            this.score = score;
+        }
+
+        public T getItem() { return item; }
+        public double getScore() { return score; }
+    }
+
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.scores = new double[k];
+        this.sequence = new long[k];
+        this.items = new Object[k];
+    }
+
+    public void offer(T item, double score) {
+        long seq = offered++;
+        if (size < k) {
+            scores[size] = score;
+            sequence[size] = seq;
+            items[size] = item;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            scores[0] = score;
+            sequence[0] = seq;
+            items[0] = item;
+            siftDown(0);
+        }
+    }
+
+    public int size() { return size; }
+
+    /**
+     * Results ordered by descending score (earlier offers first on ties)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Scored<T>> toSortedList() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> worseThan(a, b) ? 1 : worseThan(b, a) ? -1 : 0);
+
+        List<Scored<T>> result = new ArrayList<>(size);
+        for (int i : order) {
+            result.add(new Scored<>((T) items[i], scores[i]));
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        offered = 0;
+    }
+
+    // Heap order: lower score is worse; on equal scores the later offer is worse
+    private boolean worseThan(int a, int b) {
+        if (scores[a] != scores[b]) return scores[a] < scores[b];
+        return sequence[a] > sequence[b];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worseThan(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int right = left + 1;
+            int worst = right < size && worseThan(right, left) ? right : left;
+            if (!worseThan(worst, i)) break;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double s = scores[a]; scores[a] = scores[b]; scores[b] = s;
+        long q = sequence[a]; sequence[a] = sequence[b]; sequence[b] = q;
+        Object o = items[a]; items[a] = items[b]; items[b] = o;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.reddisearch.answer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.embedding.OllamaEmbeddingClient;
+import com.example.reddisearch.llm.LlmScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerCacheTest {
+
+    private static AnswerCache answerCache() {
+        AnswerCache cache = new AnswerCache();
+        ReflectionTestUtils.setField(cache, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(cache, "appConfig", new AppConfig());
+        return cache;
+    }
+
+    private static RedditPost post(String id) {
+        return new RedditPost("title " + id, "", "https://www.reddit.com/r/test/" + id, "test", 1, 1);
+    }
+
+    @Test
+    void exactKeyIgnoresCasePunctuationAndPostOrder() {
+        AnswerCache cache = answerCache();
+        cache.put("Best budget  mechanical keyboard?", List.of(post("a"), post("b")), "answer");
+
+        assertEquals("answer", cache.get("best budget mechanical keyboard", List.of(post("b"), post("a"))));
+        assertEquals(AnswerCache.key("Best budget  mechanical keyboard?", List.of(post("a"), post("b"))),
+            AnswerCache.key("best budget mechanical keyboard", List.of(post("b"), post("a"))));
+    }
+
+    @Test
+    void reusesAnswersForNearDuplicateQuestionsOverTheSamePosts() {
+        AnswerCache cache = answerCache();
+        List<RedditPost> posts = List.of(post("a"), post("b"), post("c"));
+        cache.put("how to season a cast iron skillet with oil", posts, "use flaxseed oil");
+
+        assertEquals("use flaxseed oil", cache.get("how to season cast iron skillet with oil", posts));
+        assertNull(cache.get("how to season a cast iron skillet with oil", List.of(post("x"), post("y"))),
+            "different context posts never reuse an answer");
+        assertNull(cache.get("how to clean a cast iron skillet", posts), "a different question is a miss");
+    }
+
+    @Test
+    void storingAnAnswerNeverEmbedsOnTheRequestPath() throws Exception {
+        List<LlmScheduler.Priority> calls = Collections.synchronizedList(new ArrayList<>());
+        OllamaEmbeddingClient client = new OllamaEmbeddingClient() {
+            @Override
+            public List<float[]> embed(List<String> texts, LlmScheduler.Priority priority) {
+                calls.add(priority);
+                return List.of(new float[] {texts.get(0).length(), 1f});
+            }
+        };
+        AnswerCache cache = answerCache();
+        AppConfig config = (AppConfig) ReflectionTestUtils.getField(cache, "appConfig");
+        config.getEmbedding().setEnabled(true);
+        ReflectionTestUtils.setField(cache, "embeddingClient", client);
+
+        // Dense retrieval already embedded this query, so storing the answer reuses it
+        client.embedQuery("best budget mechanical keyboard");
+        cache.put("best budget mechanical keyboard", List.of(post("a")), "answer");
+        assertEquals(List.of(LlmScheduler.Priority.INTERACTIVE), calls);
+
+        // Nothing to reuse: embedded later, behind interactive work
+        cache.put("cast iron seasoning", List.of(post("b")), "answer");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (calls.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of(LlmScheduler.Priority.INTERACTIVE, LlmScheduler.Priority.BACKGROUND), calls);
+        cache.close();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.reddisearch.answer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.index.Tokenizer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextBuilderTest {
+
+    private static ContextBuilder builder(int maxTokens) {
+        AppConfig config = new AppConfig();
+        config.getContext().setMaxTokens(maxTokens);
+        Tokenizer tokenizer = new Tokenizer();
+        ReflectionTestUtils.setField(tokenizer, "appConfig", config);
+        tokenizer.init();
+        ContextBuilder builder = new ContextBuilder();
+        ReflectionTestUtils.setField(builder, "appConfig", config);
+        ReflectionTestUtils.setField(builder, "tokenizer", tokenizer);
+        return builder;
+    }
+
+    private static RedditPost post(String title, String content) {
+        return new RedditPost(title, content, "https://www.reddit.com/r/castiron/" + title.hashCode(), "castiron", 10, 4);
+    }
+
+    @Test
+    void keepsTheAnsweringSentenceInsteadOfTheFirst220Characters() {
+        String content = "Long time lurker, first post here, so please be gentle with me. "
+            + "I bought my pan at a yard sale last summer and it has been sitting in a cupboard since then. "
+            + "My partner thinks I should just throw it out and buy a new one, honestly. "
+            + "Anyway, flaxseed oil flakes, so season with a thin coat of Crisco at 450F for an hour. "
+            + "Thanks for reading!";
+        String context = builder(300).build("what oil to season cast iron", List.of(post("Seasoning question", content)));
+
+        assertTrue(content.indexOf("Crisco") > 220, "the useful sentence is past the old cut-off");
+        assertTrue(context.contains("season with a thin coat of Crisco at 450F"), context);
+        assertFalse(context.contains("yard sale"), context);
+        assertTrue(context.startsWith("Post from r/castiron (Score: 10, Comments: 4):\nTitle: Seasoning question\nContent: "));
+    }
+
+    @Test
+    void dropsNearDuplicateSentencesAcrossPosts() {
+        String advice = "Season cast iron with a thin layer of vegetable oil and bake it upside down.";
+        String context = builder(300).build("season cast iron oil", List.of(
+            post("How to season", advice),
+            post("Re: How to season", "Quoting the above: " + advice.toLowerCase()),
+            post("Other opinion", "Lard works for seasoning cast iron too.")));
+
+        assertEquals(1, context.split("bake it upside down", -1).length - 1, context);
+        assertTrue(context.contains("Lard works"), context);
+    }
+
+    @Test
+    void staysWithinTheTokenBudget() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            content.append("Sentence ").append(i).append(" talks about cast iron seasoning in some detail. ");
+        }
+        String context = builder(120).build("cast iron seasoning", List.of(
+            post("Wall of text", content.toString()), post("Another wall", content.toString())));
+
+        assertTrue(TokenEstimator.estimate(context) <= 120, TokenEstimator.estimate(context) + " tokens: " + context);
+        assertTrue(context.contains("cast iron seasoning"));
+    }
+
+    @Test
+    void estimatesTokensRoughlyLikeBpe() {
+        assertEquals(1, TokenEstimator.estimate("hello"));
+        assertEquals(4, TokenEstimator.estimate("The quick brown fox"));
+        assertEquals(4, TokenEstimator.estimate("internationalization"), "long words split into pieces");
+        assertEquals(3, TokenEstimator.estimate("450F!"));
+        assertEquals(3, TokenEstimator.estimate("日本語"));
+    }
+}
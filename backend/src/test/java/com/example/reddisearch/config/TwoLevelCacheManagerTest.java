@@ -0,0 +1,133 @@
+package com.example.reddisearch.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import com.example.reddisearch.ReddisearchApplication.AppConfig.CacheSettings;
+import com.example.reddisearch.VectorSearchService.SearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoLevelCacheManagerTest {
+
+    /**
+     * Two instances sharing one L2, wired to deliver each other's invalidations
+     */
+    private static TwoLevelCacheManager[] pair(ConcurrentMapCacheManager shared) {
+        TwoLevelCacheManager first = new TwoLevelCacheManager(shared, new CacheSettings());
+        TwoLevelCacheManager second = new TwoLevelCacheManager(shared, new CacheSettings());
+        first.setInvalidationPublisher(second::handleInvalidation);
+        second.setInvalidationPublisher(first::handleInvalidation);
+        return new TwoLevelCacheManager[] { first, second };
+    }
+
+    @Test
+    void servesRepeatHitsFromL1() {
+        AtomicInteger l2Reads = new AtomicInteger();
+        ConcurrentMapCacheManager shared = new ConcurrentMapCacheManager() {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                return new ConcurrentMapCache(name) {
+                    @Override
+                    public ValueWrapper get(Object key) {
+                        l2Reads.incrementAndGet();
+                        return super.get(key);
+                    }
+                };
+            }
+        };
+        shared.getCache("results").put(42, "from redis");
+
+        Cache cache = new TwoLevelCacheManager(shared, new CacheSettings()).getCache("results");
+        assertEquals("from redis", cache.get(42).get());
+        assertEquals("from redis", cache.get(42).get());
+        assertEquals("from redis", cache.get(42, String.class));
+        assertEquals(1, l2Reads.get());
+    }
+
+    @Test
+    void writesInvalidateOtherInstances() {
+        ConcurrentMapCacheManager shared = new ConcurrentMapCacheManager();
+        TwoLevelCacheManager[] instances = pair(shared);
+        Cache first = instances[0].getCache("results");
+        Cache second = instances[1].getCache("results");
+
+        first.put("q", "v1");
+        assertEquals("v1", second.get("q").get());
+
+        first.put("q", "v2");
+        assertEquals("v2", second.get("q").get(), "stale L1 entry was evicted");
+        assertEquals("v2", first.get("q").get(), "own invalidations are ignored");
+
+        second.clear();
+        assertNull(first.get("q"));
+    }
+
+    @Test
+    void keepsWorkingWhenL2Fails() {
+        ConcurrentMapCacheManager failing = new ConcurrentMapCacheManager() {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                return new ConcurrentMapCache(name) {
+                    @Override
+                    public ValueWrapper get(Object key) { throw new IllegalStateException("redis down"); }
+                    @Override
+                    public void put(Object key, Object value) { throw new IllegalStateException("redis down"); }
+                };
+            }
+        };
+        List<String> published = new ArrayList<>();
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(failing, new CacheSettings());
+        manager.setInvalidationPublisher(published::add);
+        Cache cache = manager.getCache("results");
+
+        assertNull(cache.get("missing"));
+        assertEquals("computed", cache.get("k", () -> "computed"));
+        assertEquals("computed", cache.get("k").get());
+        assertEquals(1, published.size());
+    }
+
+    @Test
+    void countsHitsAndMissesPerTier() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrentMapCacheManager shared = new ConcurrentMapCacheManager();
+        shared.getCache("results").put("remote", "from redis");
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(shared, new CacheSettings());
+        manager.setMeterRegistry(registry);
+        Cache cache = manager.getCache("results");
+
+        assertNull(cache.get("missing"));
+        cache.get("remote");
+        cache.get("remote");
+        cache.get("loaded", () -> "computed");
+        cache.get("loaded", () -> "recomputed");
+
+        assertEquals(2, gets(registry, "l1", "hit"));
+        assertEquals(3, gets(registry, "l1", "miss"));
+        assertEquals(1, gets(registry, "l2", "hit"));
+        assertEquals(2, gets(registry, "l2", "miss"));
+    }
+
+    private static double gets(SimpleMeterRegistry registry, String tier, String result) {
+        return registry.get("reddisearch.cache.gets")
+            .tag("cache", "results").tag("tier", tier).tag("result", result)
+            .counter().count();
+    }
+
+    @Test
+    void searchResultsSurviveTheRedisSerializer() {
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+        Object restored = serializer.deserialize(serializer.serialize(new SearchResult("answer", 7)));
+
+        SearchResult result = assertInstanceOf(SearchResult.class, restored);
+        assertEquals("answer", result.getAnswer());
+        assertEquals(7, result.getPostsFound());
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.reddisearch.embedding;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.index.LocalPostIndex;
+import com.example.reddisearch.index.TermDictionary;
+import com.example.reddisearch.index.Tokenizer;
+import com.example.reddisearch.llm.LlmSchedulerTest;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private AppConfig config(FakeEmbeddingServer server) {
+        AppConfig config = new AppConfig();
+        config.setOllamaBaseUrl(server.baseUrl());
+        config.getIndex().setDirectory(tempDir.toString());
+        config.getEmbedding().setEnabled(true);
+        config.getEmbedding().setBatchSize(2);
+        return config;
+    }
+
+    private OllamaEmbeddingClient client(AppConfig config) {
+        OllamaEmbeddingClient client = new OllamaEmbeddingClient();
+        ReflectionTestUtils.setField(client, "restTemplate", new RestTemplate());
+        ReflectionTestUtils.setField(client, "appConfig", config);
+        ReflectionTestUtils.setField(client, "llmScheduler", LlmSchedulerTest.scheduler(config));
+        return client;
+    }
+
+    private static LocalPostIndex localPostIndex(AppConfig config) {
+        TermDictionary dictionary = new TermDictionary();
+        ReflectionTestUtils.setField(dictionary, "appConfig", config);
+        LocalPostIndex localPostIndex = new LocalPostIndex();
+        ReflectionTestUtils.setField(localPostIndex, "appConfig", config);
+        ReflectionTestUtils.setField(localPostIndex, "termDictionary", dictionary);
+        Tokenizer tokenizer = new Tokenizer();
+        ReflectionTestUtils.setField(tokenizer, "appConfig", config);
+        tokenizer.init();
+        ReflectionTestUtils.setField(localPostIndex, "tokenizer", tokenizer);
+        return localPostIndex;
+    }
+
+    private EmbeddingIndex embeddingIndex(AppConfig config, LocalPostIndex localPostIndex) {
+        EmbeddingIndex index = new EmbeddingIndex();
+        ReflectionTestUtils.setField(index, "appConfig", config);
+        ReflectionTestUtils.setField(index, "embeddingClient", client(config));
+        ReflectionTestUtils.setField(index, "localPostIndex", localPostIndex);
+        return index;
+    }
+
+    private static RedditPost post(String title, String subreddit) {
+        return new RedditPost(title, "", "https://www.reddit.com/r/" + subreddit + "/" + title.hashCode(), subreddit, 5, 1);
+    }
+
+    @Test
+    void embedsInBatches() throws Exception {
+        try (FakeEmbeddingServer server = new FakeEmbeddingServer(false)) {
+            List<float[]> embeddings = client(config(server)).embed(List.of("one", "two", "three", "four", "five"));
+
+            assertEquals(5, embeddings.size());
+            assertEquals(3, server.requests.get());
+            assertArrayEquals(FakeEmbeddingServer.embedding("three"), embeddings.get(2));
+        }
+    }
+
+    @Test
+    void fallsBackToSingleTextEndpoint() throws Exception {
+        try (FakeEmbeddingServer server = new FakeEmbeddingServer(true)) {
+            List<float[]> embeddings = client(config(server)).embed(List.of("alpha", "beta"));
+
+            assertEquals(2, embeddings.size());
+            assertArrayEquals(FakeEmbeddingServer.embedding("beta"), embeddings.get(1));
+        }
+    }
+
+    @Test
+    void findsNearestPostsWithinSubreddit() throws Exception {
+        try (FakeEmbeddingServer server = new FakeEmbeddingServer(false)) {
+            AppConfig config = config(server);
+
+            LocalPostIndex localPostIndex = localPostIndex(config);
+            EmbeddingIndex index = embeddingIndex(config, localPostIndex);
+
+            List<RedditPost> posts = List.of(
+                post("cast iron skillet seasoning oil", "Cooking"),
+                post("best oil for seasoning cast iron", "castiron"),
+                post("mechanical keyboard switch recommendations", "MechanicalKeyboards"),
+                post("tactile switch keyboard for typing", "MechanicalKeyboards"));
+            localPostIndex.ingest(posts);
+            index.addPosts(posts);
+            assertEquals(4, index.size());
+
+            List<EmbeddingIndex.Hit> hits = index.search("seasoning cast iron with oil", 2, "all");
+            assertEquals(2, hits.size());
+            assertTrue(hits.stream().allMatch(h -> h.getPost().getTitle().contains("cast iron")));
+
+            List<EmbeddingIndex.Hit> scoped = index.search("seasoning cast iron with oil", 2, "castiron");
+            assertEquals(1, scoped.size());
+            assertEquals("castiron", scoped.get(0).getPost().getSubreddit());
+        }
+    }
+
+    @Test
+    void restoreSkipsRowsWhoseDocIdNowBelongsToAnotherPost() throws Exception {
+        try (FakeEmbeddingServer server = new FakeEmbeddingServer(false)) {
+            AppConfig config = config(server);
+            RedditPost kept = post("tactile switch keyboard for typing", "MechanicalKeyboards");
+
+            // First run: no index snapshot is written before it stops
+            LocalPostIndex firstRun = localPostIndex(config);
+            EmbeddingIndex firstIndex = embeddingIndex(config, firstRun);
+            List<RedditPost> before = List.of(
+                post("cast iron skillet seasoning oil", "Cooking"),
+                post("best oil for seasoning cast iron", "castiron"),
+                kept);
+            firstRun.ingest(before);
+            firstIndex.addPosts(before);
+            firstIndex.close();
+
+            // Second run: the empty index hands doc ids 0 and 1 to different posts
+            LocalPostIndex secondRun = localPostIndex(config);
+            List<RedditPost> after = List.of(
+                post("sourdough starter not rising", "Sourdough"),
+                post("marathon training plan for beginners", "running"),
+                kept);
+            secondRun.ingest(after);
+            assertEquals(0, secondRun.docIdOf(after.get(0)));
+
+            EmbeddingIndex index = embeddingIndex(config, secondRun);
+            index.restore();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (index.size() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            assertEquals(1, index.size(), "only the row embedded from the same post is restored");
+
+            int requestsBefore = server.requests.get();
+            index.addPosts(after);
+            assertEquals(3, index.size());
+            assertTrue(server.requests.get() > requestsBefore, "the reused doc ids are embedded again");
+
+            List<EmbeddingIndex.Hit> hits = index.search("sourdough starter not rising", 1, "all");
+            assertEquals("Sourdough", hits.get(0).getPost().getSubreddit());
+            index.close();
+        }
+    }
+
+    @Test
+    void editedPostIsEmbeddedAgain() throws Exception {
+        try (FakeEmbeddingServer server = new FakeEmbeddingServer(false)) {
+            AppConfig config = config(server);
+            LocalPostIndex localPostIndex = localPostIndex(config);
+            EmbeddingIndex index = embeddingIndex(config, localPostIndex);
+
+            String url = "https://www.reddit.com/r/Cooking/comments/abc123";
+            RedditPost original = new RedditPost("cast iron skillet seasoning oil", "", url, "Cooking", 5, 1);
+            List<RedditPost> others = List.of(
+                post("mechanical keyboard switch recommendations", "MechanicalKeyboards"),
+                post("marathon training plan for beginners", "running"));
+            localPostIndex.ingest(List.of(original, others.get(0), others.get(1)));
+            index.addPosts(List.of(original, others.get(0), others.get(1)));
+
+            int requestsBefore = server.requests.get();
+            index.addPosts(List.of(original));
+            assertEquals(requestsBefore, server.requests.get(), "an unchanged post is not embedded again");
+
+            // Same URL, so the same doc id, but different text
+            RedditPost edited = new RedditPost("sourdough starter not rising", "", url, "Cooking", 9, 3);
+            localPostIndex.ingest(List.of(edited));
+            index.addPosts(List.of(edited));
+            assertTrue(server.requests.get() > requestsBefore, "the edited post is embedded again");
+            assertEquals(3, index.size());
+
+            List<EmbeddingIndex.Hit> hits = index.search("sourdough starter not rising", 1, "all");
+            assertEquals(url, hits.get(0).getPost().getUrl());
+            assertEquals(1f, hits.get(0).getSimilarity(), 1e-4);
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.reddisearch.embedding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for Ollama's embedding endpoints. Each text is embedded as a hashed bag of words,
+ * so the output is deterministic and texts sharing words end up close together.
+ */
+class FakeEmbeddingServer implements AutoCloseable {
+
+    static final int DIMENSION = 64;
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean legacyOnly;
+    final AtomicInteger requests = new AtomicInteger();
+
+    FakeEmbeddingServer(boolean legacyOnly) throws IOException {
+        this.legacyOnly = legacyOnly;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/embed", this::handleBatch);
+        server.createContext("/api/embeddings", this::handleSingle);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    static float[] embedding(String text) {
+        float[] vector = new float[DIMENSION];
+        for (String word : text.toLowerCase().split("[^a-z0-9]+")) {
+            if (!word.isEmpty()) {
+                vector[Math.floorMod(word.hashCode(), DIMENSION)] += 1f;
+            }
+        }
+        return vector;
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        if (legacyOnly) {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+            return;
+        }
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode embeddings = response.putArray("embeddings");
+        for (JsonNode input : request.path("input")) {
+            ArrayNode row = embeddings.addArray();
+            for (float v : embedding(input.asText())) row.add(v);
+        }
+        respond(exchange, 200, response.toString());
+    }
+
+    private void handleSingle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode row = response.putArray("embedding");
+        for (float v : embedding(request.path("prompt").asText())) row.add(v);
+        respond(exchange, 200, response.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
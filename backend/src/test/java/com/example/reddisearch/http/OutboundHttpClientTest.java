@@ -0,0 +1,92 @@
+package com.example.reddisearch.http;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.HttpClientConfig;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundHttpClientTest {
+
+    private HttpServer server;
+    private OutboundHttpClient client;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gzip", exchange -> {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(("{\"agent\":\"" + exchange.getRequestHeaders().getFirst("User-Agent") + "\"}").getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.getResponseHeaders().set("X-Ratelimit-Remaining", "99");
+            exchange.sendResponseHeaders(200, compressed.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                compressed.writeTo(out);
+            }
+        });
+        server.createContext("/stream", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+                out.write("\n{\"done\":true}\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+
+        registry = new SimpleMeterRegistry();
+        client = new OutboundHttpClient();
+        ReflectionTestUtils.setField(client, "config", new HttpClientConfig());
+        ReflectionTestUtils.setField(client, "meterRegistry", registry);
+        client.init();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    void decodesGzipAndExposesHeaders() throws IOException {
+        OutboundHttpClient.Response response = client.get(url("/gzip"), Map.of("User-Agent", "test-agent"));
+
+        assertTrue(response.isSuccessful());
+        assertEquals("{\"agent\":\"test-agent\"}", response.getBody());
+        assertEquals("99", response.header("x-ratelimit-remaining"));
+        assertNull(response.header("X-Missing"));
+        assertEquals(1, registry.get("reddisearch.http.client.requests")
+            .tag("host", "127.0.0.1").tag("method", "GET").tag("status", "200").timer().count());
+    }
+
+    @Test
+    void streamsPostBodiesAndReportsErrors() throws IOException {
+        try (InputStream in = client.postJsonStream(url("/stream"), "{\"response\":\"hi\"}")) {
+            assertEquals("{\"response\":\"hi\"}\n{\"done\":true}\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        OutboundHttpClient.HttpStatusException error = assertThrows(OutboundHttpClient.HttpStatusException.class,
+            () -> client.postJsonStream(url("/missing"), "{}"));
+        assertEquals(404, error.getStatusCode());
+        assertEquals(1, registry.get("reddisearch.http.client.requests").tag("status", "404").timer().count());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.reddisearch.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalPostIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LocalPostIndex newIndex() {
+        return newIndex(false);
+    }
+
+    private LocalPostIndex newIndex(boolean stemming) {
+        AppConfig config = new AppConfig();
+        config.getIndex().setDirectory(tempDir.toString());
+        config.getTokenizer().setStemming(stemming);
+
+        TermDictionary dictionary = new TermDictionary();
+        ReflectionTestUtils.setField(dictionary, "appConfig", config);
+        dictionary.load();
+
+        LocalPostIndex index = new LocalPostIndex();
+        ReflectionTestUtils.setField(index, "appConfig", config);
+        ReflectionTestUtils.setField(index, "termDictionary", dictionary);
+        ReflectionTestUtils.setField(index, "tokenizer", tokenizer(config));
+        index.load();
+        return index;
+    }
+
+    static Tokenizer tokenizer(AppConfig config) {
+        Tokenizer tokenizer = new Tokenizer();
+        ReflectionTestUtils.setField(tokenizer, "appConfig", config);
+        tokenizer.init();
+        return tokenizer;
+    }
+
+    private static RedditPost post(String title, String content, String subreddit) {
+        return new RedditPost(title, content, "https://www.reddit.com/r/" + subreddit + "/" + title.hashCode(), subreddit, 10, 2);
+    }
+
+    @Test
+    void searchesWithinSubredditPartition() {
+        LocalPostIndex index = newIndex();
+        index.ingest(List.of(
+            post("Best mechanical keyboard switches", "Browns are a good middle ground", "MechanicalKeyboards"),
+            post("Keyboard shortcuts in vim", "Learn the motions first", "vim")));
+
+        assertEquals(1, index.searchFresh("mechanical keyboard", "mechanicalkeyboards", 10).size());
+        assertEquals(2, index.searchFresh("keyboard", "all", 10).size());
+        assertTrue(index.searchFresh("keyboard", "cooking", 10).isEmpty());
+    }
+
+    @Test
+    void snapshotSurvivesRestart() {
+        LocalPostIndex index = newIndex();
+        index.ingest(List.of(post("Sourdough starter tips", "Feed it twice a day", "Breadit")));
+        index.flush();
+
+        LocalPostIndex reloaded = newIndex();
+        List<RedditPost> hits = reloaded.searchFresh("sourdough starter", "breadit", 5);
+        assertEquals(1, hits.size());
+        assertEquals("Sourdough starter tips", hits.get(0).getTitle());
+    }
+
+    @Test
+    void changedTokenizerSettingsRetokenizeTheSnapshot() {
+        LocalPostIndex index = newIndex(false);
+        index.ingest(List.of(post("Tactile keyboards compared", "Three switches each", "MechanicalKeyboards")));
+        index.flush();
+        assertTrue(index.searchFresh("keyboard", "all", 5).isEmpty());
+
+        LocalPostIndex stemmed = newIndex(true);
+        assertEquals(1, stemmed.size());
+        assertEquals(1, stemmed.searchFresh("keyboard", "all", 5).size());
+        assertEquals(1, stemmed.searchFresh("tactile keyboards", "mechanicalkeyboards", 5).size());
+    }
+
+    @Test
+    void snapshotAheadOfTheDictionaryIsRetokenized() throws Exception {
+        LocalPostIndex index = newIndex();
+        index.ingest(List.of(post("Sourdough starter tips", "Feed it twice a day", "Breadit")));
+        index.flush();
+        // As if the snapshot had been written before terms it uses reached terms.dict
+        Files.delete(tempDir.resolve("terms.dict"));
+
+        LocalPostIndex reloaded = newIndex();
+        TermDictionary dictionary = (TermDictionary) ReflectionTestUtils.getField(reloaded, "termDictionary");
+        assertTrue(dictionary.lookup("sourdough") >= 0);
+        assertEquals(1, reloaded.documentFrequency(dictionary.lookup("sourdough")));
+        assertEquals(1, reloaded.searchFresh("sourdough starter", "breadit", 5).size());
+    }
+
+    @Test
+    void reingestingAnEditedPostReplacesItsTermsAndLength() {
+        LocalPostIndex index = newIndex();
+        TermDictionary dictionary = (TermDictionary) ReflectionTestUtils.getField(index, "termDictionary");
+        RedditPost original = post("Sourdough starter", "feed daily with wholemeal flour", "Breadit");
+        RedditPost other = post("Rye bread", "dense crumb", "Breadit");
+        index.ingest(List.of(original, other));
+        int docId = index.docIdOf(original);
+        int originalLength = index.document(docId).getLength();
+
+        // Same URL, same text: nothing to re-index
+        index.ingest(List.of(original));
+        assertEquals(2, index.documentCount());
+        assertEquals(1, index.documentFrequency(dictionary.lookup("daily")));
+
+        RedditPost edited = new RedditPost(original.getTitle(), "switched to rye", original.getUrl(), "Breadit", 40, 9);
+        index.ingest(List.of(edited));
+
+        assertEquals(docId, index.docIdOf(edited));
+        assertEquals(2, index.documentCount());
+        assertEquals(0, index.documentFrequency(dictionary.lookup("daily")));
+        assertEquals(2, index.documentFrequency(dictionary.lookup("rye")));
+        assertEquals(1, index.documentFrequency(dictionary.lookup("sourdough")));
+        int editedLength = index.document(docId).getLength();
+        assertTrue(editedLength < originalLength);
+        assertEquals((editedLength + index.document(index.docIdOf(other)).getLength()) / 2.0, index.averageDocumentLength(), 1e-9);
+
+        assertTrue(index.searchFresh("wholemeal", "all", 5).isEmpty());
+        assertEquals(2, index.searchFresh("rye", "breadit", 5).size());
+    }
+
+    @Test
+    void corpusStatisticsFollowEachIngestAndMatchARebuild() {
+        LocalPostIndex index = newIndex();
+        TermDictionary dictionary = (TermDictionary) ReflectionTestUtils.getField(index, "termDictionary");
+        assertEquals(0, index.documentCount());
+        assertEquals(0.0, index.averageDocumentLength());
+
+        RedditPost first = post("Cast iron seasoning", "use flaxseed oil", "castiron");
+        index.ingest(List.of(first));
+        int firstLength = index.document(index.docIdOf(first)).getLength();
+        assertEquals(1, index.documentCount());
+        assertEquals(firstLength, index.averageDocumentLength(), 1e-9);
+        assertEquals(1, index.documentFrequency(dictionary.lookup("oil")));
+
+        RedditPost second = post("Olive oil for cooking", "smoke point matters", "Cooking");
+        index.ingest(List.of(second));
+        int secondLength = index.document(index.docIdOf(second)).getLength();
+        assertEquals(2, index.documentCount());
+        assertEquals((firstLength + secondLength) / 2.0, index.averageDocumentLength(), 1e-9);
+        assertEquals(2, index.documentFrequency(dictionary.lookup("oil")));
+        assertEquals(1, index.documentFrequency(dictionary.lookup("seasoning")));
+
+        // An edit takes the old terms out again
+        index.ingest(List.of(new RedditPost(first.getTitle(), "use shortening", first.getUrl(), "castiron", 10, 2)));
+        assertEquals(1, index.documentFrequency(dictionary.lookup("oil")));
+        assertEquals(0, index.documentFrequency(dictionary.lookup("flaxseed")));
+        int editedLength = index.document(index.docIdOf(first)).getLength();
+        assertEquals((editedLength + secondLength) / 2.0, index.averageDocumentLength(), 1e-9);
+
+        // Reloading rebuilds the statistics from the postings; the incremental ones must agree
+        index.flush();
+        LocalPostIndex reloaded = newIndex();
+        assertEquals(index.documentCount(), reloaded.documentCount());
+        assertEquals(index.averageDocumentLength(), reloaded.averageDocumentLength(), 1e-9);
+        for (String term : List.of("oil", "seasoning", "shortening", "smoke", "flaxseed")) {
+            int termId = dictionary.lookup(term);
+            assertEquals(index.documentFrequency(termId), reloaded.documentFrequency(termId), term);
+        }
+    }
+}
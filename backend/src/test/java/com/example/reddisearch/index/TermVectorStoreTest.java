@@ -0,0 +1,62 @@
+package com.example.reddisearch.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.vector.SparseVector;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String URL = "https://www.reddit.com/r/Coffee/comments/abc123";
+
+    @Test
+    void editedPostDoesNotReadTheVectorOfItsOldText() {
+        AppConfig config = new AppConfig();
+        config.getIndex().setDirectory(tempDir.toString());
+        config.getVectorStore().setSegmentSizeMb(1);
+
+        TermDictionary dictionary = new TermDictionary();
+        ReflectionTestUtils.setField(dictionary, "appConfig", config);
+        dictionary.load();
+        Tokenizer tokenizer = LocalPostIndexTest.tokenizer(config);
+
+        LocalPostIndex index = new LocalPostIndex();
+        ReflectionTestUtils.setField(index, "appConfig", config);
+        ReflectionTestUtils.setField(index, "termDictionary", dictionary);
+        ReflectionTestUtils.setField(index, "tokenizer", tokenizer);
+        index.load();
+
+        TermVectorStore store = new TermVectorStore();
+        ReflectionTestUtils.setField(store, "appConfig", config);
+        ReflectionTestUtils.setField(store, "termDictionary", dictionary);
+        ReflectionTestUtils.setField(store, "tokenizer", tokenizer);
+
+        RedditPost original = new RedditPost("Pour over grind size", "Medium fine works", URL, "Coffee", 10, 2);
+        index.ingest(List.of(original));
+        int docId = index.docIdOf(original);
+        SparseVector before = SparseVector.ofSorted(new int[] { 1, 2 }, new float[] { 1f, 1f });
+        store.put(docId, original.getContentHash(), before);
+        assertEquals(before, store.get(docId, original.getContentHash()));
+
+        // Same URL, new text: the doc id is reused
+        RedditPost edited = new RedditPost("Pour over grind size", "Switched to a coarser grind", URL, "Coffee", 12, 4);
+        index.ingest(List.of(edited));
+        assertEquals(docId, index.docIdOf(edited));
+        assertNull(store.get(docId, edited.getContentHash()), "the old text's vector is not served for the edit");
+
+        SparseVector after = SparseVector.ofSorted(new int[] { 1, 3 }, new float[] { 1f, 2f });
+        store.put(docId, edited.getContentHash(), after);
+        assertEquals(after, store.get(docId, edited.getContentHash()));
+        store.close();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.reddisearch.index;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenizerTest {
+
+    private static Tokenizer tokenizer(boolean stemming) {
+        AppConfig config = new AppConfig();
+        config.getTokenizer().setStemming(stemming);
+        return LocalPostIndexTest.tokenizer(config);
+    }
+
+    private static List<String> allTerms(Tokenizer tokenizer, String text) {
+        List<String> terms = new ArrayList<>();
+        tokenizer.forEachTerm(text, terms::add);
+        return terms;
+    }
+
+    @Test
+    void splitsOnNonWordCharactersAndDropsStopWordsAndShortTokens() {
+        Tokenizer tokenizer = tokenizer(false);
+        assertEquals(List.of("best", "java", "http", "client", "java"),
+            allTerms(tokenizer, "What is the BEST Java HTTP-client?! (java, go)"));
+        assertEquals(List.of("java", "threads", "work"), tokenizer.keywords("How do Java threads work in java?"));
+    }
+
+    @Test
+    void keepsLettersFromAnyScript() {
+        Tokenizer tokenizer = tokenizer(false);
+        assertEquals(List.of("café", "straße", "日本語"), allTerms(tokenizer, "Café—Straße, 日本語!"));
+        assertEquals(List.of("nai\u0308ve"), allTerms(tokenizer, "nai\u0308ve"), "combining marks stay in the word");
+        assertEquals(List.of("𝒳𝒴𝒵"), allTerms(tokenizer, "(𝒳𝒴𝒵)"), "supplementary code points stay intact");
+    }
+
+    @Test
+    void defaultSettingsMatchPluralsAgainstSingulars() {
+        // Query filters match whole terms, so without stemming "thread" would miss "threads"
+        Tokenizer tokenizer = LocalPostIndexTest.tokenizer(new AppConfig());
+        assertEquals(tokenizer.terms("thread"), tokenizer.terms("Threads"));
+        assertEquals(List.of("java", "threads", "work"), tokenizer.keywords("How do Java threads work?"),
+            "keywords for Reddit's own search stay unstemmed");
+    }
+
+    @Test
+    void stemmingFoldsPluralsOnly() {
+        Tokenizer tokenizer = tokenizer(true);
+        assertEquals(List.of("query", "thread", "class", "virus", "horse", "shoes"),
+            allTerms(tokenizer, "queries threads class virus horses shoes"));
+        assertEquals(List.of("thread"), tokenizer.terms("thread threads THREADS this"));
+        assertNotEquals(tokenizer(false).signature(), tokenizer.signature());
+    }
+
+    @Test
+    void termIdsReuseTheThreadBuffer() {
+        AppConfig config = new AppConfig();
+        config.getIndex().setEnabled(false);
+        TermDictionary dictionary = new TermDictionary();
+        ReflectionTestUtils.setField(dictionary, "appConfig", config);
+        Tokenizer tokenizer = tokenizer(false);
+
+        Tokenizer.TermIds first = tokenizer.termIds("alpha beta alpha", dictionary, true);
+        assertEquals(3, first.size());
+        assertEquals(first.ids()[0], first.ids()[2]);
+
+        Tokenizer.TermIds second = tokenizer.termIds("alpha gamma", dictionary, false);
+        assertSame(first, second);
+        assertEquals(1, second.size(), "unknown terms are skipped without interning");
+        assertEquals(dictionary.lookup("alpha"), second.ids()[0]);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.reddisearch.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.RedditScraperService;
+import com.example.reddisearch.RedditScraperService.Listing;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+import com.example.reddisearch.VectorSearchService;
+import com.example.reddisearch.index.LocalPostIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubredditIngesterTest {
+
+    /**
+     * new.json over posts t3_1..t3_n (created at 1..n), with Reddit's cursor semantics
+     */
+    static class FakeListings extends RedditScraperService {
+        int newest;
+        final List<String> requests = new ArrayList<>();
+
+        @Override
+        public Listing fetchNewListing(String subreddit, String before, String after, int limit) {
+            requests.add(before != null ? "before=" + before : after != null ? "after=" + after : "first");
+            int from;
+            int to;
+            if (before != null) {
+                // The page of posts immediately newer than the cursor
+                int cursor = id(before);
+                from = Math.min(newest, cursor + limit);
+                to = cursor + 1;
+            } else {
+                from = after != null ? id(after) - 1 : newest;
+                to = Math.max(1, from - limit + 1);
+            }
+            List<RedditPost> posts = new ArrayList<>();
+            for (int n = from; n >= to; n--) {
+                posts.add(new RedditPost("post " + n, "", "https://www.reddit.com/r/" + subreddit + "/" + n,
+                    subreddit, 1, 0, "t3_" + n, n));
+            }
+            boolean more = to > 1 && before == null;
+            return new Listing(posts, posts.size(), posts.isEmpty() ? null : "t3_" + from,
+                posts.isEmpty() ? 0 : from, posts.isEmpty() ? 0 : to, more && !posts.isEmpty() ? "t3_" + to : null);
+        }
+
+        private static int id(String fullname) {
+            return Integer.parseInt(fullname.substring(3));
+        }
+    }
+
+    static class RecordingIndex extends LocalPostIndex {
+        final List<Integer> batches = new ArrayList<>();
+
+        @Override
+        public void ingest(Collection<RedditPost> posts) {
+            batches.add(posts.size());
+        }
+    }
+
+    static class RecordingSearchService extends VectorSearchService {
+        int warmed;
+
+        @Override
+        public void warmPosts(List<RedditPost> posts) {
+            warmed += posts.size();
+        }
+    }
+
+    private final FakeListings listings = new FakeListings();
+    private final RecordingIndex index = new RecordingIndex();
+    private final RecordingSearchService searchService = new RecordingSearchService();
+
+    private SubredditIngester ingester(AppConfig appConfig) {
+        SubredditIngester ingester = new SubredditIngester();
+        ReflectionTestUtils.setField(ingester, "redditScraperService", listings);
+        ReflectionTestUtils.setField(ingester, "localPostIndex", index);
+        ReflectionTestUtils.setField(ingester, "vectorSearchService", searchService);
+        ReflectionTestUtils.setField(ingester, "appConfig", appConfig);
+        return ingester;
+    }
+
+    @Test
+    void backfillsOnceThenFetchesOnlyNewerPostsInBatches() {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getIngestion().setMaxPagesPerPoll(2);
+        appConfig.getIngestion().setBatchSize(50);
+        SubredditIngester ingester = ingester(appConfig);
+        SubredditIngester.Feed feed = new SubredditIngester.Feed("java", 30_000);
+
+        listings.newest = 450;
+        assertEquals(200, ingester.pollOnce(feed), "backfill is capped at max-pages-per-poll pages");
+        assertEquals(List.of("first", "after=t3_351"), listings.requests);
+        assertEquals("t3_450", feed.newestFullname);
+
+        listings.requests.clear();
+        listings.newest = 570;
+        assertEquals(120, ingester.pollOnce(feed));
+        assertEquals(List.of("before=t3_450", "before=t3_550"), listings.requests);
+        assertEquals("t3_570", feed.newestFullname);
+        assertEquals(List.of(50, 50, 50, 50, 50, 50, 20), index.batches);
+        assertEquals(320, searchService.warmed);
+
+        listings.requests.clear();
+        assertEquals(0, ingester.pollOnce(feed));
+        assertEquals(List.of("before=t3_570"), listings.requests);
+    }
+
+    @Test
+    void pollIntervalFollowsPostRate() {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getIngestion().setTargetPostsPerPoll(10);
+        SubredditIngester ingester = ingester(appConfig);
+        SubredditIngester.Feed feed = new SubredditIngester.Feed("java", 30_000);
+
+        listings.newest = 5;
+        ingester.pollOnce(feed);
+
+        // 100 posts in 100s: 1 post/s, so 10 posts take 10s (clamped to the 30s minimum)
+        feed.lastPollAt = System.currentTimeMillis() - 100_000;
+        listings.newest = 105;
+        ingester.pollOnce(feed);
+        assertEquals(30_000, feed.intervalMs);
+
+        // Nothing new: the rate estimate decays and the interval backs off
+        for (int i = 0; i < 4; i++) {
+            feed.lastPollAt = System.currentTimeMillis() - 60_000;
+            ingester.pollOnce(feed);
+        }
+        assertTrue(feed.intervalMs > 30_000, "interval " + feed.intervalMs);
+        assertTrue(feed.intervalMs <= 900_000);
+    }
+}
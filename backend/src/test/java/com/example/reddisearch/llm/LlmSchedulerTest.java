@@ -0,0 +1,113 @@
+package com.example.reddisearch.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.llm.LlmScheduler.Priority;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LlmSchedulerTest {
+
+    public static LlmScheduler scheduler(AppConfig config) {
+        return scheduler(config, new SimpleMeterRegistry());
+    }
+
+    static LlmScheduler scheduler(AppConfig config, MeterRegistry registry) {
+        LlmScheduler scheduler = new LlmScheduler();
+        ReflectionTestUtils.setField(scheduler, "appConfig", config);
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", registry);
+        scheduler.registerMetrics();
+        return scheduler;
+    }
+
+    private static AppConfig config(int maxConcurrent, int maxQueued, long interactiveTimeoutMs) {
+        AppConfig config = new AppConfig();
+        config.getLlm().setMaxConcurrent(maxConcurrent);
+        config.getLlm().setMaxQueued(maxQueued);
+        config.getLlm().setInteractiveQueueTimeoutMs(interactiveTimeoutMs);
+        config.getLlm().setBackgroundQueueTimeoutMs(10_000);
+        return config;
+    }
+
+    /** Occupy the only slot until the returned latch is released */
+    private static CountDownLatch holdSlot(LlmScheduler scheduler) throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> scheduler.call(Priority.INTERACTIVE, () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }, () -> null));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static void awaitQueued(LlmScheduler scheduler, Priority priority, int count) throws InterruptedException {
+        for (int i = 0; i < 500 && scheduler.queuedCount(priority) < count; i++) Thread.sleep(10);
+        assertEquals(count, scheduler.queuedCount(priority));
+    }
+
+    @Test
+    void fallsBackWhenNoSlotFreesUpBeforeTheDeadline() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LlmScheduler scheduler = scheduler(config(1, 8, 100), registry);
+        CountDownLatch release = holdSlot(scheduler);
+
+        long start = System.nanoTime();
+        assertEquals("fallback", scheduler.call(Priority.INTERACTIVE, () -> "llm", () -> "fallback"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+        assertEquals(0, scheduler.queuedCount(Priority.INTERACTIVE));
+        assertEquals(1, registry.get("reddisearch.llm.queue.wait").tag("outcome", "timed_out").timer().count());
+
+        release.countDown();
+        for (int i = 0; i < 500 && scheduler.activeCount() > 0; i++) Thread.sleep(10);
+        assertEquals("llm", scheduler.call(Priority.INTERACTIVE, () -> "llm", () -> "fallback"));
+    }
+
+    @Test
+    void interactiveCallsOvertakeQueuedBackgroundWork() throws Exception {
+        LlmScheduler scheduler = scheduler(config(1, 8, 10_000));
+        CountDownLatch release = holdSlot(scheduler);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<?> background = CompletableFuture.runAsync(() ->
+            scheduler.call(Priority.BACKGROUND, () -> order.add("background"), () -> false));
+        awaitQueued(scheduler, Priority.BACKGROUND, 1);
+        CompletableFuture<?> interactive = CompletableFuture.runAsync(() ->
+            scheduler.call(Priority.INTERACTIVE, () -> order.add("interactive"), () -> false));
+        awaitQueued(scheduler, Priority.INTERACTIVE, 1);
+
+        release.countDown();
+        CompletableFuture.allOf(background, interactive).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("interactive", "background"), order);
+    }
+
+    @Test
+    void fullQueueRejectsImmediately() throws Exception {
+        LlmScheduler scheduler = scheduler(config(1, 1, 10_000));
+        CountDownLatch release = holdSlot(scheduler);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() ->
+            scheduler.call(Priority.INTERACTIVE, () -> "llm", () -> "fallback"));
+        awaitQueued(scheduler, Priority.INTERACTIVE, 1);
+
+        long start = System.nanoTime();
+        assertEquals("fallback", scheduler.call(Priority.INTERACTIVE, () -> "llm", () -> "fallback"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+
+        release.countDown();
+        assertEquals("llm", queued.get(5, TimeUnit.SECONDS));
+    }
+}
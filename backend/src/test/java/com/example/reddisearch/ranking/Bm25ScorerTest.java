@@ -0,0 +1,81 @@
+package com.example.reddisearch.ranking;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.vector.SparseVector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Bm25ScorerTest {
+
+    private static Bm25Scorer scorer(double k1, double b) {
+        AppConfig config = new AppConfig();
+        config.getRanking().setK1(k1);
+        config.getRanking().setB(b);
+        Bm25Scorer scorer = new Bm25Scorer();
+        ReflectionTestUtils.setField(scorer, "appConfig", config);
+        return scorer;
+    }
+
+    private static SparseVector vector(int[] termIds, float... weights) {
+        return SparseVector.ofSorted(termIds, weights);
+    }
+
+    @Test
+    void matchesHandComputedScore() {
+        // 10 docs, average length 5; term 1 is in 2 of them, term 2 in all 10
+        FixedStatistics stats = new FixedStatistics(10, 5.0).df(1, 2).df(2, 10).df(3, 4);
+        SparseVector query = vector(new int[] {1, 2}, 1f, 1f);
+        // Length 3 + 1 + 6 = 10, twice the average
+        SparseVector document = vector(new int[] {1, 2, 3}, 3f, 1f, 6f);
+
+        // lengthNorm = 1 - b + b * 10 / 5 = 1.75; tf * (k1 + 1) / (tf + k1 * 1.75)
+        double idf1 = Math.log(1 + (10 - 2 + 0.5) / (2 + 0.5));
+        double idf2 = Math.log(1 + (10 - 10 + 0.5) / (10 + 0.5));
+        double expected = idf1 * 3 * 2.2 / (3 + 1.2 * 1.75) + idf2 * 1 * 2.2 / (1 + 1.2 * 1.75);
+
+        assertEquals(expected, scorer(1.2, 0.75).prepare(query, stats).score(document), 1e-5);
+    }
+
+    @Test
+    void idfStaysPositiveForTermsInEveryDocument() {
+        SparseVector query = vector(new int[] {2}, 1f);
+        SparseVector document = vector(new int[] {2}, 1f);
+
+        double everywhere = scorer(1.2, 0.75).prepare(query, new FixedStatistics(10, 1.0).df(2, 10)).score(document);
+        assertTrue(everywhere > 0, "the +1 inside the log keeps a ubiquitous term from scoring negative");
+        assertEquals(Math.log(1 + 0.5 / 10.5), everywhere, 1e-6);
+
+        // Stale statistics can report df above the document count; it is clamped to N
+        double overcounted = scorer(1.2, 0.75).prepare(query, new FixedStatistics(10, 1.0).df(2, 12)).score(document);
+        assertEquals(everywhere, overcounted, 1e-9);
+    }
+
+    @Test
+    void longerDocumentsScoreLowerUnlessLengthNormalisationIsOff() {
+        FixedStatistics stats = new FixedStatistics(100, 8.0).df(1, 5);
+        SparseVector query = vector(new int[] {1}, 1f);
+        SparseVector shortDoc = vector(new int[] {1, 2}, 2f, 2f);
+        SparseVector longDoc = vector(new int[] {1, 2}, 2f, 30f);
+
+        RelevanceScorer.PreparedQuery normalised = scorer(1.2, 0.75).prepare(query, stats);
+        assertTrue(normalised.score(shortDoc) > normalised.score(longDoc));
+
+        RelevanceScorer.PreparedQuery flat = scorer(1.2, 0.0).prepare(query, stats);
+        assertEquals(flat.score(shortDoc), flat.score(longDoc), 1e-9);
+    }
+
+    @Test
+    void termFrequencySaturatesAtK1PlusOne() {
+        FixedStatistics stats = new FixedStatistics(100, 1000.0).df(1, 5);
+        SparseVector query = vector(new int[] {1}, 1f);
+        double idf = Math.log(1 + 95.5 / 5.5);
+
+        // b = 0: tf * (k1 + 1) / (tf + k1) approaches k1 + 1
+        double score = scorer(1.2, 0.0).prepare(query, stats).score(vector(new int[] {1}, 1000f));
+        assertTrue(score < idf * 2.2);
+        assertEquals(idf * 2.2, score, idf * 0.01);
+        assertEquals(0.0, scorer(1.2, 0.0).prepare(query, stats).score(vector(new int[] {2}, 5f)));
+    }
+}
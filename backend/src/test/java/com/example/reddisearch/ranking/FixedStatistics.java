@@ -0,0 +1,39 @@
+package com.example.reddisearch.ranking;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Corpus statistics with hand-picked values, so expected scores can be worked out on paper
+ */
+class FixedStatistics implements CorpusStatistics {
+
+    private final int documentCount;
+    private final double averageDocumentLength;
+    private final Map<Integer, Integer> documentFrequencies = new HashMap<>();
+
+    FixedStatistics(int documentCount, double averageDocumentLength) {
+        this.documentCount = documentCount;
+        this.averageDocumentLength = averageDocumentLength;
+    }
+
+    FixedStatistics df(int termId, int documentFrequency) {
+        documentFrequencies.put(termId, documentFrequency);
+        return this;
+    }
+
+    @Override
+    public int documentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public int documentFrequency(int termId) {
+        return documentFrequencies.getOrDefault(termId, 0);
+    }
+
+    @Override
+    public double averageDocumentLength() {
+        return averageDocumentLength;
+    }
+}
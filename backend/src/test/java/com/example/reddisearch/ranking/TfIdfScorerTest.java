@@ -0,0 +1,55 @@
+package com.example.reddisearch.ranking;
+
+import org.junit.jupiter.api.Test;
+import com.example.reddisearch.vector.SparseVector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TfIdfScorerTest {
+
+    private final TfIdfScorer scorer = new TfIdfScorer();
+
+    private static SparseVector vector(int[] termIds, float... weights) {
+        return SparseVector.ofSorted(termIds, weights);
+    }
+
+    private static double idf(int df, int n) {
+        return Math.log((n + 1.0) / (df + 1.0)) + 1.0;
+    }
+
+    @Test
+    void matchesHandComputedCosine() {
+        FixedStatistics stats = new FixedStatistics(10, 0.0).df(1, 2).df(2, 10).df(3, 4);
+        SparseVector query = vector(new int[] {1, 2}, 1f, 1f);
+        SparseVector document = vector(new int[] {1, 3}, 3f, 1f);
+
+        // Query weights: (1 + ln 1) * idf; document weights: (1 + ln tf) * idf
+        double q1 = idf(2, 10), q2 = idf(10, 10);
+        double d1 = (1 + Math.log(3)) * idf(2, 10), d3 = idf(4, 10);
+        double expected = q1 * d1 / (Math.sqrt(q1 * q1 + q2 * q2) * Math.sqrt(d1 * d1 + d3 * d3));
+
+        assertEquals(expected, scorer.prepare(query, stats).score(document), 1e-5);
+    }
+
+    @Test
+    void boundedByOneAndZeroWithoutOverlap() {
+        FixedStatistics stats = new FixedStatistics(10, 0.0).df(1, 2).df(2, 3).df(5, 1);
+        SparseVector query = vector(new int[] {1, 2}, 1f, 2f);
+        RelevanceScorer.PreparedQuery prepared = scorer.prepare(query, stats);
+
+        assertEquals(1.0, prepared.score(query), 1e-6);
+        assertEquals(0.0, prepared.score(vector(new int[] {5}, 4f)));
+        assertEquals(0.0, prepared.score(SparseVector.EMPTY));
+        assertEquals(0.0, scorer.prepare(SparseVector.EMPTY, stats).score(query));
+    }
+
+    @Test
+    void rareTermsOutweighCommonOnes() {
+        // Same tf and length, so only IDF separates the two documents
+        FixedStatistics stats = new FixedStatistics(100, 0.0).df(1, 1).df(2, 90);
+        SparseVector query = vector(new int[] {1, 2}, 1f, 1f);
+        RelevanceScorer.PreparedQuery prepared = scorer.prepare(query, stats);
+
+        assertTrue(prepared.score(vector(new int[] {1, 3}, 1f, 1f)) > prepared.score(vector(new int[] {2, 3}, 1f, 1f)));
+    }
+}
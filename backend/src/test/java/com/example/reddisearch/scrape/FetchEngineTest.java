@@ -0,0 +1,83 @@
+package com.example.reddisearch.scrape;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FetchEngineTest {
+
+    private final FetchEngine engine = new FetchEngine();
+
+    private FetchEngine engine(int maxConcurrentPerHost) {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getFetch().setMaxConcurrentPerHost(maxConcurrentPerHost);
+        ReflectionTestUtils.setField(engine, "appConfig", appConfig);
+        return engine;
+    }
+
+    @AfterEach
+    void close() {
+        engine.close();
+    }
+
+    private static FetchEngine.Request<String> sleeping(String host, String value, long millis) {
+        return FetchEngine.Request.of(host, () -> {
+            Thread.sleep(millis);
+            return value;
+        });
+    }
+
+    @Test
+    void runsRequestsConcurrentlyAndKeepsRequestOrder() {
+        FetchEngine engine = engine(8);
+        long start = System.nanoTime();
+        List<String> results = engine.fetchAll(Arrays.asList(
+            sleeping("a.example", "first", 300),
+            sleeping("a.example", "second", 100),
+            sleeping("b.example", "third", 200)), FetchEngine.deadline(5_000));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(List.of("first", "second", "third"), results);
+        assertTrue(elapsedMs < 550, "took " + elapsedMs + "ms, expected about the slowest request");
+    }
+
+    @Test
+    void capsConcurrencyPerHost() {
+        FetchEngine engine = engine(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<FetchEngine.Request<Integer>> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int n = i;
+            requests.add(FetchEngine.Request.of("reddit.example", () -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                running.decrementAndGet();
+                return n;
+            }));
+        }
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), engine.fetchAll(requests, FetchEngine.deadline(5_000)));
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    void returnsPartialResultsAtTheDeadline() {
+        FetchEngine engine = engine(4);
+        List<String> results = engine.fetchAll(Arrays.asList(
+            sleeping("a.example", "fast", 10),
+            sleeping("a.example", "slow", 5_000),
+            FetchEngine.Request.<String>of("a.example", () -> { throw new IllegalStateException("boom"); })),
+            FetchEngine.deadline(300));
+
+        assertEquals(Arrays.asList("fast", null, null), results);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.reddisearch.scrape;
+
+import org.junit.jupiter.api.Test;
+import com.example.reddisearch.RedditScraperService.Listing;
+import com.example.reddisearch.RedditScraperService.RedditPost;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedditListingDecoderTest {
+
+    private static Listing decodeFixture() throws IOException {
+        try (InputStream in = RedditListingDecoderTest.class.getResourceAsStream("/reddit/listing-new.json")) {
+            return RedditListingDecoder.decode(in, "fallback", "https://www.reddit.com");
+        }
+    }
+
+    @Test
+    void keepsPostFieldsAndSkipsEverythingElse() throws IOException {
+        Listing listing = decodeFixture();
+
+        assertEquals(2, listing.getPosts().size(), "removed and empty zero-engagement posts are dropped");
+        RedditPost post = listing.getPosts().get(0);
+        assertEquals("Virtual threads in production", post.getTitle());
+        assertEquals("We moved our scrapers to \"virtual threads\" and\nthroughput doubled.", post.getContent());
+        assertEquals("https://www.reddit.com/r/java/comments/post3/virtual_threads_in_production/", post.getUrl());
+        assertEquals("java", post.getSubreddit());
+        assertEquals(412, post.getScore());
+        assertEquals(87, post.getComments());
+        assertEquals("t3_post3", post.getFullname());
+        assertEquals(1712345678L, post.getCreatedUtc());
+
+        RedditPost crosspost = listing.getPosts().get(1);
+        assertEquals("Cross-posted question", crosspost.getTitle(), "nested objects must not leak fields");
+        assertEquals(1, crosspost.getScore());
+        assertEquals("t3_post0", crosspost.getFullname());
+        assertEquals("fallback", crosspost.getSubreddit());
+        assertEquals("Unicode survives: café — 🚀", crosspost.getContent());
+    }
+
+    @Test
+    void cursorsDescribeTheRawPage() throws IOException {
+        Listing listing = decodeFixture();
+
+        assertEquals(4, listing.getRawCount());
+        assertEquals("t3_post3", listing.getNewestFullname());
+        assertEquals(1712345678L, listing.getNewestCreatedUtc());
+        assertEquals(1712343000L, listing.getOldestCreatedUtc());
+        assertEquals("t3_post0", listing.getAfter());
+    }
+
+    @Test
+    void emptyListingHasNoCursors() throws IOException {
+        byte[] json = "{\"kind\":\"Listing\",\"data\":{\"after\":null,\"children\":[]}}".getBytes(StandardCharsets.UTF_8);
+        Listing listing = RedditListingDecoder.decode(new ByteArrayInputStream(json), "java", "https://www.reddit.com");
+
+        assertTrue(listing.getPosts().isEmpty());
+        assertEquals(0, listing.getRawCount());
+        assertNull(listing.getNewestFullname());
+        assertNull(listing.getAfter());
+    }
+}
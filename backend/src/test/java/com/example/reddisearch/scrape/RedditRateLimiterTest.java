@@ -0,0 +1,61 @@
+package com.example.reddisearch.scrape;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedditRateLimiterTest {
+
+    private static RedditRateLimiter limiter(double requestsPerMinute, int burst, long maxWaitMs) {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getRateLimit().setDistributed(false);
+        appConfig.getRateLimit().setRequestsPerMinute(requestsPerMinute);
+        appConfig.getRateLimit().setBurst(burst);
+        appConfig.getRateLimit().setMaxWaitMs(maxWaitMs);
+        RedditRateLimiter limiter = new RedditRateLimiter();
+        ReflectionTestUtils.setField(limiter, "appConfig", appConfig);
+        return limiter;
+    }
+
+    private static HttpHeaders headers(Map<String, List<String>> headers) {
+        return HttpHeaders.of(headers, (name, value) -> true);
+    }
+
+    @Test
+    void burstIsFreeThenRequestsWaitOnlyForTheNextToken() {
+        RedditRateLimiter limiter = limiter(600, 2, 1_000);
+
+        long start = System.nanoTime();
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 50, "burst should not wait");
+
+        start = System.nanoTime();
+        assertTrue(limiter.acquire());
+        long waitedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(waitedMs >= 80 && waitedMs < 500, "waited " + waitedMs + "ms for a 100ms refill");
+    }
+
+    @Test
+    void givesUpRatherThanWaitingPastMaxWait() {
+        RedditRateLimiter limiter = limiter(1, 1, 100);
+        assertTrue(limiter.acquire());
+        assertFalse(limiter.acquire());
+    }
+
+    @Test
+    void pausesWhenRedditReportsTheQuotaIsUsedUp() {
+        RedditRateLimiter limiter = limiter(6000, 10, 100);
+        limiter.observe(200, headers(Map.of("X-Ratelimit-Remaining", List.of("42.0"), "X-Ratelimit-Reset", List.of("300"))));
+        assertTrue(limiter.acquire());
+
+        limiter.observe(200, headers(Map.of("X-Ratelimit-Remaining", List.of("0.0"), "X-Ratelimit-Reset", List.of("30"))));
+        assertFalse(limiter.acquire(), "paused for 30s, longer than max-wait");
+    }
+}
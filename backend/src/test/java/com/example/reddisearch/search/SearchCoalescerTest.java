@@ -0,0 +1,186 @@
+package com.example.reddisearch.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.example.reddisearch.ReddisearchApplication.AppConfig;
+import com.example.reddisearch.VectorSearchService;
+import com.example.reddisearch.VectorSearchService.ProgressListener;
+import com.example.reddisearch.VectorSearchService.SearchResult;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCoalescerTest {
+
+    /**
+     * Counts computations and blocks each one until released
+     */
+    static class SlowSearchService extends VectorSearchService {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final AtomicInteger streamed = new AtomicInteger();
+
+        @Override
+        public SearchResult answerQueryWithDetails(String query, String userSubreddit) {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new SearchResult("answer to " + query, 3);
+        }
+
+        @Override
+        public SearchResult answerQueryStreaming(String query, String userSubreddit, ProgressListener listener) {
+            streamed.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new SearchResult(listener.isCancelled() ? "" : "streamed answer to " + query, 3);
+        }
+    }
+
+    /**
+     * Redis whose lease is always held by another instance that never publishes a result
+     */
+    static class LeaseHeldElsewhere extends StringRedisTemplate {
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            return (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {ValueOperations.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("setIfAbsent")) return false;
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        }
+    }
+
+    private static SearchCoalescer coalescer(VectorSearchService service) {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getCoalescing().setDistributed(false);
+        SearchCoalescer coalescer = new SearchCoalescer();
+        ReflectionTestUtils.setField(coalescer, "vectorSearchService", service);
+        ReflectionTestUtils.setField(coalescer, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(coalescer, "appConfig", appConfig);
+        return coalescer;
+    }
+
+    @Test
+    void identicalConcurrentSearchesShareOneComputation() throws Exception {
+        SlowSearchService service = new SlowSearchService();
+        SearchCoalescer coalescer = coalescer(service);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<SearchResult>> results = new ArrayList<>();
+            results.add(pool.submit(() -> coalescer.search("Best laptop?", "r/Laptops")));
+            assertTrue(service.started.await(5, TimeUnit.SECONDS));
+            results.add(pool.submit(() -> coalescer.search("best laptop", "laptops")));
+            results.add(pool.submit(() -> coalescer.search("BEST   laptop!", "LAPTOPS")));
+            Thread.sleep(100);
+
+            service.release.countDown();
+            for (Future<SearchResult> result : results) {
+                assertEquals("answer to Best laptop?", result.get(5, TimeUnit.SECONDS).getAnswer());
+            }
+            assertEquals(1, service.calls.get());
+            assertEquals(0, coalescer.inFlightCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void differentSubredditsAreNotCoalesced() {
+        SlowSearchService service = new SlowSearchService();
+        service.release.countDown();
+        SearchCoalescer coalescer = coalescer(service);
+
+        coalescer.search("best laptop", "laptops");
+        coalescer.search("best laptop", "buildapc");
+        assertEquals(2, service.calls.get());
+    }
+
+    @Test
+    void searchesJoinAnInFlightStream() throws Exception {
+        SlowSearchService service = new SlowSearchService();
+        SearchCoalescer coalescer = coalescer(service);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Future<SearchResult> stream = pool.submit(() -> coalescer.searchStreaming("best laptop", "laptops", ProgressListener.NONE));
+            assertTrue(service.started.await(5, TimeUnit.SECONDS));
+            Future<SearchResult> plain = pool.submit(() -> coalescer.search("Best laptop?", "laptops"));
+            Future<SearchResult> secondStream = pool.submit(() -> coalescer.searchStreaming("best laptop", "laptops", ProgressListener.NONE));
+            Thread.sleep(100);
+
+            service.release.countDown();
+            assertEquals("streamed answer to best laptop", stream.get(5, TimeUnit.SECONDS).getAnswer());
+            assertEquals("streamed answer to best laptop", plain.get(5, TimeUnit.SECONDS).getAnswer());
+            assertEquals("streamed answer to best laptop", secondStream.get(5, TimeUnit.SECONDS).getAnswer());
+            assertEquals(1, service.streamed.get());
+            assertEquals(0, service.calls.get());
+            assertEquals(0, coalescer.inFlightCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void joinersOfAnAbandonedStreamSearchThemselves() throws Exception {
+        SlowSearchService service = new SlowSearchService();
+        SearchCoalescer coalescer = coalescer(service);
+        CountDownLatch disconnected = new CountDownLatch(1);
+        ProgressListener closing = new ProgressListener() {
+            @Override
+            public boolean isCancelled() {
+                return disconnected.getCount() == 0;
+            }
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            pool.submit(() -> coalescer.searchStreaming("best laptop", "laptops", closing));
+            assertTrue(service.started.await(5, TimeUnit.SECONDS));
+            Future<SearchResult> plain = pool.submit(() -> coalescer.search("best laptop", "laptops"));
+            Thread.sleep(100);
+
+            disconnected.countDown();
+            service.release.countDown();
+            assertEquals("answer to best laptop", plain.get(5, TimeUnit.SECONDS).getAnswer());
+            assertEquals(1, service.calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void followerStopsWaitingForAnotherInstanceWellBeforeTheLeaseEnds() {
+        SlowSearchService service = new SlowSearchService();
+        service.release.countDown();
+        SearchCoalescer coalescer = coalescer(service);
+        AppConfig appConfig = (AppConfig) ReflectionTestUtils.getField(coalescer, "appConfig");
+        appConfig.getCoalescing().setDistributed(true);
+        appConfig.getCoalescing().setFollowerWaitMs(300);
+        appConfig.getCoalescing().setPollIntervalMs(50);
+        ReflectionTestUtils.setField(coalescer, "redisTemplate", new LeaseHeldElsewhere());
+
+        long start = System.nanoTime();
+        assertEquals("answer to best laptop", coalescer.search("best laptop", "laptops").getAnswer());
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMs >= 300 && waitedMs < 5_000, "waited " + waitedMs + "ms");
+        assertEquals(1, service.calls.get());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.reddisearch.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @Test
+    void recallAgainstBruteForce() {
+        Random random = new Random(1);
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            float[] v = randomVector(random);
+            vectors.add(v);
+            index.add(i, v);
+        }
+
+        int k = 10;
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            Set<Integer> expected = bruteForce(vectors, query, k, id -> true);
+            found += (int) index.search(query, k, 64, null).stream()
+                .filter(n -> expected.contains(n.getId()))
+                .count();
+        }
+        double recall = (double) found / (queries * k);
+        assertTrue(recall > 0.9, "recall was " + recall);
+    }
+
+    @Test
+    void filterRestrictsResults() {
+        Random random = new Random(2);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (int i = 0; i < 500; i++) {
+            index.add(i, randomVector(random));
+        }
+
+        List<HnswIndex.Neighbor> hits = index.search(randomVector(random), 5, 32, id -> id % 10 == 0);
+        assertEquals(5, hits.size());
+        assertTrue(hits.stream().allMatch(n -> n.getId() % 10 == 0));
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getSimilarity() >= hits.get(i).getSimilarity());
+        }
+    }
+
+    @Test
+    void reAddingAnIdReplacesItsVector() {
+        Random random = new Random(3);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (int i = 0; i < 500; i++) {
+            index.add(i, randomVector(random));
+        }
+
+        List<float[]> replacements = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            float[] v = randomVector(random);
+            replacements.add(v);
+            index.add(i, v);
+        }
+        assertEquals(500, index.size());
+
+        for (int i = 0; i < replacements.size(); i++) {
+            HnswIndex.Neighbor best = index.search(replacements.get(i), 1, 64, null).get(0);
+            assertEquals(i, best.getId());
+            assertEquals(1f, best.getSimilarity(), 1e-4);
+        }
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) v[i] = (float) random.nextGaussian();
+        return v;
+    }
+
+    private static Set<Integer> bruteForce(List<float[]> vectors, float[] query, int k, java.util.function.IntPredicate filter) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            if (filter.test(i)) scores.put(i, cosine(vectors.get(i), query));
+        }
+        return scores.entrySet().stream()
+            .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
+            .limit(k)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toSet());
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+}
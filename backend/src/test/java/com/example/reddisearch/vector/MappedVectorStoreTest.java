@@ -0,0 +1,150 @@
+package com.example.reddisearch.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static float[] row(int id) {
+        return new float[] { id, id + 0.5f, -id, 1f };
+    }
+
+    private static float[] read(FloatBuffer buffer) {
+        float[] values = new float[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(p -> p.toString().endsWith(".seg")).count();
+        }
+    }
+
+    @Test
+    void storesRowsAcrossSegmentsAndReopens() throws Exception {
+        try (MappedVectorStore store = new MappedVectorStore(tempDir, "rows", 256, 0.5)) {
+            assertEquals(0, segmentCount(), "nothing is written until the first put");
+            for (int id = 0; id < 40; id++) {
+                store.putFloats(id, row(id));
+            }
+            assertEquals(40, store.size());
+            assertTrue(segmentCount() > 1);
+            assertArrayEquals(row(17), read(store.getFloats(17)));
+            assertNull(store.getFloats(40));
+        }
+
+        try (MappedVectorStore reopened = new MappedVectorStore(tempDir, "rows", 256, 0.5)) {
+            assertEquals(40, reopened.size());
+            for (int id = 0; id < 40; id++) {
+                assertArrayEquals(row(id), read(reopened.getFloats(id)));
+            }
+        }
+    }
+
+    @Test
+    void latestWriteWinsAndCompactionDropsGarbage() throws Exception {
+        try (MappedVectorStore store = new MappedVectorStore(tempDir, "rows", 256, 0.5)) {
+            for (int round = 0; round < 5; round++) {
+                for (int id = 0; id < 10; id++) {
+                    store.putFloats(id, row(id * 10 + round));
+                }
+            }
+            assertEquals(10, store.size());
+            assertTrue(store.garbageRatio() > 0.7);
+            long before = segmentCount();
+
+            FloatBuffer heldView = store.getFloats(3);
+            store.compact();
+
+            assertEquals(0.0, store.garbageRatio(), 1e-9);
+            assertTrue(segmentCount() < before);
+            assertArrayEquals(row(34), read(store.getFloats(3)));
+            assertArrayEquals(row(34), read(heldView), "views taken before compaction stay readable");
+        }
+
+        try (MappedVectorStore reopened = new MappedVectorStore(tempDir, "rows", 256, 0.5)) {
+            assertEquals(10, reopened.size());
+            assertArrayEquals(row(94), read(reopened.getFloats(9)));
+        }
+    }
+
+    @Test
+    void readersNeverSeeAHalfPublishedWrite() throws Exception {
+        int ids = 2_000;
+        try (MappedVectorStore store = new MappedVectorStore(tempDir, "rows", 512, 0.9)) {
+            AtomicInteger written = new AtomicInteger();
+            AtomicBoolean done = new AtomicBoolean();
+            ExecutorService readers = Executors.newFixedThreadPool(4);
+            try {
+                Future<?>[] futures = new Future<?>[4];
+                for (int r = 0; r < futures.length; r++) {
+                    futures[r] = readers.submit(() -> {
+                        while (!done.get()) {
+                            int limit = written.get();
+                            for (int id = 0; id < limit; id++) {
+                                // Rows are rewritten while we read, so any round of this id is fine
+                                float[] values = read(store.getFloats(id));
+                                assertEquals(id, (int) values[0] % ids);
+                            }
+                        }
+                        return null;
+                    });
+                }
+
+                // Small segments, growing ids and rewrites: new segments and a growing id
+                // table are published constantly
+                for (int round = 0; round < 3; round++) {
+                    for (int id = 0; id < ids; id++) {
+                        store.putFloats(id, row(round * ids + id));
+                        if (round == 0) written.set(id + 1);
+                    }
+                }
+                done.set(true);
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                done.set(true);
+                readers.shutdownNow();
+            }
+            assertEquals(ids, store.size());
+        }
+    }
+
+    @Test
+    void idTableIsOnlyCopiedWhenItGrows() throws Exception {
+        int ids = 100_000;
+        try (MappedVectorStore store = new MappedVectorStore(tempDir, "rows", 1 << 20, 0.9)) {
+            for (int id = 0; id < ids; id++) {
+                store.putFloats(id, row(id));
+            }
+            int copies = store.tableCopies();
+            // Doubling from 16 slots: one copy per power of two, not one per put
+            assertTrue(copies <= 32 - Integer.numberOfLeadingZeros(ids), "copies: " + copies);
+
+            for (int id = 0; id < ids; id++) {
+                store.putFloats(id, row(ids + id));
+            }
+            assertEquals(copies, store.tableCopies(), "rewriting existing ids never copies the table");
+            assertEquals(ids, store.size());
+            assertArrayEquals(row(ids + 123), read(store.getFloats(123)));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.reddisearch.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseVectorCodecTest {
+
+    private static SparseVector vector(int size, int idStride, float weightScale) {
+        int[] ids = new int[size];
+        float[] weights = new float[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = 3 + i * idStride;
+            weights[i] = (1 + i % 7) * weightScale;
+        }
+        return SparseVector.ofSorted(ids, weights);
+    }
+
+    @Test
+    void roundTripsCountsAsFloat16() {
+        SparseVector counts = vector(40, 17, 1f);
+        byte[] encoded = SparseVectorCodec.encode(counts);
+
+        assertTrue(SparseVectorCodec.isEncoded(encoded));
+        assertNotEquals('{', encoded[0]);
+        assertTrue(encoded.length < 40 * 4, "varint ids and half-precision weights: " + encoded.length + " bytes");
+        assertEquals(counts, SparseVectorCodec.decode(encoded));
+    }
+
+    @Test
+    void keepsFullPrecisionWhenHalfWouldLoseIt() {
+        SparseVector weights = vector(20, 1000, 0.1f);
+        assertEquals(weights, SparseVectorCodec.decode(SparseVectorCodec.encode(weights)));
+    }
+
+    @Test
+    void deflatesLargeBodiesAndDecodesFromBufferSlices() {
+        SparseVector large = vector(2000, 1, 1f);
+        byte[] encoded = SparseVectorCodec.encode(large);
+        assertTrue(encoded.length < 2000, "repetitive bodies are deflated: " + encoded.length + " bytes");
+
+        ByteBuffer padded = ByteBuffer.allocate(encoded.length + 8);
+        padded.position(4);
+        padded.put(encoded);
+        padded.position(4).limit(4 + encoded.length);
+        assertEquals(large, SparseVectorCodec.decode(padded.slice()));
+        assertEquals(SparseVector.EMPTY, SparseVectorCodec.decode(SparseVectorCodec.encode(SparseVector.EMPTY)));
+    }
+
+    @Test
+    void convertsHalfPrecisionEdgeCases() {
+        for (float value : new float[] { 0f, -0f, 1f, -2.5f, 2048f, 65504f, 0x1p-24f, 0x1p-14f }) {
+            assertEquals(value, SparseVectorCodec.halfToFloat(SparseVectorCodec.floatToHalf(value)));
+        }
+        assertEquals(2048f, SparseVectorCodec.halfToFloat(SparseVectorCodec.floatToHalf(2049f)), "ties round to even");
+        assertEquals(Float.POSITIVE_INFINITY, SparseVectorCodec.halfToFloat(SparseVectorCodec.floatToHalf(1e6f)));
+        assertTrue(Float.isNaN(SparseVectorCodec.halfToFloat(SparseVectorCodec.floatToHalf(Float.NaN))));
+    }
+
+    @Test
+    void rejectsOtherFormats() {
+        assertThrows(IllegalArgumentException.class, () -> SparseVectorCodec.decode("{\"ids\":[]}".getBytes()));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.reddisearch.vector;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseVectorTest {
+
+    @Test
+    void sortsAndMergesDuplicateTermIds() {
+        SparseVector v = SparseVector.of(new int[] {7, 2, 7, 5}, new float[] {1f, 2f, 3f, 4f}, 4);
+
+        assertEquals(3, v.size());
+        assertEquals(2, v.termId(0));
+        assertEquals(5, v.termId(1));
+        assertEquals(7, v.termId(2));
+        assertEquals(4f, v.weight(2));
+        assertEquals(Math.sqrt(4 + 16 + 16), v.norm(), 1e-6);
+    }
+
+    @Test
+    void cosineMatchesDenseComputation() {
+        SparseVector a = SparseVector.of(new int[] {1, 3, 9}, new float[] {0.5f, 0.25f, 0.25f}, 3);
+        SparseVector b = SparseVector.of(new int[] {3, 4, 9}, new float[] {1f, 1f, 2f}, 3);
+
+        double dot = 0.25 * 1 + 0.25 * 2;
+        double expected = dot / (Math.sqrt(0.25 + 0.0625 + 0.0625) * Math.sqrt(1 + 1 + 4));
+        assertEquals(expected, a.cosine(b), 1e-6);
+        assertEquals(0.0, a.cosine(SparseVector.EMPTY));
+    }
+
+    @Test
+    void rejectsUnsortedInputForOfSorted() {
+        assertThrows(IllegalArgumentException.class,
+            () -> SparseVector.ofSorted(new int[] {3, 1}, new float[] {1f, 1f}));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.reddisearch.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTest {
+
+    @Test
+    void matchesStableSortOfAllCandidates() {
+        Random random = new Random(7);
+        List<double[]> candidates = new ArrayList<>();
+        TopK<Integer> topK = new TopK<>(5);
+        for (int i = 0; i < 500; i++) {
+            // Coarse scores so ties are common
+            double score = random.nextInt(20);
+            candidates.add(new double[] {i, score});
+            topK.offer(i, score);
+        }
+
+        List<Integer> expected = candidates.stream()
+            .sorted((a, b) -> Double.compare(b[1], a[1]))
+            .limit(5)
+            .map(c -> (int) c[0])
+            .collect(Collectors.toList());
+        List<Integer> actual = topK.toSortedList().stream()
+            .map(TopK.Scored::getItem)
+            .collect(Collectors.toList());
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void returnsFewerThanKWhenUnderfilled() {
+        TopK<String> topK = new TopK<>(3);
+        topK.offer("low", 0.1);
+        topK.offer("high", 0.9);
+
+        List<TopK.Scored<String>> result = topK.toSortedList();
+        assertEquals(2, result.size());
+        assertEquals("high", result.get(0).getItem());
+        assertEquals(0.9, result.get(0).getScore());
+    }
+}